@@ -0,0 +1,99 @@
+package fr.lteconsulting.benchmark;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs {@link RuntimeBuilderBenchmark} with the GC profiler, and fails if a builder allocates more per operation than
+ * its direct call, that is if the JIT cannot scalar replace the builder anymore.
+ *
+ * <p>
+ * To check that disabled metrics cost nothing, build the module with the <code>metrics</code> profile and give
+ * <code>--jvm-arg -Dbuildergen.metrics=false</code>, which is passed to the forked benchmark JVMs.
+ *
+ * <p>
+ * Usage : <code>mvn compile exec:exec -Dexec.executable=java -Dexec.args="-cp %classpath fr.lteconsulting.benchmark.AllocationCheck [--tolerance 8] [--iterations 3] [--jvm-arg arg]..."</code>,
+ * the tolerance being in bytes per operation. The benchmark JVMs are forked with the class path of this one.
+ */
+public class AllocationCheck
+{
+	private final static String BuilderSuffix = "Builder";
+	private final static String DirectSuffix = "Direct";
+	private final static String AllocationMetric = "gc.alloc.rate.norm";
+
+	public static void main( String[] args ) throws Exception
+	{
+		double tolerance = 8;
+		int iterations = 3;
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.include( RuntimeBuilderBenchmark.class.getSimpleName() )
+				.addProfiler( GCProfiler.class )
+				.forks( 1 );
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--tolerance":
+					tolerance = Double.parseDouble( args[++i] );
+					break;
+				case "--iterations":
+					iterations = Integer.parseInt( args[++i] );
+					break;
+				case "--jvm-arg":
+					options.jvmArgsAppend( args[++i] );
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+		options.warmupIterations( iterations ).warmupTime( TimeValue.seconds( 1 ) ).measurementIterations( iterations ).measurementTime( TimeValue.seconds( 1 ) );
+
+		Map<String, Double> allocations = new TreeMap<>();
+		for( RunResult result : new Runner( options.build() ).run() )
+		{
+			String label = result.getParams().getBenchmark();
+			label = label.substring( label.lastIndexOf( '.' ) + 1 );
+			allocations.put( label, getAllocation( result ) );
+		}
+		if( allocations.isEmpty() )
+			throw new IllegalStateException( "No benchmark was run" );
+
+		int failures = 0;
+		for( Map.Entry<String, Double> builder : allocations.entrySet() )
+		{
+			if( !builder.getKey().endsWith( BuilderSuffix ) )
+				continue;
+			String target = builder.getKey().substring( 0, builder.getKey().length() - BuilderSuffix.length() );
+			Double direct = allocations.get( target + DirectSuffix );
+			if( direct == null )
+				throw new IllegalStateException( "No direct benchmark for " + builder.getKey() );
+
+			double overhead = builder.getValue() - direct;
+			boolean failed = overhead > tolerance;
+			if( failed )
+				failures++;
+			System.out.println( String.format( "%-16s builder %8.1f B/op, direct %8.1f B/op, overhead %8.1f B/op %s", target, builder.getValue(), direct, overhead, failed ? "FAILED" : "ok" ) );
+		}
+
+		if( failures > 0 )
+			throw new IllegalStateException( failures + " builder(s) allocate more than the object they build" );
+	}
+
+	private static double getAllocation( RunResult result )
+	{
+		for( Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet() )
+		{
+			if( secondary.getKey().endsWith( AllocationMetric ) )
+				return secondary.getValue().getScore();
+		}
+		throw new IllegalStateException( "No allocation measured for " + result.getParams().getBenchmark() );
+	}
+}
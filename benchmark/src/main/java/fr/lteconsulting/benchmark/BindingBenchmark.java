@@ -0,0 +1,118 @@
+package fr.lteconsulting.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the binding of a configuration map with a generated <code>fromMap</code> entry point, and with reflection
+ * on the setters of a bean. The reflective binder caches the setters by property name, and converts the values as the
+ * generated code does.
+ * 
+ * <p>
+ * Usage : <code>BindingBenchmark [--bindings 1000000] [--warmup 5] [--iterations 10]</code>
+ */
+public class BindingBenchmark
+{
+	private int bindings = 1000000;
+	private int warmup = 5;
+	private int iterations = 10;
+
+	private final Map<String, Method> setters = new HashMap<>();
+
+	// keeps the results alive
+	private long checksum;
+
+	public static void main( String[] args ) throws Exception
+	{
+		BindingBenchmark benchmark = new BindingBenchmark();
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--bindings":
+					benchmark.bindings = Integer.parseInt( args[++i] );
+					break;
+				case "--warmup":
+					benchmark.warmup = Integer.parseInt( args[++i] );
+					break;
+				case "--iterations":
+					benchmark.iterations = Integer.parseInt( args[++i] );
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+
+		for( Method method : SettingsBean.class.getMethods() )
+		{
+			if( method.getName().startsWith( "set" ) && method.getParameterTypes().length == 1 )
+				benchmark.setters.put( Character.toLowerCase( method.getName().charAt( 3 ) ) + method.getName().substring( 4 ), method );
+		}
+
+		Map<String, Object> configuration = new HashMap<>();
+		configuration.put( "host", "localhost" );
+		configuration.put( "port", "8080" );
+		configuration.put( "timeout", 30 );
+		configuration.put( "secure", Boolean.TRUE );
+		configuration.put( "maxSize", 1048576L );
+		configuration.put( "user", "admin" );
+
+		System.out.println( "{" );
+		System.out.println( "  \"bindings\": " + benchmark.bindings + "," );
+		System.out.println( "  \"generatedNanosPerBinding\": " + benchmark.measure( configuration, false ) + "," );
+		System.out.println( "  \"reflectiveNanosPerBinding\": " + benchmark.measure( configuration, true ) + "," );
+		System.out.println( "  \"checksum\": " + benchmark.checksum );
+		System.out.println( "}" );
+	}
+
+	private double measure( Map<String, Object> configuration, boolean reflective ) throws ReflectiveOperationException
+	{
+		for( int i = 0; i < warmup; i++ )
+			bind( configuration, reflective );
+
+		long start = System.nanoTime();
+		for( int i = 0; i < iterations; i++ )
+			bind( configuration, reflective );
+		return (System.nanoTime() - start) / ((double) iterations * bindings);
+	}
+
+	private void bind( Map<String, Object> configuration, boolean reflective ) throws ReflectiveOperationException
+	{
+		for( int i = 0; i < bindings; i++ )
+		{
+			if( reflective )
+			{
+				SettingsBean bean = new SettingsBean();
+				for( Map.Entry<String, Object> entry : configuration.entrySet() )
+					setReflectively( bean, entry.getKey(), entry.getValue() );
+				checksum += bean.getPort() + bean.getTimeout();
+			}
+			else
+			{
+				Settings settings = SettingsBuilder.fromMap( configuration ).build();
+				checksum += settings.getPort() + settings.getTimeout();
+			}
+		}
+	}
+
+	private void setReflectively( Object bean, String name, Object value ) throws IllegalAccessException, InvocationTargetException
+	{
+		Method setter = setters.get( name );
+		if( setter == null )
+			throw new IllegalArgumentException( "Unknown parameter " + name );
+
+		Class<?> type = setter.getParameterTypes()[0];
+		Object converted = value;
+		if( type == int.class )
+			converted = value instanceof Number ? ((Number) value).intValue() : Integer.parseInt( (String) value );
+		else if( type == long.class )
+			converted = value instanceof Number ? ((Number) value).longValue() : Long.parseLong( (String) value );
+		else if( type == boolean.class )
+			converted = value instanceof Boolean ? value : Boolean.parseBoolean( (String) value );
+		else if( type == String.class )
+			converted = value == null ? null : value.toString();
+		setter.invoke( bean, converted );
+	}
+}
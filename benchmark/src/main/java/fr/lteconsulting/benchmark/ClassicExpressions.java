@@ -0,0 +1,40 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Payload of the nested builders benchmark : the same expression trees as {@link Expressions}, with classic builders
+ */
+public class ClassicExpressions
+{
+	public static abstract class Node
+	{
+	}
+
+	public static class Operation extends Node
+	{
+		final Node left;
+		final String operation;
+		final Node right;
+
+		@UseBuilderGenerator( builderName = "ClassicOperationBuilder" )
+		public Operation( @Mandatory Node left, @Mandatory String operation, @Mandatory Node right )
+		{
+			this.left = left;
+			this.operation = operation;
+			this.right = right;
+		}
+	}
+
+	public static class Value extends Node
+	{
+		final int value;
+
+		@UseBuilderGenerator( builderName = "ClassicValueBuilder" )
+		public Value( @Mandatory int value )
+		{
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the throughput of a generated codec with Java serialization, on a round trip of each object of a batch.
+ * 
+ * <p>
+ * Usage : <code>CodecBenchmark [--objects 100000] [--warmup 5] [--iterations 10]</code>
+ */
+public class CodecBenchmark
+{
+	private int objects = 100000;
+	private int warmup = 5;
+	private int iterations = 10;
+
+	// keeps the results alive
+	private long checksum;
+
+	public static void main( String[] args ) throws Exception
+	{
+		CodecBenchmark benchmark = new CodecBenchmark();
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--objects":
+					benchmark.objects = Integer.parseInt( args[++i] );
+					break;
+				case "--warmup":
+					benchmark.warmup = Integer.parseInt( args[++i] );
+					break;
+				case "--iterations":
+					benchmark.iterations = Integer.parseInt( args[++i] );
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+
+		Quote[] quotes = new Quote[benchmark.objects];
+		for( int i = 0; i < quotes.length; i++ )
+			quotes[i] = new Quote( i, "SYM" + (i % 100), new Quote.Price( i * 0.5, "EUR" ), i % 3 == 0 ? null : new Quote.Price( i * 0.5 + 0.25, "EUR" ), i % 1000, i % 2 == 0 );
+
+		System.out.println( "{" );
+		System.out.println( "  \"objects\": " + benchmark.objects + "," );
+		System.out.println( "  \"byteBufferCodecNanosPerObject\": " + benchmark.measure( quotes, Mode.BYTE_BUFFER ) + "," );
+		System.out.println( "  \"dataStreamCodecNanosPerObject\": " + benchmark.measure( quotes, Mode.DATA_STREAM ) + "," );
+		System.out.println( "  \"serializationNanosPerObject\": " + benchmark.measure( quotes, Mode.SERIALIZATION ) + "," );
+		System.out.println( "  \"checksum\": " + benchmark.checksum );
+		System.out.println( "}" );
+	}
+
+	private enum Mode
+	{
+		BYTE_BUFFER,
+		DATA_STREAM,
+		SERIALIZATION
+	}
+
+	private double measure( Quote[] quotes, Mode mode ) throws IOException, ClassNotFoundException
+	{
+		for( int i = 0; i < warmup; i++ )
+			roundTrip( quotes, mode );
+
+		long start = System.nanoTime();
+		for( int i = 0; i < iterations; i++ )
+			roundTrip( quotes, mode );
+		return (System.nanoTime() - start) / ((double) iterations * quotes.length);
+	}
+
+	private void roundTrip( Quote[] quotes, Mode mode ) throws IOException, ClassNotFoundException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream( 4096 );
+		for( Quote quote : quotes )
+		{
+			Quote copy;
+			switch( mode )
+			{
+				case BYTE_BUFFER:
+					buffer.clear();
+					QuoteBuilder.Codec.write( buffer, quote );
+					buffer.flip();
+					copy = QuoteBuilder.Codec.read( buffer );
+					break;
+
+				case DATA_STREAM:
+					bytes.reset();
+					QuoteBuilder.Codec.write( new DataOutputStream( bytes ), quote );
+					copy = QuoteBuilder.Codec.read( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+					break;
+
+				default:
+					bytes.reset();
+					try( ObjectOutputStream output = new ObjectOutputStream( bytes ) )
+					{
+						output.writeObject( quote );
+					}
+					try( ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+					{
+						copy = (Quote) input.readObject();
+					}
+					break;
+			}
+			checksum += copy.getId() + copy.getQuantity();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Payload of the nested builders benchmark : the expression trees of the sample, built with nested configurers and
+ * terminal setters
+ */
+public class Expressions
+{
+	public static abstract class Node
+	{
+	}
+
+	public static class Operation extends Node
+	{
+		final Node left;
+		final String operation;
+		final Node right;
+
+		@UseBuilderGenerator( nestedConfigurers = true, terminalSetter = true )
+		public Operation( @Mandatory Node left, @Mandatory String operation, @Mandatory Node right )
+		{
+			this.left = left;
+			this.operation = operation;
+			this.right = right;
+		}
+	}
+
+	public static class Value extends Node
+	{
+		final int value;
+
+		@UseBuilderGenerator( terminalSetter = true )
+		public Value( @Mandatory int value )
+		{
+			this.value = value;
+		}
+	}
+}
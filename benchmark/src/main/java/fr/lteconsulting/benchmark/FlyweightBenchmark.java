@@ -0,0 +1,143 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scans a memory mapped file of fixed size records, either through a generated flyweight building only the records
+ * selected, or by building an object for each record.
+ * 
+ * <p>
+ * The default file holds 100 million records, that is about 2.5 GB. It is mapped in chunks of less than 2 GB, which is
+ * the limit of a {@link MappedByteBuffer}.
+ * 
+ * <p>
+ * Usage : <code>FlyweightBenchmark [--records 100000000] [--file ticks.bin] [--keep] [--runs 3]</code>
+ */
+public class FlyweightBenchmark
+{
+	private final static int RecordsPerChunk = Integer.MAX_VALUE / TickBuilder.Flyweight.RECORD_SIZE;
+	private final static int SelectedInstrument = 7;
+
+	private long records = 100000000L;
+	private Path file;
+	private boolean keep;
+	private int runs = 3;
+
+	public static void main( String[] args ) throws Exception
+	{
+		FlyweightBenchmark benchmark = new FlyweightBenchmark();
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--records":
+					benchmark.records = Long.parseLong( args[++i] );
+					break;
+				case "--file":
+					benchmark.file = Paths.get( args[++i] );
+					break;
+				case "--keep":
+					benchmark.keep = true;
+					break;
+				case "--runs":
+					benchmark.runs = Integer.parseInt( args[++i] );
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+
+		if( benchmark.file == null )
+			benchmark.file = Files.createTempFile( "flyweight-benchmark", ".bin" );
+
+		try
+		{
+			benchmark.run();
+		}
+		finally
+		{
+			if( !benchmark.keep )
+				Files.deleteIfExists( benchmark.file );
+		}
+	}
+
+	private void run() throws IOException
+	{
+		long writeStart = System.nanoTime();
+		write();
+		long writeNanos = System.nanoTime() - writeStart;
+
+		System.out.println( "{" );
+		System.out.println( "  \"records\": " + records + "," );
+		System.out.println( "  \"fileBytes\": " + records * TickBuilder.Flyweight.RECORD_SIZE + "," );
+		System.out.println( "  \"writeNanos\": " + writeNanos + "," );
+		for( int run = 0; run < runs; run++ )
+		{
+			System.out.println( "  \"flyweightScanNanos" + run + "\": " + scan( true ) + "," );
+			System.out.println( "  \"objectScanNanos" + run + "\": " + scan( false ) + (run < runs - 1 ? "," : "") );
+		}
+		System.out.println( "}" );
+	}
+
+	private void write() throws IOException
+	{
+		try( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE ) )
+		{
+			for( long first = 0; first < records; first += RecordsPerChunk )
+			{
+				int count = (int) Math.min( RecordsPerChunk, records - first );
+				MappedByteBuffer buffer = channel.map( MapMode.READ_WRITE, first * TickBuilder.Flyweight.RECORD_SIZE, (long) count * TickBuilder.Flyweight.RECORD_SIZE );
+				for( int i = 0; i < count; i++ )
+				{
+					long index = first + i;
+					TickBuilder.Flyweight.append( buffer, index, (int) (index % 1000), 100 + (index % 5000) / 100.0, (int) (index % 300), index % 2 == 0 );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sums the quantities of the ticks of one instrument, returns the elapsed time
+	 */
+	private long scan( boolean flyweight ) throws IOException
+	{
+		long start = System.nanoTime();
+		long quantity = 0;
+		try( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			TickBuilder.Flyweight tick = new TickBuilder.Flyweight();
+			for( long first = 0; first < records; first += RecordsPerChunk )
+			{
+				int count = (int) Math.min( RecordsPerChunk, records - first );
+				ByteBuffer buffer = channel.map( MapMode.READ_ONLY, first * TickBuilder.Flyweight.RECORD_SIZE, (long) count * TickBuilder.Flyweight.RECORD_SIZE );
+				tick.wrap( buffer, 0 );
+				for( int i = 0; i < count; i++ )
+				{
+					if( flyweight )
+					{
+						if( tick.moveTo( i ).getInstrument() == SelectedInstrument )
+							quantity += tick.build().getQuantity();
+					}
+					else
+					{
+						Tick object = tick.moveTo( i ).build();
+						if( object.getInstrument() == SelectedInstrument )
+							quantity += object.getQuantity();
+					}
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if( quantity < 0 )
+			throw new IllegalStateException();
+		return elapsed;
+	}
+}
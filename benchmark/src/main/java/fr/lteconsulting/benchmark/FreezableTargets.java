@@ -0,0 +1,35 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Targets of the prototype benchmark, most of their parameters being shared by all the built objects
+ */
+public class FreezableTargets
+{
+	public static class Request
+	{
+		final String host;
+		final int port;
+		final String path;
+		final int timeout;
+		final boolean secure;
+		final String userAgent;
+		final int retries;
+		final long id;
+
+		@UseBuilderGenerator( freezable = true )
+		public Request( @Mandatory String host, @Mandatory int port, String path, int timeout, boolean secure, String userAgent, int retries, long id )
+		{
+			this.host = host;
+			this.port = port;
+			this.path = path;
+			this.timeout = timeout;
+			this.secure = secure;
+			this.userAgent = userAgent;
+			this.retries = retries;
+			this.id = id;
+		}
+	}
+}
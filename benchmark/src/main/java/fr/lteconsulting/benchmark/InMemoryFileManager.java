@@ -0,0 +1,94 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Keeps every file produced by the compiler in memory, so that the benchmark does not measure the disk.
+ */
+public class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+{
+	private final List<OutputFile> outputs = new ArrayList<>();
+
+	public InMemoryFileManager( StandardJavaFileManager fileManager )
+	{
+		super( fileManager );
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForOutput( Location location, String className, Kind kind, FileObject sibling )
+	{
+		OutputFile file = new OutputFile( location.getName() + "/" + className.replace( '.', '/' ) + kind.extension, kind );
+		outputs.add( file );
+		return file;
+	}
+
+	@Override
+	public FileObject getFileForOutput( Location location, String packageName, String relativeName, FileObject sibling )
+	{
+		OutputFile file = new OutputFile( location.getName() + "/" + packageName.replace( '.', '/' ) + "/" + relativeName, Kind.OTHER );
+		outputs.add( file );
+		return file;
+	}
+
+	/**
+	 * Total size in bytes of the generated source files
+	 */
+	public long getGeneratedSourceBytes()
+	{
+		long total = 0;
+		for( OutputFile output : outputs )
+		{
+			if( output.getKind() == Kind.SOURCE )
+				total += output.content.size();
+		}
+		return total;
+	}
+
+	public void clear()
+	{
+		outputs.clear();
+	}
+
+	private static class OutputFile extends SimpleJavaFileObject
+	{
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		OutputFile( String path, Kind kind )
+		{
+			super( URI.create( "memory:///" + path ), kind );
+		}
+
+		@Override
+		public OutputStream openOutputStream()
+		{
+			content.reset();
+			return content;
+		}
+
+		@Override
+		public Writer openWriter()
+		{
+			return new OutputStreamWriter( openOutputStream(), StandardCharsets.UTF_8 );
+		}
+
+		@Override
+		public CharSequence getCharContent( boolean ignoreEncodingErrors )
+		{
+			return new String( content.toByteArray(), StandardCharsets.UTF_8 );
+		}
+	}
+}
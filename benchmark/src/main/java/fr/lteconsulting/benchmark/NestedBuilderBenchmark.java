@@ -0,0 +1,79 @@
+package fr.lteconsulting.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark building complete binary expression trees, with nested configurers and terminal setters, with classic
+ * builders calling <code>build()</code> at each level, and with the constructors.
+ * 
+ * <p>
+ * Usage : <code>mvn compile exec:exec -Dexec.executable=java -Dexec.args="-cp %classpath org.openjdk.jmh.Main NestedBuilderBenchmark -prof gc"</code>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class NestedBuilderBenchmark
+{
+	@Param( { "4", "10" } )
+	int depth;
+
+	@Benchmark
+	public Expressions.Node nestedConfigurers()
+	{
+		return nested( depth );
+	}
+
+	@Benchmark
+	public ClassicExpressions.Node classicBuilders()
+	{
+		return classic( depth );
+	}
+
+	@Benchmark
+	public Expressions.Node constructors()
+	{
+		return constructed( depth );
+	}
+
+	private static Expressions.Node nested( final int depth )
+	{
+		if( depth == 0 )
+			return ValueBuilder.withValue( depth );
+		return OperationBuilder
+				.withLeftOperation( left -> left.withLeft( nested( depth - 1 ) ).withOperation( "+" ).withRight( nested( depth - 1 ) ) )
+				.withOperation( "*" )
+				.withRightValue( right -> right.withValue( depth ) );
+	}
+
+	private static ClassicExpressions.Node classic( int depth )
+	{
+		if( depth == 0 )
+			return ClassicValueBuilder.withValue( depth ).build();
+		return ClassicOperationBuilder
+				.withLeft( ClassicOperationBuilder.withLeft( classic( depth - 1 ) ).withOperation( "+" ).withRight( classic( depth - 1 ) ).build() )
+				.withOperation( "*" )
+				.withRight( ClassicValueBuilder.withValue( depth ).build() )
+				.build();
+	}
+
+	private static Expressions.Node constructed( int depth )
+	{
+		if( depth == 0 )
+			return new Expressions.Value( depth );
+		return new Expressions.Operation( new Expressions.Operation( constructed( depth - 1 ), "+", constructed( depth - 1 ) ), "*", new Expressions.Value( depth ) );
+	}
+}
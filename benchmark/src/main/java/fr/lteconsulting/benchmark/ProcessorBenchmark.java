@@ -0,0 +1,228 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+import fr.lteconsulting.UseBuilderGeneratorProcessor;
+
+/**
+ * Measures how the annotation processor scales with the number of annotated elements and their parameter count.
+ * 
+ * <p>
+ * Synthetic sources are compiled in memory with the system Java compiler, and the processor statistics (wall time and
+ * allocation per generation phase, generated bytes) are written as JSON, to standard output or to the file given with
+ * <code>--output</code>. The peak heap usage of each iteration is also reported, which is relevant when compiling very
+ * wide constructors (<code>--elements 100 --parameters 500</code>).
+ * 
+ * <p>
+ * Usage : <code>ProcessorBenchmark [--elements 10000] [--parameters 50] [--warmup 2] [--iterations 5] [--full]
+ * [--option key=value]... [--output file.json]</code>. By default only annotation processing is run (
+ * <code>-proc:only</code>), <code>--full</code> also compiles the generated builders.
+ */
+public class ProcessorBenchmark
+{
+	private final static String StatisticsNotePrefix = "Builder generator statistics: ";
+
+	private final static Pattern PhasePattern = Pattern.compile( "\"(\\w+)\":\\{\"nanos\":(\\d+),\"allocatedBytes\":(\\d+)\\}" );
+
+	private int elements = 1000;
+	private int parameters = 50;
+	private int warmup = 2;
+	private int iterations = 5;
+	private boolean full = false;
+	private List<String> processorOptions = new ArrayList<>();
+	private String output;
+
+	public static void main( String[] args ) throws IOException
+	{
+		ProcessorBenchmark benchmark = new ProcessorBenchmark();
+		benchmark.parseArguments( args );
+		String json = benchmark.run();
+
+		if( benchmark.output == null )
+		{
+			System.out.println( json );
+		}
+		else
+		{
+			try( Writer writer = new OutputStreamWriter( new FileOutputStream( benchmark.output ), StandardCharsets.UTF_8 ) )
+			{
+				writer.write( json );
+			}
+		}
+	}
+
+	private void parseArguments( String[] args )
+	{
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--elements":
+					elements = Integer.parseInt( args[++i] );
+					break;
+				case "--parameters":
+					parameters = Integer.parseInt( args[++i] );
+					break;
+				case "--warmup":
+					warmup = Integer.parseInt( args[++i] );
+					break;
+				case "--iterations":
+					iterations = Integer.parseInt( args[++i] );
+					break;
+				case "--full":
+					full = true;
+					break;
+				case "--option":
+					processorOptions.add( "-A" + args[++i] );
+					break;
+				case "--output":
+					output = args[++i];
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+	}
+
+	private String run() throws IOException
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if( compiler == null )
+			throw new IllegalStateException( "No system Java compiler, the benchmark must run on a JDK" );
+
+		List<JavaFileObject> sources = SyntheticSources.generate( elements, parameters );
+
+		StringBuilder json = new StringBuilder();
+		json.append( "{\n" );
+		json.append( "  \"javaVersion\": \"" ).append( System.getProperty( "java.version" ) ).append( "\",\n" );
+		json.append( "  \"elements\": " ).append( elements ).append( ",\n" );
+		json.append( "  \"parameters\": " ).append( parameters ).append( ",\n" );
+		json.append( "  \"processorOptions\": \"" ).append( String.join( " ", processorOptions ) ).append( "\",\n" );
+		json.append( "  \"iterations\": [" );
+
+		try( InMemoryFileManager fileManager = new InMemoryFileManager( compiler.getStandardFileManager( null, null, StandardCharsets.UTF_8 ) ) )
+		{
+			for( int i = 0; i < warmup + iterations; i++ )
+			{
+				String result = runIteration( compiler, fileManager, sources );
+				if( i < warmup )
+					continue;
+
+				if( i > warmup )
+					json.append( "," );
+				json.append( "\n    " ).append( result );
+			}
+		}
+
+		json.append( "\n  ]\n" );
+		json.append( "}\n" );
+		return json.toString();
+	}
+
+	private String runIteration( JavaCompiler compiler, InMemoryFileManager fileManager, List<JavaFileObject> sources )
+	{
+		fileManager.clear();
+
+		List<String> options = new ArrayList<>();
+		options.addAll( Arrays.asList( "-classpath", getProcessorClasspath(), "-Abuildergen.stats=true" ) );
+		if( !full )
+			options.add( "-proc:only" );
+		options.addAll( processorOptions );
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		CompilationTask task = compiler.getTask( null, fileManager, diagnostics, options, null, sources );
+		task.setProcessors( Arrays.asList( new UseBuilderGeneratorProcessor() ) );
+
+		resetPeakHeapUsage();
+
+		long start = System.nanoTime();
+		boolean success = task.call();
+		long compileNanos = System.nanoTime() - start;
+
+		long peakHeapBytes = getPeakHeapUsage();
+
+		String statistics = null;
+		for( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() )
+		{
+			String message = diagnostic.getMessage( null );
+			if( diagnostic.getKind() == Diagnostic.Kind.ERROR )
+				throw new IllegalStateException( "Compilation error in benchmark sources : " + message );
+			if( message.startsWith( StatisticsNotePrefix ) )
+				statistics = message.substring( StatisticsNotePrefix.length() );
+		}
+		if( !success || statistics == null )
+			throw new IllegalStateException( "Compilation did not report processor statistics" );
+
+		long generatedBytes = fileManager.getGeneratedSourceBytes();
+
+		StringBuilder perElement = new StringBuilder();
+		Matcher matcher = PhasePattern.matcher( statistics );
+		while( matcher.find() )
+		{
+			if( perElement.length() > 0 )
+				perElement.append( "," );
+			perElement.append( "\"" ).append( matcher.group( 1 ) ).append( "\":{\"nanos\":" ).append( Long.parseLong( matcher.group( 2 ) ) / elements ).append( ",\"allocatedBytes\":" )
+					.append( Long.parseLong( matcher.group( 3 ) ) / elements ).append( "}" );
+		}
+
+		return "{\"compileNanos\":" + compileNanos + ",\"peakHeapBytes\":" + peakHeapBytes + ",\"generatedBytes\":" + generatedBytes + ",\"generatedBytesPerElement\":" + (generatedBytes / elements) + ",\"perElement\":{" + perElement + "},\"statistics\":"
+				+ statistics + "}";
+	}
+
+	private static void resetPeakHeapUsage()
+	{
+		System.gc();
+		for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+		{
+			if( pool.getType() == MemoryType.HEAP )
+				pool.resetPeakUsage();
+		}
+	}
+
+	private static long getPeakHeapUsage()
+	{
+		long peak = 0;
+		for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+		{
+			if( pool.getType() == MemoryType.HEAP )
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	/**
+	 * The annotations used by the synthetic sources come from the processor artifact
+	 */
+	private static String getProcessorClasspath()
+	{
+		try
+		{
+			return Paths.get( UseBuilderGeneratorProcessor.class.getProtectionDomain().getCodeSource().getLocation().toURI() ).toString();
+		}
+		catch( URISyntaxException e )
+		{
+			throw new IllegalStateException( e );
+		}
+	}
+}
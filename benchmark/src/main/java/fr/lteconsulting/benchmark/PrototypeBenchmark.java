@@ -0,0 +1,77 @@
+package fr.lteconsulting.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark building objects from a prototype shared by all the threads, and from a fresh builder given all the
+ * shared parameters each time. The <code>refreeze</code> group derives from a prototype which another thread keeps
+ * replacing, as when the shared configuration changes at runtime.
+ * 
+ * <p>
+ * Usage : <code>mvn compile exec:exec -Dexec.executable=java -Dexec.args="-cp %classpath org.openjdk.jmh.Main PrototypeBenchmark -prof gc"</code>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@Threads( 4 )
+public class PrototypeBenchmark
+{
+	String host = "example.com";
+	int port = 443;
+	String path = "/api";
+	int timeout = 30;
+	boolean secure = true;
+	String userAgent = "benchmark";
+	int retries = 3;
+	long id = 42;
+
+	final RequestBuilder.Prototype prototype = RequestBuilder.withHost( host ).withPort( port ).withPath( path ).withTimeout( timeout ).withSecure( secure ).withUserAgent( userAgent ).withRetries( retries ).freeze();
+
+	volatile RequestBuilder.Prototype sharedPrototype = prototype;
+
+	@Benchmark
+	public FreezableTargets.Request derive()
+	{
+		return prototype.derive().withId( id ).build();
+	}
+
+	@Benchmark
+	public FreezableTargets.Request fresh()
+	{
+		return RequestBuilder.withHost( host ).withPort( port ).withPath( path ).withTimeout( timeout ).withSecure( secure ).withUserAgent( userAgent ).withRetries( retries ).withId( id ).build();
+	}
+
+	@Benchmark
+	@Group( "refreeze" )
+	@GroupThreads( 3 )
+	public FreezableTargets.Request refreezeDerive()
+	{
+		return sharedPrototype.derive().withId( id ).build();
+	}
+
+	@Benchmark
+	@Group( "refreeze" )
+	@GroupThreads( 1 )
+	public RequestBuilder.Prototype refreezeUpdate()
+	{
+		RequestBuilder.Prototype updated = sharedPrototype.derive().withRetries( retries ).freeze();
+		sharedPrototype = updated;
+		return updated;
+	}
+}
@@ -0,0 +1,86 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.Serializable;
+
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Payload of the codec benchmark
+ */
+public class Quote implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private final long id;
+	private final String symbol;
+	private final Price bid;
+	private final Price ask;
+	private final int quantity;
+	private final boolean firm;
+
+	@UseBuilderGenerator( codec = true )
+	public Quote( long id, String symbol, Price bid, Price ask, int quantity, boolean firm )
+	{
+		this.id = id;
+		this.symbol = symbol;
+		this.bid = bid;
+		this.ask = ask;
+		this.quantity = quantity;
+		this.firm = firm;
+	}
+
+	public long getId()
+	{
+		return id;
+	}
+
+	public String getSymbol()
+	{
+		return symbol;
+	}
+
+	public Price getBid()
+	{
+		return bid;
+	}
+
+	public Price getAsk()
+	{
+		return ask;
+	}
+
+	public int getQuantity()
+	{
+		return quantity;
+	}
+
+	public boolean isFirm()
+	{
+		return firm;
+	}
+
+	public static class Price implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final double value;
+		private final String currency;
+
+		@UseBuilderGenerator( codec = true )
+		public Price( double value, String currency )
+		{
+			this.value = value;
+			this.currency = currency;
+		}
+
+		public double getValue()
+		{
+			return value;
+		}
+
+		public String getCurrency()
+		{
+			return currency;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Targets of the reuse benchmark : a constructor and an instance method, with reusable builders
+ */
+public class ReusableTargets
+{
+	public static class Point
+	{
+		final int x;
+		final int y;
+		final String label;
+		final double weight;
+
+		@UseBuilderGenerator( reusable = true )
+		public Point( @Mandatory int x, @Mandatory int y, String label, double weight )
+		{
+			this.x = x;
+			this.y = y;
+			this.label = label;
+			this.weight = weight;
+		}
+	}
+
+	public static class Scaler
+	{
+		final double factor;
+
+		public Scaler( double factor )
+		{
+			this.factor = factor;
+		}
+
+		@UseBuilderGenerator( reusable = true )
+		public double scale( @Mandatory double value, int times, double offset )
+		{
+			return value * factor * times + offset;
+		}
+	}
+}
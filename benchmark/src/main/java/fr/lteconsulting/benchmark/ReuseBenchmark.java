@@ -0,0 +1,110 @@
+package fr.lteconsulting.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.CompilerControl;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark comparing the thread confined builders given by <code>reuse()</code> with new builders, for the
+ * targets of {@link ReusableTargets}. A new builder costs nothing when the JIT scalar replaces it, so each case is
+ * also measured with the builder escaping to a method which is not inlined, as when the builder is filled across
+ * several methods.
+ * 
+ * <p>
+ * Usage : <code>mvn compile exec:exec -Dexec.executable=java -Dexec.args="-cp %classpath org.openjdk.jmh.Main ReuseBenchmark -prof gc"</code>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ReuseBenchmark
+{
+	int x = 3;
+	int y = 4;
+	String label = "point";
+	double weight = 1.5;
+	ReusableTargets.Scaler scaler = new ReusableTargets.Scaler( 1.2 );
+
+	@Benchmark
+	public ReusableTargets.Point pointNew()
+	{
+		return PointBuilder.withX( x ).withY( y ).withLabel( label ).withWeight( weight ).build();
+	}
+
+	@Benchmark
+	public ReusableTargets.Point pointReuse()
+	{
+		return PointBuilder.reuse().withX( x ).withY( y ).withLabel( label ).withWeight( weight ).build();
+	}
+
+	@Benchmark
+	public ReusableTargets.Point pointNewEscaping()
+	{
+		return build( PointBuilder.withX( x ).withY( y ) );
+	}
+
+	@Benchmark
+	public ReusableTargets.Point pointReuseEscaping()
+	{
+		return build( PointBuilder.reuse().withX( x ).withY( y ) );
+	}
+
+	@Benchmark
+	public ReusableTargets.Point pointDirect()
+	{
+		return new ReusableTargets.Point( x, y, label, weight );
+	}
+
+	@Benchmark
+	public double scaleNew()
+	{
+		return ScaleCaller.prepare( scaler ).withValue( weight ).withTimes( x ).withOffset( y ).call();
+	}
+
+	@Benchmark
+	public double scaleReuse()
+	{
+		return ScaleCaller.reuse( scaler ).withValue( weight ).withTimes( x ).withOffset( y ).call();
+	}
+
+	@Benchmark
+	public double scaleNewEscaping()
+	{
+		return call( ScaleCaller.prepare( scaler ).withValue( weight ) );
+	}
+
+	@Benchmark
+	public double scaleReuseEscaping()
+	{
+		return call( ScaleCaller.reuse( scaler ).withValue( weight ) );
+	}
+
+	@Benchmark
+	public double scaleDirect()
+	{
+		return scaler.scale( weight, x, y );
+	}
+
+	@CompilerControl( CompilerControl.Mode.DONT_INLINE )
+	private ReusableTargets.Point build( PointBuilder.OptionalParameters builder )
+	{
+		return builder.withLabel( label ).withWeight( weight ).build();
+	}
+
+	@CompilerControl( CompilerControl.Mode.DONT_INLINE )
+	private double call( ScaleCaller.OptionalParameters builder )
+	{
+		return builder.withTimes( x ).withOffset( y ).call();
+	}
+}
@@ -0,0 +1,183 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Ingests a generated CSV file of trades, either by splitting each line and binding the fields by name, or through
+ * the generated row binder, sequentially and on a parallel stream.
+ * 
+ * <p>
+ * The default file holds 10 million rows. The header lists the columns in a different order than the constructor
+ * parameters, with an extra column which is ignored.
+ * 
+ * <p>
+ * Usage : <code>RowBinderBenchmark [--rows 10000000] [--file trades.csv] [--keep] [--runs 3]</code>
+ */
+public class RowBinderBenchmark
+{
+	private final static String Header = "symbol,id,price,quantity,buy,timestamp,account,venue,comment,fees,flags";
+	private final static char Separator = ',';
+
+	private long rows = 10000000L;
+	private Path file;
+	private boolean keep;
+	private int runs = 3;
+
+	public static void main( String[] args ) throws Exception
+	{
+		RowBinderBenchmark benchmark = new RowBinderBenchmark();
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--rows":
+					benchmark.rows = Long.parseLong( args[++i] );
+					break;
+				case "--file":
+					benchmark.file = Paths.get( args[++i] );
+					break;
+				case "--keep":
+					benchmark.keep = true;
+					break;
+				case "--runs":
+					benchmark.runs = Integer.parseInt( args[++i] );
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+
+		if( benchmark.file == null )
+			benchmark.file = Files.createTempFile( "row-binder-benchmark", ".csv" );
+
+		try
+		{
+			benchmark.run();
+		}
+		finally
+		{
+			if( !benchmark.keep )
+				Files.deleteIfExists( benchmark.file );
+		}
+	}
+
+	private void run() throws IOException
+	{
+		long writeStart = System.nanoTime();
+		write();
+		long writeNanos = System.nanoTime() - writeStart;
+
+		System.out.println( "{" );
+		System.out.println( "  \"rows\": " + rows + "," );
+		System.out.println( "  \"fileBytes\": " + Files.size( file ) + "," );
+		System.out.println( "  \"writeNanos\": " + writeNanos + "," );
+		for( int run = 0; run < runs; run++ )
+		{
+			System.out.println( "  \"splitAndBindNanos" + run + "\": " + splitAndBind() + "," );
+			System.out.println( "  \"rowBinderNanos" + run + "\": " + rowBinder() + "," );
+			System.out.println( "  \"parallelRowBinderNanos" + run + "\": " + parallelRowBinder() + (run < runs - 1 ? "," : "") );
+		}
+		System.out.println( "}" );
+	}
+
+	private void write() throws IOException
+	{
+		try( BufferedWriter writer = Files.newBufferedWriter( file, StandardCharsets.UTF_8 ) )
+		{
+			writer.write( Header );
+			writer.newLine();
+			StringBuilder line = new StringBuilder();
+			for( long row = 0; row < rows; row++ )
+			{
+				line.setLength( 0 );
+				line.append( "SYM" ).append( row % 500 ).append( Separator );
+				line.append( row ).append( Separator );
+				line.append( 100 + (row % 5000) / 100.0 ).append( Separator );
+				line.append( row % 300 ).append( Separator );
+				line.append( row % 2 == 0 ).append( Separator );
+				line.append( 1500000000000L + row ).append( Separator );
+				line.append( row % 7 == 0 ? "" : "ACC" + row % 1000 ).append( Separator );
+				line.append( row % 12 ).append( Separator );
+				line.append( "none" ).append( Separator );
+				line.append( (row % 100) / 10.0 ).append( Separator );
+				line.append( row % 16 );
+				writer.append( line );
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Splits each line and looks each field up by header name, as an ingestion without row binder does
+	 */
+	private long splitAndBind() throws IOException
+	{
+		long start = System.nanoTime();
+		long quantity = 0;
+		try( BufferedReader reader = Files.newBufferedReader( file, StandardCharsets.UTF_8 ) )
+		{
+			String[] header = reader.readLine().split( String.valueOf( Separator ) );
+			Map<String, Object> values = new HashMap<>();
+			String line;
+			while( (line = reader.readLine()) != null )
+			{
+				String[] fields = line.split( String.valueOf( Separator ), -1 );
+				values.clear();
+				for( int i = 0; i < header.length; i++ )
+				{
+					if( !"comment".equals( header[i] ) && !fields[i].isEmpty() )
+						values.put( header[i], fields[i] );
+				}
+				quantity += TradeBuilder.fromMap( values ).build().getQuantity();
+			}
+		}
+		return check( start, quantity );
+	}
+
+	private long rowBinder() throws IOException
+	{
+		long start = System.nanoTime();
+		long quantity = 0;
+		try( BufferedReader reader = Files.newBufferedReader( file, StandardCharsets.UTF_8 ) )
+		{
+			TradeBuilder.RowBinder binder = TradeBuilder.RowBinder.forHeaderLine( reader.readLine(), Separator );
+			String line;
+			while( (line = reader.readLine()) != null )
+				quantity += binder.bind( line, Separator ).getQuantity();
+		}
+		return check( start, quantity );
+	}
+
+	private long parallelRowBinder() throws IOException
+	{
+		long start = System.nanoTime();
+		long quantity;
+		try( Stream<String> lines = Files.lines( file, StandardCharsets.UTF_8 ) )
+		{
+			TradeBuilder.RowBinder binder = TradeBuilder.RowBinder.forHeaderLine( Header, Separator );
+			// skipping the header on an ordered parallel stream would serialize it, the header line is filtered instead
+			quantity = binder.map( lines.parallel().filter( line -> !Header.equals( line ) ), Separator ).mapToLong( Trade::getQuantity ).sum();
+		}
+		return check( start, quantity );
+	}
+
+	private long check( long start, long quantity )
+	{
+		long elapsed = System.nanoTime() - start;
+		long expected = 0;
+		for( long row = 0; row < rows; row++ )
+			expected += row % 300;
+		if( quantity != expected )
+			throw new IllegalStateException( "Read " + quantity + " instead of " + expected );
+		return elapsed;
+	}
+}
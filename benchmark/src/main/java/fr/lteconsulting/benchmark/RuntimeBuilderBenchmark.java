@@ -0,0 +1,161 @@
+package fr.lteconsulting.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark comparing the generated builders of {@link RuntimeTargets} with the direct calls they wrap. Each
+ * <code>xxxBuilder</code> benchmark has a <code>xxxDirect</code> counterpart, the difference of their allocations per
+ * operation (<code>-prof gc</code>) being the cost of the builder when the JIT could not scalar replace it.
+ * 
+ * <p>
+ * The inputs are read from non final fields, so that the JIT cannot fold the built objects into constants.
+ * 
+ * <p>
+ * Usage : <code>mvn compile exec:exec -Dexec.executable=java -Dexec.args="-cp %classpath org.openjdk.jmh.Main RuntimeBuilderBenchmark -prof gc"</code>,
+ * or {@link AllocationCheck} to fail when a builder allocates more than its direct call.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class RuntimeBuilderBenchmark
+{
+	String name = "widget";
+	int value = 42;
+	long id = 1234567890123L;
+	double price = 9.99;
+	float ratio = 0.5f;
+	boolean valid = true;
+	RuntimeTargets.Pricer pricer = new RuntimeTargets.Pricer( 1.2 );
+
+	@Benchmark
+	public RuntimeTargets.AllMandatory allMandatoryBuilder()
+	{
+		return AllMandatoryBuilder.withName( name ).withQuantity( value ).withPrice( price ).build();
+	}
+
+	@Benchmark
+	public RuntimeTargets.AllMandatory allMandatoryDirect()
+	{
+		return new RuntimeTargets.AllMandatory( name, value, price );
+	}
+
+	@Benchmark
+	public RuntimeTargets.AllOptional allOptionalBuilder()
+	{
+		return AllOptionalBuilder.prepare().withName( name ).withQuantity( value ).withPrice( price ).build();
+	}
+
+	@Benchmark
+	public RuntimeTargets.AllOptional allOptionalDirect()
+	{
+		return new RuntimeTargets.AllOptional( name, value, price );
+	}
+
+	@Benchmark
+	public RuntimeTargets.PrimitiveHeavy primitiveHeavyBuilder()
+	{
+		return PrimitiveHeavyBuilder.withId( id )
+				.withCount( value )
+				.withTotal( id + value )
+				.withAverage( price )
+				.withRatio( ratio )
+				.withCode( (short) value )
+				.withFlags( (byte) value )
+				.withGrade( 'A' )
+				.withValid( valid )
+				.build();
+	}
+
+	@Benchmark
+	public RuntimeTargets.PrimitiveHeavy primitiveHeavyDirect()
+	{
+		return new RuntimeTargets.PrimitiveHeavy( id, value, id + value, price, ratio, (short) value, (byte) value, 'A', valid );
+	}
+
+	@Benchmark
+	public RuntimeTargets.Wide wideBuilder()
+	{
+		return WideBuilder.withP0( value )
+				.withP1( value + 1 )
+				.withP2( value + 2 )
+				.withP3( value + 3 )
+				.withP4( value + 4 )
+				.withP5( value + 5 )
+				.withP6( value + 6 )
+				.withP7( value + 7 )
+				.withP8( value + 8 )
+				.withP9( value + 9 )
+				.withP10( value + 10 )
+				.withP11( value + 11 )
+				.withP12( value + 12 )
+				.withP13( value + 13 )
+				.withP14( value + 14 )
+				.withP15( value + 15 )
+				.withP16( value + 16 )
+				.withP17( value + 17 )
+				.withP18( value + 18 )
+				.withP19( value + 19 )
+				.withP20( value + 20 )
+				.withP21( value + 21 )
+				.withP22( value + 22 )
+				.withP23( value + 23 )
+				.withP24( value + 24 )
+				.withP25( value + 25 )
+				.withP26( value + 26 )
+				.withP27( value + 27 )
+				.withP28( value + 28 )
+				.withP29( value + 29 )
+				.withP30( value + 30 )
+				.withP31( value + 31 )
+				.withP32( value + 32 )
+				.withP33( value + 33 )
+				.withP34( value + 34 )
+				.withP35( value + 35 )
+				.withP36( value + 36 )
+				.withP37( value + 37 )
+				.withP38( value + 38 )
+				.withP39( value + 39 )
+				.withP40( value + 40 )
+				.withP41( value + 41 )
+				.withP42( value + 42 )
+				.withP43( value + 43 )
+				.withP44( value + 44 )
+				.withP45( value + 45 )
+				.withP46( value + 46 )
+				.withP47( value + 47 )
+				.withP48( value + 48 )
+				.withP49( value + 49 )
+				.build();
+	}
+
+	@Benchmark
+	public RuntimeTargets.Wide wideDirect()
+	{
+		return new RuntimeTargets.Wide( value, value + 1, value + 2, value + 3, value + 4, value + 5, value + 6, value + 7, value + 8, value + 9, value + 10, value + 11, value + 12, value + 13, value + 14, value + 15, value + 16, value + 17, value + 18, value + 19, value + 20, value + 21, value + 22, value + 23, value + 24, value + 25, value + 26, value + 27, value + 28, value + 29, value + 30, value + 31, value + 32, value + 33, value + 34, value + 35, value + 36, value + 37, value + 38, value + 39, value + 40, value + 41, value + 42, value + 43, value + 44, value + 45, value + 46, value + 47, value + 48, value + 49 );
+	}
+
+	@Benchmark
+	public double callerBuilder()
+	{
+		return PriceCaller.prepare( pricer ).withBase( price ).withQuantity( value ).withDiscount( ratio ).call();
+	}
+
+	@Benchmark
+	public double callerDirect()
+	{
+		return pricer.price( price, value, ratio );
+	}
+}
@@ -0,0 +1,196 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Targets of the runtime builder benchmark, covering the shapes of builders : only mandatory parameters, only
+ * optional ones, many primitives, a wide constructor and an instance method caller
+ */
+public class RuntimeTargets
+{
+	public static class AllMandatory
+	{
+		final String name;
+		final int quantity;
+		final double price;
+
+		@UseBuilderGenerator
+		public AllMandatory( @Mandatory String name, @Mandatory int quantity, @Mandatory double price )
+		{
+			this.name = name;
+			this.quantity = quantity;
+			this.price = price;
+		}
+	}
+
+	public static class AllOptional
+	{
+		final String name;
+		final int quantity;
+		final double price;
+
+		@UseBuilderGenerator
+		public AllOptional( String name, int quantity, double price )
+		{
+			this.name = name;
+			this.quantity = quantity;
+			this.price = price;
+		}
+	}
+
+	public static class PrimitiveHeavy
+	{
+		final long id;
+		final int count;
+		final long total;
+		final double average;
+		final float ratio;
+		final short code;
+		final byte flags;
+		final char grade;
+		final boolean valid;
+
+		@UseBuilderGenerator
+		public PrimitiveHeavy( @Mandatory long id, int count, long total, double average, float ratio, short code, byte flags, char grade, boolean valid )
+		{
+			this.id = id;
+			this.count = count;
+			this.total = total;
+			this.average = average;
+			this.ratio = ratio;
+			this.code = code;
+			this.flags = flags;
+			this.grade = grade;
+			this.valid = valid;
+		}
+	}
+
+	/**
+	 * 50 parameters, the first 10 being mandatory
+	 */
+	public static class Wide
+	{
+		final int p0;
+		final int p1;
+		final int p2;
+		final int p3;
+		final int p4;
+		final int p5;
+		final int p6;
+		final int p7;
+		final int p8;
+		final int p9;
+		final int p10;
+		final int p11;
+		final int p12;
+		final int p13;
+		final int p14;
+		final int p15;
+		final int p16;
+		final int p17;
+		final int p18;
+		final int p19;
+		final int p20;
+		final int p21;
+		final int p22;
+		final int p23;
+		final int p24;
+		final int p25;
+		final int p26;
+		final int p27;
+		final int p28;
+		final int p29;
+		final int p30;
+		final int p31;
+		final int p32;
+		final int p33;
+		final int p34;
+		final int p35;
+		final int p36;
+		final int p37;
+		final int p38;
+		final int p39;
+		final int p40;
+		final int p41;
+		final int p42;
+		final int p43;
+		final int p44;
+		final int p45;
+		final int p46;
+		final int p47;
+		final int p48;
+		final int p49;
+
+		@UseBuilderGenerator
+		public Wide( @Mandatory int p0, @Mandatory int p1, @Mandatory int p2, @Mandatory int p3, @Mandatory int p4, @Mandatory int p5, @Mandatory int p6, @Mandatory int p7, @Mandatory int p8, @Mandatory int p9, int p10, int p11, int p12, int p13, int p14, int p15, int p16, int p17, int p18, int p19, int p20, int p21, int p22, int p23, int p24, int p25, int p26, int p27, int p28, int p29, int p30, int p31, int p32, int p33, int p34, int p35, int p36, int p37, int p38, int p39, int p40, int p41, int p42, int p43, int p44, int p45, int p46, int p47, int p48, int p49 )
+		{
+			this.p0 = p0;
+			this.p1 = p1;
+			this.p2 = p2;
+			this.p3 = p3;
+			this.p4 = p4;
+			this.p5 = p5;
+			this.p6 = p6;
+			this.p7 = p7;
+			this.p8 = p8;
+			this.p9 = p9;
+			this.p10 = p10;
+			this.p11 = p11;
+			this.p12 = p12;
+			this.p13 = p13;
+			this.p14 = p14;
+			this.p15 = p15;
+			this.p16 = p16;
+			this.p17 = p17;
+			this.p18 = p18;
+			this.p19 = p19;
+			this.p20 = p20;
+			this.p21 = p21;
+			this.p22 = p22;
+			this.p23 = p23;
+			this.p24 = p24;
+			this.p25 = p25;
+			this.p26 = p26;
+			this.p27 = p27;
+			this.p28 = p28;
+			this.p29 = p29;
+			this.p30 = p30;
+			this.p31 = p31;
+			this.p32 = p32;
+			this.p33 = p33;
+			this.p34 = p34;
+			this.p35 = p35;
+			this.p36 = p36;
+			this.p37 = p37;
+			this.p38 = p38;
+			this.p39 = p39;
+			this.p40 = p40;
+			this.p41 = p41;
+			this.p42 = p42;
+			this.p43 = p43;
+			this.p44 = p44;
+			this.p45 = p45;
+			this.p46 = p46;
+			this.p47 = p47;
+			this.p48 = p48;
+			this.p49 = p49;
+		}
+	}
+
+	public static class Pricer
+	{
+		final double rate;
+
+		public Pricer( double rate )
+		{
+			this.rate = rate;
+		}
+
+		@UseBuilderGenerator
+		public double price( @Mandatory double base, int quantity, double discount )
+		{
+			return base * quantity * rate - discount;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Payload of the binding benchmark, bound by the generated builder
+ */
+public class Settings
+{
+	private final String host;
+	private final int port;
+	private final int timeout;
+	private final boolean secure;
+	private final long maxSize;
+	private final String user;
+
+	@UseBuilderGenerator( binding = true )
+	public Settings( @Mandatory String host, @Mandatory int port, int timeout, boolean secure, long maxSize, String user )
+	{
+		this.host = host;
+		this.port = port;
+		this.timeout = timeout;
+		this.secure = secure;
+		this.maxSize = maxSize;
+		this.user = user;
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public int getPort()
+	{
+		return port;
+	}
+
+	public int getTimeout()
+	{
+		return timeout;
+	}
+
+	public boolean isSecure()
+	{
+		return secure;
+	}
+
+	public long getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public String getUser()
+	{
+		return user;
+	}
+}
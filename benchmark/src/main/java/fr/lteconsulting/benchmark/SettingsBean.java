@@ -0,0 +1,74 @@
+package fr.lteconsulting.benchmark;
+
+/**
+ * Payload of the binding benchmark, bound by reflection on its setters
+ */
+public class SettingsBean
+{
+	private String host;
+	private int port;
+	private int timeout;
+	private boolean secure;
+	private long maxSize;
+	private String user;
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public void setHost( String host )
+	{
+		this.host = host;
+	}
+
+	public int getPort()
+	{
+		return port;
+	}
+
+	public void setPort( int port )
+	{
+		this.port = port;
+	}
+
+	public int getTimeout()
+	{
+		return timeout;
+	}
+
+	public void setTimeout( int timeout )
+	{
+		this.timeout = timeout;
+	}
+
+	public boolean isSecure()
+	{
+		return secure;
+	}
+
+	public void setSecure( boolean secure )
+	{
+		this.secure = secure;
+	}
+
+	public long getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public void setMaxSize( long maxSize )
+	{
+		this.maxSize = maxSize;
+	}
+
+	public String getUser()
+	{
+		return user;
+	}
+
+	public void setUser( String user )
+	{
+		this.user = user;
+	}
+}
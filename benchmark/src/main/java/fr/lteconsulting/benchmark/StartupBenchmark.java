@@ -0,0 +1,135 @@
+package fr.lteconsulting.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import fr.lteconsulting.UseBuilderGeneratorProcessor;
+
+/**
+ * Compares the class loading cost of the default and compact builders.
+ * 
+ * <p>
+ * The same synthetic classes are compiled once with each kind of builder, then a fresh JVM builds one instance of each
+ * class and reports the time taken, the number of loaded classes and the metaspace used.
+ * 
+ * <p>
+ * Usage : <code>StartupBenchmark [--elements 1000] [--parameters 10] [--runs 5]</code>
+ */
+public class StartupBenchmark
+{
+	private int elements = 1000;
+	private int parameters = 10;
+	private int runs = 5;
+
+	public static void main( String[] args ) throws Exception
+	{
+		StartupBenchmark benchmark = new StartupBenchmark();
+		for( int i = 0; i < args.length; i++ )
+		{
+			switch( args[i] )
+			{
+				case "--elements":
+					benchmark.elements = Integer.parseInt( args[++i] );
+					break;
+				case "--parameters":
+					benchmark.parameters = Integer.parseInt( args[++i] );
+					break;
+				case "--runs":
+					benchmark.runs = Integer.parseInt( args[++i] );
+					break;
+				default:
+					throw new IllegalArgumentException( "Unknown argument " + args[i] );
+			}
+		}
+
+		System.out.println( "{" );
+		System.out.println( "  \"elements\": " + benchmark.elements + "," );
+		System.out.println( "  \"parameters\": " + benchmark.parameters + "," );
+		System.out.println( "  \"default\": " + benchmark.run( false ) + "," );
+		System.out.println( "  \"compact\": " + benchmark.run( true ) );
+		System.out.println( "}" );
+	}
+
+	private String run( boolean compact ) throws IOException, InterruptedException
+	{
+		Path classes = Files.createTempDirectory( "startup-benchmark" );
+		compile( compact, classes );
+
+		StringBuilder results = new StringBuilder( "[" );
+		for( int i = 0; i < runs; i++ )
+		{
+			if( i > 0 )
+				results.append( ", " );
+			results.append( probe( classes ) );
+		}
+		return results.append( "]" ).toString();
+	}
+
+	private void compile( boolean compact, Path output ) throws IOException
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if( compiler == null )
+			throw new IllegalStateException( "No system Java compiler, the benchmark must run on a JDK" );
+
+		List<JavaFileObject> sources = new ArrayList<>( SyntheticSources.generate( elements, parameters, compact ? "compact = true" : "" ) );
+		sources.add( SyntheticSources.generateLoader( elements, parameters, compact ) );
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try( StandardJavaFileManager fileManager = compiler.getStandardFileManager( null, null, StandardCharsets.UTF_8 ) )
+		{
+			List<String> options = Arrays.asList( "-classpath", getLocation( UseBuilderGeneratorProcessor.class ), "-d", output.toString(), "-s", output.toString() );
+			CompilationTask task = compiler.getTask( null, fileManager, diagnostics, options, null, sources );
+			task.setProcessors( Arrays.asList( new UseBuilderGeneratorProcessor() ) );
+			if( !task.call() )
+				throw new IllegalStateException( "Compilation of the synthetic sources failed : " + diagnostics.getDiagnostics() );
+		}
+	}
+
+	private String probe( Path classes ) throws IOException, InterruptedException
+	{
+		String java = Paths.get( System.getProperty( "java.home" ), "bin", "java" ).toString();
+		String classpath = classes.toString() + File.pathSeparator + getLocation( StartupProbe.class );
+
+		Process process = new ProcessBuilder( java, "-cp", classpath, StartupProbe.class.getName(), "synthetic.LoadAll" ).redirectErrorStream( true ).start();
+		StringBuilder output = new StringBuilder();
+		try( BufferedReader reader = new BufferedReader( new InputStreamReader( process.getInputStream(), StandardCharsets.UTF_8 ) ) )
+		{
+			String line;
+			while( (line = reader.readLine()) != null )
+				output.append( line );
+		}
+		if( process.waitFor() != 0 )
+			throw new IllegalStateException( "Startup probe failed : " + output );
+
+		return output.toString();
+	}
+
+	private static String getLocation( Class<?> clazz )
+	{
+		try
+		{
+			return Paths.get( clazz.getProtectionDomain().getCodeSource().getLocation().toURI() ).toString();
+		}
+		catch( URISyntaxException e )
+		{
+			throw new IllegalStateException( e );
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package fr.lteconsulting.benchmark;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+
+/**
+ * Run in a fresh JVM by {@link StartupBenchmark}, loads and runs the class given as argument and prints as JSON the
+ * time, the number of loaded classes and the metaspace used by this.
+ */
+public class StartupProbe
+{
+	public static void main( String[] args ) throws Exception
+	{
+		ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+		long metaspaceBefore = getMetaspaceUsed();
+		long classesBefore = classLoading.getTotalLoadedClassCount();
+		long start = System.nanoTime();
+
+		Class.forName( args[0] ).getMethod( "run" ).invoke( null );
+
+		long nanos = System.nanoTime() - start;
+		long classes = classLoading.getTotalLoadedClassCount() - classesBefore;
+		long metaspace = getMetaspaceUsed() - metaspaceBefore;
+
+		System.out.println( "{\"nanos\":" + nanos + ",\"loadedClasses\":" + classes + ",\"metaspaceBytes\":" + metaspace + "}" );
+	}
+
+	private static long getMetaspaceUsed()
+	{
+		for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+		{
+			if( "Metaspace".equals( pool.getName() ) )
+				return pool.getUsage().getUsed();
+		}
+		return -1;
+	}
+}
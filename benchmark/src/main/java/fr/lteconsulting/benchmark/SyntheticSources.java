@@ -0,0 +1,143 @@
+package fr.lteconsulting.benchmark;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Generates synthetic classes having a constructor annotated with <code>@UseBuilderGenerator</code>.
+ * 
+ * <p>
+ * Parameter types are cycled through a mix of primitive, String and generic types, and every fourth parameter is
+ * mandatory.
+ */
+public class SyntheticSources
+{
+	private final static String[] ParameterTypes = { "int", "String", "long", "double", "boolean", "java.util.List<String>", "char", "Integer" };
+
+	private final static String[] ParameterValues = { "0", "\"\"", "0L", "0d", "false", "null", "'a'", "null" };
+
+	private final static int ClassesPerPackage = 1000;
+
+	private final static int BuildsPerLoaderMethod = 50;
+
+	public static List<JavaFileObject> generate( int elements, int parameters )
+	{
+		return generate( elements, parameters, "" );
+	}
+
+	/**
+	 * @param annotationAttributes
+	 *            attributes of the <code>@UseBuilderGenerator</code> annotations, for example <code>compact = true</code>
+	 */
+	public static List<JavaFileObject> generate( int elements, int parameters, String annotationAttributes )
+	{
+		List<JavaFileObject> sources = new ArrayList<>( elements );
+		for( int i = 0; i < elements; i++ )
+			sources.add( new SourceFile( getPackageName( i ).replace( '.', '/' ) + "/" + getClassName( i ) + ".java", generateClass( getPackageName( i ), getClassName( i ), parameters, annotationAttributes ) ) );
+		return sources;
+	}
+
+	/**
+	 * Generates the <code>synthetic.LoadAll</code> class, whose static <code>run()</code> method builds one instance of
+	 * each synthetic class with its generated builder.
+	 */
+	public static JavaFileObject generateLoader( int elements, int parameters, boolean compact )
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append( "package synthetic;\n\n" );
+		sb.append( "public class LoadAll {\n" );
+		sb.append( "    public static void run() {\n" );
+		for( int m = 0; m * BuildsPerLoaderMethod < elements; m++ )
+			sb.append( "        run" ).append( m ).append( "();\n" );
+		sb.append( "    }\n" );
+
+		for( int i = 0; i < elements; i++ )
+		{
+			if( i % BuildsPerLoaderMethod == 0 )
+			{
+				if( i > 0 )
+					sb.append( "    }\n" );
+				sb.append( "\n    private static void run" ).append( i / BuildsPerLoaderMethod ).append( "() {\n" );
+			}
+
+			sb.append( "        " ).append( getPackageName( i ) ).append( '.' ).append( getClassName( i ) ).append( "Builder" );
+			if( compact )
+			{
+				sb.append( ".prepare(" );
+				for( int p = 0; p < parameters; p += 4 )
+					sb.append( p > 0 ? ", " : "" ).append( ParameterValues[p % ParameterValues.length] );
+				sb.append( ")" );
+			}
+			else
+			{
+				if( parameters == 0 )
+					sb.append( ".prepare()" );
+				for( int p = 0; p < parameters; p += 4 )
+					sb.append( ".withParameter" ).append( p ).append( "(" ).append( ParameterValues[p % ParameterValues.length] ).append( ")" );
+			}
+			sb.append( ".build();\n" );
+		}
+		if( elements > 0 )
+			sb.append( "    }\n" );
+		sb.append( "}\n" );
+
+		return new SourceFile( "synthetic/LoadAll.java", sb.toString() );
+	}
+
+	private static String getPackageName( int element )
+	{
+		return "synthetic.p" + (element / ClassesPerPackage);
+	}
+
+	private static String getClassName( int element )
+	{
+		return "Synthetic" + element;
+	}
+
+	static String generateClass( String packageName, String className, int parameters, String annotationAttributes )
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append( "package " ).append( packageName ).append( ";\n\n" );
+		sb.append( "import fr.lteconsulting.Mandatory;\n" );
+		sb.append( "import fr.lteconsulting.UseBuilderGenerator;\n\n" );
+		sb.append( "public class " ).append( className ).append( " {\n" );
+		sb.append( "    @UseBuilderGenerator" );
+		if( !annotationAttributes.isEmpty() )
+			sb.append( "(" ).append( annotationAttributes ).append( ")" );
+		sb.append( "\n" );
+		sb.append( "    public " ).append( className ).append( "(" );
+		for( int p = 0; p < parameters; p++ )
+		{
+			if( p > 0 )
+				sb.append( ", " );
+			if( p % 4 == 0 )
+				sb.append( "@Mandatory " );
+			sb.append( ParameterTypes[p % ParameterTypes.length] ).append( " parameter" ).append( p );
+		}
+		sb.append( ") {\n" );
+		sb.append( "    }\n" );
+		sb.append( "}\n" );
+		return sb.toString();
+	}
+
+	private static class SourceFile extends SimpleJavaFileObject
+	{
+		private final String content;
+
+		SourceFile( String path, String content )
+		{
+			super( URI.create( "memory:///" + path ), Kind.SOURCE );
+			this.content = content;
+		}
+
+		@Override
+		public CharSequence getCharContent( boolean ignoreEncodingErrors )
+		{
+			return content;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Payload of the flyweight benchmark
+ */
+public class Tick
+{
+	private final long time;
+	private final int instrument;
+	private final double price;
+	private final int quantity;
+	private final boolean buy;
+
+	@UseBuilderGenerator( flyweight = true )
+	public Tick( long time, int instrument, double price, int quantity, boolean buy )
+	{
+		this.time = time;
+		this.instrument = instrument;
+		this.price = price;
+		this.quantity = quantity;
+		this.buy = buy;
+	}
+
+	public long getTime()
+	{
+		return time;
+	}
+
+	public int getInstrument()
+	{
+		return instrument;
+	}
+
+	public double getPrice()
+	{
+		return price;
+	}
+
+	public int getQuantity()
+	{
+		return quantity;
+	}
+
+	public boolean isBuy()
+	{
+		return buy;
+	}
+}
@@ -0,0 +1,86 @@
+package fr.lteconsulting.benchmark;
+
+import fr.lteconsulting.Mandatory;
+import fr.lteconsulting.UseBuilderGenerator;
+
+/**
+ * Payload of the row binder benchmark, one line of a CSV file of trades
+ */
+public class Trade
+{
+	private final long id;
+	private final String symbol;
+	private final String account;
+	private final int quantity;
+	private final double price;
+	private final boolean buy;
+	private final long timestamp;
+	private final int venue;
+	private final double fees;
+	private final short flags;
+
+	@UseBuilderGenerator( binding = true, rowBinder = true )
+	public Trade( @Mandatory long id, @Mandatory String symbol, String account, @Mandatory int quantity, @Mandatory double price, boolean buy, long timestamp, int venue, double fees, short flags )
+	{
+		this.id = id;
+		this.symbol = symbol;
+		this.account = account;
+		this.quantity = quantity;
+		this.price = price;
+		this.buy = buy;
+		this.timestamp = timestamp;
+		this.venue = venue;
+		this.fees = fees;
+		this.flags = flags;
+	}
+
+	public long getId()
+	{
+		return id;
+	}
+
+	public String getSymbol()
+	{
+		return symbol;
+	}
+
+	public String getAccount()
+	{
+		return account;
+	}
+
+	public int getQuantity()
+	{
+		return quantity;
+	}
+
+	public double getPrice()
+	{
+		return price;
+	}
+
+	public boolean isBuy()
+	{
+		return buy;
+	}
+
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	public int getVenue()
+	{
+		return venue;
+	}
+
+	public double getFees()
+	{
+		return fees;
+	}
+
+	public short getFlags()
+	{
+		return flags;
+	}
+}
@@ -15,7 +15,7 @@ public class ApiClass
 		Node right;
 		String operation;
 
-		@UseBuilderGenerator
+		@UseBuilderGenerator(codec = true, nestedConfigurers = true, terminalSetter = true)
 		public Operation( @Mandatory Node left, @Mandatory String operation, @Mandatory Node right )
 		{
 			this.left = left;
@@ -34,7 +34,7 @@ public class ApiClass
 	{
 		int value;
 
-		@UseBuilderGenerator
+		@UseBuilderGenerator(codec = true, flyweight = true, terminalSetter = true)
 		public Value( @Mandatory int value )
 		{
 			this.value = value;
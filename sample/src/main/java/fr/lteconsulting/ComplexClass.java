@@ -12,7 +12,7 @@ public class ComplexClass
 
 	private String e;
 
-	@UseBuilderGenerator(builderPackage = "fr.lteconsulting.builders")
+	@UseBuilderGenerator(builderPackage = "fr.lteconsulting.builders", withers = true)
 	public ComplexClass(@Mandatory String a, @Parameter(mandatory = true, name = "bonjour") String b,
 			@Mandatory String c, String d, @Mandatory String e)
 	{
@@ -23,13 +23,13 @@ public class ComplexClass
 		this.e = e;
 	}
 
-	@UseBuilderGenerator
+	@UseBuilderGenerator(memoize = 256)
 	public static String someMethode(@Parameter(mandatory = true, name = "withImportantNote") int a, int b)
 	{
 		return null;
 	}
 
-	@UseBuilderGenerator
+	@UseBuilderGenerator(bulk = true, async = true, batch = true, flyweight = true)
 	public Integer getValeur(int p1, int c2, @Mandatory int x, int y, int z, char toto)
 	{
 		return 5;
@@ -17,17 +17,105 @@ public class Demonstration
 
 		ComplexClassBuilder.prepare().withA( null ).bonjour( null ).withC( null ).withE( null ).build();
 
+		// copies of an instance with one value replaced
+		ComplexClass copy = ComplexClassBuilder.withD( instance, "another optional parameter" );
+		System.out.println( copy.getA() + ", " + copy.getD() );
+		System.out.println( ComplexClassBuilder.bonjour( copy, "madame" ).getB() + ", " + ComplexClassBuilder.from( copy ).withD( "rebuilt" ).build().getD() );
+
+		SomeMethodeCaller.prepare().withImportantNote( 52 ).call();
 		SomeMethodeCaller.prepare().withImportantNote( 52 ).call();
+		System.out.println( SomeMethodeCaller.cacheHits() + " hit, " + SomeMethodeCaller.cacheMisses() + " miss" );
 
 		GetValeurCaller.prepare( instance ).withX( 12 ).withToto( 'a' ).call();
 
-		// TODO : maybe since withValue() is a terminal method here, we may directly return the built instance instead of calling build()
+		for( int i = 0; i < 3; i++ )
+			System.out.println( ExampleBuilder.reuse().withA( "a" + i ).withB( "b" ).withC( "c" ).build() );
+
+		java.util.Map<String, Object> configuration = new java.util.HashMap<>();
+		configuration.put( "a", "from" );
+		configuration.put( "b", "map" );
+		System.out.println( ExampleBuilder.fromMap( configuration ).bind( "d", "bound" ).build() );
+		try
+		{
+			ExampleBuilder.fromMap( java.util.Collections.singletonMap( "c", "c" ) );
+		}
+		catch( IllegalArgumentException e )
+		{
+			System.out.println( e.getMessage() );
+		}
+
+		ExampleBuilder.RowBinder rows = ExampleBuilder.RowBinder.forHeaderLine( "b;ignored;a;d", ';' );
+		rows.map( java.util.stream.Stream.of( "B1;x;A1;D1", "B2;y;A2;" ), ';' ).forEach( System.out::println );
+
+		// builders found without reflection, through the registry generated with -Abuildergen.registry
+		fr.lteconsulting.registry.BuilderEntry entry = fr.lteconsulting.registry.BuilderRegistries.find( SuperRelou.class );
+		System.out.println( entry + " " + ((SuperRelouBuilder) entry.prepare( "Registry", "Found" )).build().getNom() );
+		System.out.println( fr.lteconsulting.registry.BuilderRegistries.find( "fr.lteconsulting.ComplexClass#getValeur" ).getBuilderClass().getSimpleName() );
+
+		SuperRelou superRelou = SuperRelouBuilder.prepare( "Tournier", "Arnaud" ).withNationalite( "fr" ).build();
+		System.out.println( superRelou.getNom() + " " + superRelou.getNationalite() );
+
+		SuperRelou[] people = new SuperRelou[3];
+		SuperRelouBuilder.buildAll( people.length, people, new String[] { "A", "B", "C" }, new String[] { "a", "b", "c" }, null, null, null, null );
+		System.out.println( people[2].getNom() + " " + people[2].getPrenom() );
+
+		Integer[] valeurs = new Integer[2];
+		GetValeurCaller.callAll( java.util.concurrent.ForkJoinPool.commonPool(), valeurs.length, new ComplexClass[] { instance, instance }, valeurs, null, null, new int[] { 1, 2 }, null, null, null );
+		System.out.println( valeurs[0] + valeurs[1] );
+
+		Integer asyncValeur = GetValeurCaller.prepare( instance ).withX( 3 ).callAsync( java.util.concurrent.ForkJoinPool.commonPool() ).join();
+		System.out.println( asyncValeur );
 
+		GetValeurCaller.Batch batch = new GetValeurCaller.Batch();
+		for( int i = 0; i < 3; i++ )
+			GetValeurCaller.prepare( instance ).withX( i ).addTo( batch );
+		System.out.println( batch.run( java.util.concurrent.ForkJoinPool.commonPool() ) );
+
+		PeteBurne peteBurne = PeteBurneBuilder.withA( "a" ).withB( "b" ).call();
+		System.out.println( peteBurne.getC() + ", " + peteBurne.getF() );
+		peteBurne = PeteBurneBuilder.withA( "a" ).withB( "b" ).withC( "c" ).call();
+		System.out.println( peteBurne.getC() + ", " + peteBurne.getF() );
+
+		PeteBurneBuilder.Prototype prototype = PeteBurneBuilder.withA( "a" ).withB( "b" ).withD( "d" ).freeze();
+		peteBurne = prototype.derive().withE( "e" ).call();
+		System.out.println( peteBurne.getC() + ", " + peteBurne.getD() + ", " + peteBurne.getE() );
+		peteBurne = prototype.callAsync( java.util.concurrent.ForkJoinPool.commonPool() ).join();
+		System.out.println( peteBurne.getD() );
+
+		// the constructor is only called on the first access, later changes of the builder are not seen
+		PeteBurneBuilder.OptionalParameters lazyBuilder = PeteBurneBuilder.withA( "a" ).withB( "b" ).withE( "lazy e" );
+		java.util.function.Supplier<PeteBurne> lazyPeteBurne = lazyBuilder.callLazy();
+		lazyBuilder.withE( "changed e" );
+		System.out.println( lazyPeteBurne.get().getE() + ", " + (lazyPeteBurne.get() == lazyPeteBurne.get()) );
+
+		// withValue() and withRight() are terminal setters, they directly return the built instance
 		Operation op = OperationBuilder
-				.withLeft( ValueBuilder.withValue( 5 ).build() )
+				.withLeft( ValueBuilder.withValue( 5 ) )
 				.withOperation( "+" )
-				.withRight( ValueBuilder.withValue( 5 ).build() )
-				.build();
+				.withRight( ValueBuilder.withValue( 5 ) );
 		System.out.println( op.toString() );
+
+		// nested builders are configured in place
+		Operation tree = OperationBuilder
+				.withLeftValue( value -> value.withValue( 2 ) )
+				.withOperation( "*" )
+				.withRightOperation( right -> right.withLeftValue( value -> value.withValue( 3 ) ).withOperation( "+" ).withRight( ValueBuilder.withValue( 4 ) ) );
+		System.out.println( tree );
+
+		java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate( 256 );
+		OperationBuilder.Codec.write( buffer, op );
+		buffer.flip();
+		System.out.println( OperationBuilder.Codec.read( buffer ) );
+
+		java.nio.ByteBuffer records = java.nio.ByteBuffer.allocate( 10 * ValueBuilder.Flyweight.RECORD_SIZE );
+		for( int i = 0; i < 10; i++ )
+			ValueBuilder.Flyweight.append( records, i * i );
+		records.flip();
+		ValueBuilder.Flyweight flyweight = new ValueBuilder.Flyweight().wrap( records, 0 );
+		for( int i = 0; i < ValueBuilder.Flyweight.count( records ); i++ )
+		{
+			if( flyweight.moveTo( i ).getValue() > 60 )
+				System.out.println( flyweight.build() );
+		}
 	}
 }
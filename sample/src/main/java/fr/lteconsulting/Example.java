@@ -13,7 +13,7 @@ public class Example
 
 	private String d;
 
-	@UseBuilderGenerator
+	@UseBuilderGenerator(reusable = true, binding = true, rowBinder = true)
 	public Example(@Mandatory String a, @Mandatory String b, String c, String d)
 	{
 		super();
@@ -14,8 +14,9 @@ public class PeteBurne
 
 	private String f;
 
-	@UseBuilderGenerator(finalMethodName = "call")
-	public PeteBurne(@Mandatory String a, @Mandatory String b, String c, String d, String e, String f)
+	@UseBuilderGenerator(finalMethodName = "call", dispatchToOverloads = true, freezable = true, async = true, lazy = true)
+	public PeteBurne(@Mandatory String a, @Mandatory String b, String c, String d, String e,
+			@Parameter(defaultValue = "\"default f\"") String f)
 	{
 		this.a = a;
 		this.b = b;
@@ -25,6 +26,11 @@ public class PeteBurne
 		this.f = f;
 	}
 
+	public PeteBurne(String a, String b, String f)
+	{
+		this(a, b, "default c", "default d", "default e", f);
+	}
+
 	public String getA()
 	{
 		return a;
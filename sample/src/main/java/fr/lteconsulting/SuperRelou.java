@@ -17,7 +17,7 @@ public class SuperRelou
 
 	private String description;
 
-	@UseBuilderGenerator
+	@UseBuilderGenerator(compact = true, bulk = true)
 	public SuperRelou(@Mandatory String nom, @Mandatory String prenom, String adresse, String nationalite,
 			String cursus, String description)
 	{
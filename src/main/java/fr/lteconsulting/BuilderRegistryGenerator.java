@@ -0,0 +1,216 @@
+package fr.lteconsulting;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Collects the builders generated in all the rounds, and writes the class indexing them, enabled with the
+ * <code>-Abuildergen.registry=&lt;class name&gt;</code> option.
+ *
+ * <p>
+ * The registry is written in the first round which does not generate builders, so that it is itself compiled. It
+ * implements <code>fr.lteconsulting.registry.BuilderRegistry</code>, and is registered in
+ * <code>META-INF/services</code>. Since it depends on all the annotated elements, the processor stays an
+ * <i>aggregating</i> processor for Gradle, even with the isolating option.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+class BuilderRegistryGenerator
+{
+	final static String ServiceFile = "META-INF/services/fr.lteconsulting.registry.BuilderRegistry";
+
+	static class Entry
+	{
+		final String target;
+		final String builderClassFqn;
+		final List<String> prepareParameterTypes;
+		final Element originatingElement;
+
+		/**
+		 * @param prepareParameterTypes
+		 *            the erased types of the parameters of the <code>prepare</code> method
+		 */
+		Entry( String target, String builderClassFqn, List<String> prepareParameterTypes, Element originatingElement )
+		{
+			this.target = target;
+			this.builderClassFqn = builderClassFqn;
+			this.prepareParameterTypes = prepareParameterTypes;
+			this.originatingElement = originatingElement;
+		}
+	}
+
+	private final ProcessingEnvironment processingEnv;
+	private final String registryClassFqn;
+	private final Map<String, Entry> entries = new TreeMap<>();
+	private boolean written;
+	private boolean pending;
+
+	BuilderRegistryGenerator( ProcessingEnvironment processingEnv, String registryClassFqn )
+	{
+		this.processingEnv = processingEnv;
+		this.registryClassFqn = registryClassFqn;
+	}
+
+	void add( Entry entry )
+	{
+		if( written )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "The builder registry " + registryClassFqn + " has already been written, it cannot index this builder", entry.originatingElement );
+			return;
+		}
+
+		entries.put( entry.builderClassFqn, entry );
+		pending = true;
+	}
+
+	boolean isPending()
+	{
+		return pending;
+	}
+
+	String getPackageName()
+	{
+		int dot = registryClassFqn.lastIndexOf( '.' );
+		return dot < 0 ? "" : registryClassFqn.substring( 0, dot );
+	}
+
+	String getSimpleName()
+	{
+		return registryClassFqn.substring( registryClassFqn.lastIndexOf( '.' ) + 1 );
+	}
+
+	/**
+	 * Writes the registry class and the service file. Unlike the builders, the registry is always written, since it
+	 * is not referenced by any source and would not be compiled from the source path.
+	 */
+	void write()
+	{
+		pending = false;
+		written = true;
+
+		List<Element> originatingElements = new ArrayList<>();
+		for( Entry entry : entries.values() )
+			originatingElements.add( entry.originatingElement );
+		Element[] originating = originatingElements.toArray( new Element[originatingElements.size()] );
+
+		try
+		{
+			JavaFileObject jfo = processingEnv.getFiler().createSourceFile( registryClassFqn, originating );
+			try( Writer writer = new BufferedWriter( jfo.openWriter() ) )
+			{
+				generateRegistryClass( new CodeWriter( writer ) );
+			}
+
+			FileObject service = processingEnv.getFiler().createResource( StandardLocation.CLASS_OUTPUT, "", ServiceFile, originating );
+			// service files are always read as UTF-8
+			try( Writer writer = new OutputStreamWriter( service.openOutputStream(), StandardCharsets.UTF_8 ) )
+			{
+				writer.write( registryClassFqn );
+				writer.write( "\n" );
+			}
+
+			processingEnv.getMessager().printMessage( Kind.NOTE, "Builder registry generated: " + registryClassFqn + " (" + entries.size() + " builder(s))" );
+		}
+		catch( IOException | UncheckedIOException e )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Error generating the builder registry " + registryClassFqn + " : " + e );
+		}
+	}
+
+	private void generateRegistryClass( CodeWriter w )
+	{
+		if( !getPackageName().isEmpty() )
+		{
+			w.println( "package ", getPackageName(), ";" );
+			w.println();
+		}
+
+		w.beginBlock( "public final class ", getSimpleName(), " implements fr.lteconsulting.registry.BuilderRegistry" );
+		w.println( "private final java.util.List<fr.lteconsulting.registry.BuilderEntry> entries;" );
+		w.println( "private final java.util.Map<String, fr.lteconsulting.registry.BuilderEntry> targets = new java.util.HashMap<>(", String.valueOf( entries.size() * 2 ), ");" );
+		w.println();
+
+		w.beginBlock( "public ", getSimpleName(), "()" );
+		w.println( "fr.lteconsulting.registry.BuilderEntry[] array = {" );
+		int index = 0;
+		for( Entry entry : entries.values() )
+		{
+			w.print( "    new fr.lteconsulting.registry.BuilderEntry(this, ", String.valueOf( index++ ), ", \"", entry.target, "\", \"", entry.builderClassFqn, "\"" );
+			for( String type : entry.prepareParameterTypes )
+				w.print( ", \"", type, "\"" );
+			w.println( ")," );
+		}
+		w.println( "};" );
+		w.println( "entries = java.util.Collections.unmodifiableList(java.util.Arrays.asList(array));" );
+		w.beginBlock( "for (fr.lteconsulting.registry.BuilderEntry entry : array)" );
+		w.beginBlock( "if (!targets.containsKey(entry.getTarget()))" );
+		w.println( "targets.put(entry.getTarget(), entry);" );
+		w.endBlock();
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		w.println( "@Override" );
+		w.beginBlock( "public java.util.Collection<fr.lteconsulting.registry.BuilderEntry> getEntries()" );
+		w.println( "return entries;" );
+		w.endBlock();
+		w.println();
+
+		w.println( "@Override" );
+		w.beginBlock( "public fr.lteconsulting.registry.BuilderEntry find(String target)" );
+		w.println( "return targets.get(target);" );
+		w.endBlock();
+		w.println();
+
+		w.println( "@Override" );
+		w.beginBlock( "public Class<?> getBuilderClass(int index)" );
+		w.beginBlock( "switch (index)" );
+		index = 0;
+		for( Entry entry : entries.values() )
+		{
+			w.println( "case ", String.valueOf( index++ ), ":" );
+			w.println( "    return ", entry.builderClassFqn, ".class;" );
+		}
+		w.println( "default:" );
+		w.println( "    throw new IndexOutOfBoundsException(String.valueOf(index));" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		w.println( "@Override" );
+		w.println( "@SuppressWarnings(\"rawtypes\")" );
+		w.beginBlock( "public Object prepare(int index, Object... arguments)" );
+		w.beginBlock( "switch (index)" );
+		index = 0;
+		for( Entry entry : entries.values() )
+		{
+			w.println( "case ", String.valueOf( index++ ), ":" );
+			w.print( "    return ", entry.builderClassFqn, ".prepare(" );
+			for( int i = 0; i < entry.prepareParameterTypes.size(); i++ )
+				w.print( i > 0 ? ", " : "", "(", entry.prepareParameterTypes.get( i ), ") arguments[", String.valueOf( i ), "]" );
+			w.println( ");" );
+		}
+		w.println( "default:" );
+		w.println( "    throw new IndexOutOfBoundsException(String.valueOf(index));" );
+		w.endBlock();
+		w.endBlock();
+
+		w.endBlock();
+	}
+}
@@ -0,0 +1,118 @@
+package fr.lteconsulting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes indented source code lines directly to a {@link Writer}, without building intermediate strings.
+ *
+ * <p>
+ * Each line is written as the concatenation of its parts, indented by the current block depth. I/O errors are
+ * rethrown as {@link UncheckedIOException}.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+class CodeWriter
+{
+	private final static String Indentation = "    ";
+	private final static String LineSeparator = "\r\n";
+
+	private final Writer out;
+	private int indentation;
+	private boolean atLineStart = true;
+	private long length;
+
+	CodeWriter( Writer out )
+	{
+		this.out = out;
+	}
+
+	/**
+	 * Writes the parts on the current line
+	 */
+	CodeWriter print( String... parts )
+	{
+		if( atLineStart )
+		{
+			for( int i = 0; i < indentation; i++ )
+				write( Indentation );
+			atLineStart = false;
+		}
+
+		for( String part : parts )
+			write( part );
+
+		return this;
+	}
+
+	/**
+	 * Writes the parts and terminates the current line
+	 */
+	CodeWriter println( String... parts )
+	{
+		if( parts.length > 0 )
+			print( parts );
+
+		write( LineSeparator );
+		atLineStart = true;
+
+		return this;
+	}
+
+	/**
+	 * Writes the parts followed by an opening brace, and indents the next lines
+	 */
+	CodeWriter beginBlock( String... parts )
+	{
+		print( parts );
+		println( " {" );
+		indentation++;
+
+		return this;
+	}
+
+	/**
+	 * Closes the current block, the parts are written after the closing brace
+	 */
+	CodeWriter endBlock( String... parts )
+	{
+		indentation--;
+		print( "}" );
+		println( parts );
+
+		return this;
+	}
+
+	/**
+	 * Closes the current block and opens the next one on the same line, as in <code>} finally {</code>
+	 */
+	CodeWriter continueBlock( String... parts )
+	{
+		indentation--;
+		print( "} " );
+		return beginBlock( parts );
+	}
+
+	/**
+	 * Number of characters written so far
+	 */
+	long getLength()
+	{
+		return length;
+	}
+
+	private void write( String value )
+	{
+		try
+		{
+			out.write( value );
+			length += value.length();
+		}
+		catch( IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+}
@@ -8,7 +8,7 @@ import java.lang.annotation.Target;
 /**
  * Specifies that this constructor parameter is mandatory
  */
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 @Target(ElementType.PARAMETER)
 public @interface Mandatory
 {
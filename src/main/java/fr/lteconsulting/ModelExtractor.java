@@ -0,0 +1,324 @@
+package fr.lteconsulting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Reads the builder annotations through their mirrors into immutable models, and caches for a round what is resolved
+ * for the types declaring the annotated elements.
+ *
+ * <p>
+ * {@link Element#getAnnotation(Class)} creates a new proxy at each call, and each value read goes through reflection.
+ * Here the annotations of an element are read once, the values which are not given being taken from the defaults of
+ * the annotation types. The names of a type are shared by all its annotated members, and by the parameters of this
+ * type.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+class ModelExtractor
+{
+	/**
+	 * Values of the <code>@UseBuilderGenerator</code> annotation of a target
+	 */
+	static class TargetOptions
+	{
+		final String builderName;
+		final String builderPackage;
+		final String finalMethodName;
+		final boolean reusable;
+		final boolean compact;
+		final boolean dispatchToOverloads;
+		final boolean freezable;
+		final boolean bulk;
+		final boolean async;
+		final boolean batch;
+		final int memoize;
+		final long memoizeTtlMillis;
+		final boolean codec;
+		final int codecTag;
+		final boolean flyweight;
+		final boolean binding;
+		final boolean rowBinder;
+		final boolean nestedConfigurers;
+		final boolean terminalSetter;
+		final boolean withers;
+		final boolean lazy;
+
+		TargetOptions( Map<String, Object> values )
+		{
+			builderName = (String) values.get( "builderName" );
+			builderPackage = (String) values.get( "builderPackage" );
+			finalMethodName = (String) values.get( "finalMethodName" );
+			reusable = (Boolean) values.get( "reusable" );
+			compact = (Boolean) values.get( "compact" );
+			dispatchToOverloads = (Boolean) values.get( "dispatchToOverloads" );
+			freezable = (Boolean) values.get( "freezable" );
+			bulk = (Boolean) values.get( "bulk" );
+			async = (Boolean) values.get( "async" );
+			batch = (Boolean) values.get( "batch" );
+			memoize = ((Number) values.get( "memoize" )).intValue();
+			memoizeTtlMillis = ((Number) values.get( "memoizeTtlMillis" )).longValue();
+			codec = (Boolean) values.get( "codec" );
+			codecTag = ((Number) values.get( "codecTag" )).intValue();
+			flyweight = (Boolean) values.get( "flyweight" );
+			binding = (Boolean) values.get( "binding" );
+			rowBinder = (Boolean) values.get( "rowBinder" );
+			nestedConfigurers = (Boolean) values.get( "nestedConfigurers" );
+			terminalSetter = (Boolean) values.get( "terminalSetter" );
+			withers = (Boolean) values.get( "withers" );
+			lazy = (Boolean) values.get( "lazy" );
+		}
+	}
+
+	/**
+	 * What the <code>@Mandatory</code> and <code>@Parameter</code> annotations of a parameter specify
+	 */
+	static class ParameterOptions
+	{
+		final boolean mandatory;
+		final String name;
+		final String defaultValue;
+
+		ParameterOptions( boolean mandatory, String name, String defaultValue )
+		{
+			this.mandatory = mandatory;
+			this.name = name;
+			this.defaultValue = defaultValue;
+		}
+	}
+
+	/**
+	 * The names of a type declaring annotated elements
+	 */
+	static class TypeInformation
+	{
+		final TypeElement type;
+		final String qualifiedName;
+		final String simpleName;
+		final String packageName;
+		final TypeElement topLevelType;
+
+		TypeInformation( TypeElement type, String packageName, TypeElement topLevelType )
+		{
+			this.type = type;
+			this.qualifiedName = type.getQualifiedName().toString();
+			this.simpleName = type.getSimpleName().toString();
+			this.packageName = packageName;
+			this.topLevelType = topLevelType;
+		}
+	}
+
+	private final Types types;
+	private final TypeElement useBuilderGeneratorType;
+	private final TypeElement mandatoryType;
+	private final TypeElement parameterType;
+	private final Map<String, Object> targetDefaults;
+	private final Map<String, Object> parameterDefaults;
+	private final ParameterOptions defaultParameterOptions;
+
+	private final Map<ExecutableElement, TargetOptions> targetOptions = new HashMap<>();
+	private final Map<ExecutableElement, List<ParameterOptions>> parameterOptions = new HashMap<>();
+	private final Map<TypeElement, TypeInformation> typeInformations = new HashMap<>();
+
+	ModelExtractor( Elements elements, Types types )
+	{
+		this.types = types;
+		useBuilderGeneratorType = elements.getTypeElement( UseBuilderGenerator.class.getCanonicalName() );
+		mandatoryType = elements.getTypeElement( Mandatory.class.getCanonicalName() );
+		parameterType = elements.getTypeElement( Parameter.class.getCanonicalName() );
+
+		targetDefaults = getDefaultValues( useBuilderGeneratorType );
+		parameterDefaults = getDefaultValues( parameterType );
+		defaultParameterOptions = createParameterOptions( false, parameterDefaults );
+	}
+
+	/**
+	 * Forgets what was read in the previous round, whose elements are not valid anymore
+	 */
+	void clear()
+	{
+		targetOptions.clear();
+		parameterOptions.clear();
+		typeInformations.clear();
+	}
+
+	TargetOptions getTargetOptions( ExecutableElement element )
+	{
+		TargetOptions result = targetOptions.get( element );
+		if( result == null )
+		{
+			AnnotationMirror mirror = findAnnotation( element, useBuilderGeneratorType );
+			result = new TargetOptions( mirror == null ? targetDefaults : readValues( mirror, targetDefaults ) );
+			targetOptions.put( element, result );
+		}
+		return result;
+	}
+
+	/**
+	 * Whether the element is annotated with <code>@UseBuilderGenerator</code>, which can be read from the class files
+	 * of the types compiled beforehand
+	 */
+	boolean isTarget( ExecutableElement element )
+	{
+		return findAnnotation( element, useBuilderGeneratorType ) != null;
+	}
+
+	/**
+	 * Options of each parameter of an element, in order
+	 */
+	List<ParameterOptions> getParameterOptions( ExecutableElement element )
+	{
+		List<ParameterOptions> result = parameterOptions.get( element );
+		if( result == null )
+		{
+			result = new ArrayList<>( element.getParameters().size() );
+			for( VariableElement parameter : element.getParameters() )
+				result.add( readParameterOptions( parameter ) );
+			result = Collections.unmodifiableList( result );
+			parameterOptions.put( element, result );
+		}
+		return result;
+	}
+
+	/**
+	 * Information about the type declaring this element, or about the element itself if it is a type
+	 */
+	TypeInformation getTypeInformation( Element element )
+	{
+		while( element != null && !(element instanceof TypeElement) )
+			element = element.getEnclosingElement();
+		if( element == null )
+			return null;
+
+		TypeElement type = (TypeElement) element;
+		TypeInformation result = typeInformations.get( type );
+		if( result == null )
+		{
+			TypeElement topLevelType = type;
+			Element current = type.getEnclosingElement();
+			while( current != null && !(current instanceof PackageElement) )
+			{
+				if( current instanceof TypeElement )
+					topLevelType = (TypeElement) current;
+				current = current.getEnclosingElement();
+			}
+			String packageName = current == null ? null : ((PackageElement) current).getQualifiedName().toString();
+
+			result = new TypeInformation( type, packageName, topLevelType );
+			typeInformations.put( type, result );
+		}
+		return result;
+	}
+
+	/**
+	 * Name of a type, as written in the generated code
+	 */
+	String getTypeName( TypeMirror type )
+	{
+		if( isPlainDeclaredType( type ) )
+			return getTypeInformation( ((DeclaredType) type).asElement() ).qualifiedName;
+		return type.toString();
+	}
+
+	String getErasedTypeName( TypeMirror type )
+	{
+		if( type.getKind().isPrimitive() || isPlainDeclaredType( type ) )
+			return getTypeName( type );
+		return types.erasure( type ).toString();
+	}
+
+	/**
+	 * Whether the name of this type is the qualified name of its element, which is the case when it has no type
+	 * arguments, no enclosing instance type and no type annotations
+	 */
+	private static boolean isPlainDeclaredType( TypeMirror type )
+	{
+		if( type.getKind() != TypeKind.DECLARED || !type.getAnnotationMirrors().isEmpty() )
+			return false;
+		DeclaredType declaredType = (DeclaredType) type;
+		return declaredType.getTypeArguments().isEmpty() && declaredType.getEnclosingType().getKind() == TypeKind.NONE;
+	}
+
+	private ParameterOptions readParameterOptions( VariableElement parameter )
+	{
+		List<? extends AnnotationMirror> mirrors = parameter.getAnnotationMirrors();
+		if( mirrors.isEmpty() )
+			return defaultParameterOptions;
+
+		boolean mandatory = false;
+		AnnotationMirror parameterMirror = null;
+		for( AnnotationMirror mirror : mirrors )
+		{
+			Element annotationType = mirror.getAnnotationType().asElement();
+			if( annotationType.equals( mandatoryType ) )
+				mandatory = true;
+			else if( annotationType.equals( parameterType ) )
+				parameterMirror = mirror;
+		}
+
+		if( parameterMirror == null )
+			return mandatory ? createParameterOptions( true, parameterDefaults ) : defaultParameterOptions;
+		return createParameterOptions( mandatory, readValues( parameterMirror, parameterDefaults ) );
+	}
+
+	private static ParameterOptions createParameterOptions( boolean mandatory, Map<String, Object> values )
+	{
+		return new ParameterOptions( mandatory || (Boolean) values.get( "mandatory" ), (String) values.get( "name" ), (String) values.get( "defaultValue" ) );
+	}
+
+	private static AnnotationMirror findAnnotation( Element element, TypeElement annotationType )
+	{
+		for( AnnotationMirror mirror : element.getAnnotationMirrors() )
+		{
+			if( mirror.getAnnotationType().asElement().equals( annotationType ) )
+				return mirror;
+		}
+		return null;
+	}
+
+	/**
+	 * The given values over the defaults. Erroneous values, already reported by the compiler, are ignored.
+	 */
+	private static Map<String, Object> readValues( AnnotationMirror mirror, Map<String, Object> defaults )
+	{
+		Map<String, Object> values = new HashMap<>( defaults );
+		for( Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet() )
+		{
+			String name = entry.getKey().getSimpleName().toString();
+			Object value = entry.getValue().getValue();
+			Object defaultValue = defaults.get( name );
+			if( value != null && defaultValue != null && value.getClass() == defaultValue.getClass() )
+				values.put( name, value );
+		}
+		return values;
+	}
+
+	private static Map<String, Object> getDefaultValues( TypeElement annotationType )
+	{
+		Map<String, Object> result = new HashMap<>();
+		for( ExecutableElement method : ElementFilter.methodsIn( annotationType.getEnclosedElements() ) )
+		{
+			if( method.getDefaultValue() != null )
+				result.put( method.getSimpleName().toString(), method.getDefaultValue().getValue() );
+		}
+		return result;
+	}
+}
@@ -4,4 +4,11 @@ public @interface Parameter
 {
 	boolean mandatory() default false;
 	String name() default "";
+
+	/**
+	 * Compile time constant used as the value of this optional parameter when it has not been set : a literal, for
+	 * example <code>"42"</code>, <code>"(byte) 1"</code> or <code>"\"unknown\""</code>, or a constant field qualified
+	 * by its type, for example <code>"Integer.MAX_VALUE"</code>. Other expressions are reported as errors.
+	 */
+	String defaultValue() default "";
 }
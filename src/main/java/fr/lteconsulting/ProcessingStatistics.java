@@ -0,0 +1,334 @@
+package fr.lteconsulting;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates the time and memory spent by the processor in each of its phases.
+ *
+ * <p>
+ * Enabled with the <code>-Abuildergen.stats=true</code> option, the statistics are reported as a JSON note at the end
+ * of the processing, which is what the benchmark module parses.
+ *
+ * <p>
+ * With the <code>-Abuildergen.profile=path</code> option, the time spent on each round and each element is also
+ * recorded, and written as a JSON report, or a CSV one if the path ends with <code>.csv</code>.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+class ProcessingStatistics
+{
+	final static String NotePrefix = "Builder generator statistics: ";
+
+	enum Phase
+	{
+		ANALYSIS( "analyzeParametersAndFeedLists" ),
+		GENERATION( "generateBuilderClassCode" ),
+		WRITE( "saveBuilderClass" ),
+		TOTAL( "process" );
+
+		final String label;
+
+		Phase( String label )
+		{
+			this.label = label;
+		}
+	}
+
+	/**
+	 * Profile of one processing round
+	 */
+	static class RoundRecord
+	{
+		final int round;
+		int elements;
+		long nanos;
+		long generatedChars;
+
+		RoundRecord( int round )
+		{
+			this.round = round;
+		}
+	}
+
+	/**
+	 * Profile of one generated builder. The analysis is the extraction of its context on the compiler thread, the
+	 * generation is the rendering of its source code and the write is the time spent in the Filer. When builders are
+	 * not rendered in parallel, the output flushed during the rendering is counted in the generation time.
+	 */
+	static class ElementRecord
+	{
+		final int round;
+		final String element;
+		final String builderClassFqn;
+		final int parameters;
+		final long analysisNanos;
+		long generationNanos;
+		long writeNanos;
+		long generatedChars;
+
+		ElementRecord( int round, String element, String builderClassFqn, int parameters, long analysisNanos )
+		{
+			this.round = round;
+			this.element = element;
+			this.builderClassFqn = builderClassFqn;
+			this.parameters = parameters;
+			this.analysisNanos = analysisNanos;
+		}
+	}
+
+	static class Measure
+	{
+		final long startNanos;
+		final long startAllocatedBytes;
+
+		Measure( long startNanos, long startAllocatedBytes )
+		{
+			this.startNanos = startNanos;
+			this.startAllocatedBytes = startAllocatedBytes;
+		}
+	}
+
+	private final boolean enabled;
+	private final boolean profiling;
+	private final com.sun.management.ThreadMXBean threadBean;
+	private final long[] nanos = new long[Phase.values().length];
+	private final long[] allocatedBytes = new long[Phase.values().length];
+	private int elements;
+	private long generatedChars;
+	private final List<RoundRecord> rounds = new ArrayList<>();
+	private final Map<String, ElementRecord> elementRecords = new HashMap<>();
+	private final List<ElementRecord> orderedElementRecords = new ArrayList<>();
+
+	/**
+	 * @param enabled
+	 *            whether the phases are measured
+	 * @param profiling
+	 *            whether the rounds and the elements are also recorded, which enables the measures
+	 */
+	ProcessingStatistics( boolean enabled, boolean profiling )
+	{
+		this.profiling = profiling;
+		enabled = enabled || profiling;
+		this.enabled = enabled;
+
+		ThreadMXBean bean = enabled ? ManagementFactory.getThreadMXBean() : null;
+		if( bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() )
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+		else
+			threadBean = null;
+	}
+
+	boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	boolean isProfiling()
+	{
+		return profiling;
+	}
+
+	/**
+	 * Starts measuring a phase on the current thread, returns null when statistics are disabled
+	 */
+	Measure start()
+	{
+		if( !enabled )
+			return null;
+
+		return new Measure( System.nanoTime(), currentThreadAllocatedBytes() );
+	}
+
+	/**
+	 * Ends the measure of a phase, which must have been started on the current thread. Returns the elapsed time.
+	 */
+	long record( Phase phase, Measure measure )
+	{
+		if( measure == null )
+			return 0;
+
+		long elapsed = System.nanoTime() - measure.startNanos;
+		long allocated = currentThreadAllocatedBytes() - measure.startAllocatedBytes;
+
+		synchronized( this )
+		{
+			nanos[phase.ordinal()] += elapsed;
+			allocatedBytes[phase.ordinal()] += allocated;
+		}
+
+		return elapsed;
+	}
+
+	/**
+	 * Elapsed time since the start of a measure, without recording it in a phase
+	 */
+	long elapsed( Measure measure )
+	{
+		if( measure == null )
+			return 0;
+		return System.nanoTime() - measure.startNanos;
+	}
+
+	synchronized void countElement( String builderClassFqn, long chars, long generationNanos )
+	{
+		if( !enabled )
+			return;
+
+		elements++;
+		generatedChars += chars;
+
+		ElementRecord record = elementRecords.get( builderClassFqn );
+		if( record != null )
+		{
+			record.generatedChars = chars;
+			record.generationNanos += generationNanos;
+			rounds.get( rounds.size() - 1 ).generatedChars += chars;
+		}
+	}
+
+	synchronized void startRound()
+	{
+		if( profiling )
+			rounds.add( new RoundRecord( rounds.size() + 1 ) );
+	}
+
+	synchronized void endRound( long nanos )
+	{
+		if( profiling )
+			rounds.get( rounds.size() - 1 ).nanos = nanos;
+	}
+
+	synchronized void recordElement( String element, String builderClassFqn, int parameters, long analysisNanos )
+	{
+		if( !profiling )
+			return;
+
+		RoundRecord round = rounds.get( rounds.size() - 1 );
+		round.elements++;
+		ElementRecord record = new ElementRecord( round.round, element, builderClassFqn, parameters, analysisNanos );
+		elementRecords.put( builderClassFqn, record );
+		orderedElementRecords.add( record );
+	}
+
+	synchronized void recordElementWrite( String builderClassFqn, long writeNanos )
+	{
+		ElementRecord record = elementRecords.get( builderClassFqn );
+		if( record != null )
+			record.writeNanos = writeNanos;
+	}
+
+	/**
+	 * One line summary of the profile, naming the slowest element
+	 */
+	synchronized String toProfileSummary()
+	{
+		long totalNanos = 0;
+		for( RoundRecord round : rounds )
+			totalNanos += round.nanos;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append( orderedElementRecords.size() ).append( " builder(s) generated in " ).append( rounds.size() ).append( " round(s), " ).append( totalNanos / 1000000 ).append( " ms" );
+
+		ElementRecord slowest = null;
+		for( ElementRecord record : orderedElementRecords )
+		{
+			if( slowest == null || getTotalNanos( record ) > getTotalNanos( slowest ) )
+				slowest = record;
+		}
+		if( slowest != null )
+			sb.append( ", slowest: " ).append( slowest.element ).append( " (" ).append( getTotalNanos( slowest ) / 1000 ).append( " us, " ).append( slowest.parameters ).append( " parameter(s), " )
+					.append( slowest.generatedChars ).append( " chars)" );
+		return sb.toString();
+	}
+
+	synchronized String toProfileJson()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append( "{\n  \"rounds\": [" );
+		for( int i = 0; i < rounds.size(); i++ )
+		{
+			RoundRecord round = rounds.get( i );
+			sb.append( i > 0 ? "," : "" ).append( "\n    {\"round\":" ).append( round.round ).append( ",\"elements\":" ).append( round.elements ).append( ",\"nanos\":" ).append( round.nanos ).append( ",\"generatedChars\":" )
+					.append( round.generatedChars ).append( '}' );
+		}
+		sb.append( "\n  ],\n  \"elements\": [" );
+		for( int i = 0; i < orderedElementRecords.size(); i++ )
+		{
+			ElementRecord record = orderedElementRecords.get( i );
+			sb.append( i > 0 ? "," : "" ).append( "\n    {\"round\":" ).append( record.round ).append( ",\"element\":" );
+			appendJsonString( sb, record.element );
+			sb.append( ",\"builder\":" );
+			appendJsonString( sb, record.builderClassFqn );
+			sb.append( ",\"parameters\":" ).append( record.parameters ).append( ",\"analysisNanos\":" ).append( record.analysisNanos ).append( ",\"generationNanos\":" ).append( record.generationNanos ).append( ",\"writeNanos\":" )
+					.append( record.writeNanos ).append( ",\"generatedChars\":" ).append( record.generatedChars ).append( '}' );
+		}
+		sb.append( "\n  ]\n}\n" );
+		return sb.toString();
+	}
+
+	/**
+	 * One line per element, with its round. The totals of the rounds are only given by the JSON report.
+	 */
+	synchronized String toProfileCsv()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append( "round,element,builder,parameters,analysisNanos,generationNanos,writeNanos,generatedChars\n" );
+		for( ElementRecord record : orderedElementRecords )
+		{
+			sb.append( record.round ).append( ',' );
+			// element names contain commas between their parameter types
+			sb.append( '"' ).append( record.element ).append( "\"," );
+			sb.append( record.builderClassFqn ).append( ',' );
+			sb.append( record.parameters ).append( ',' ).append( record.analysisNanos ).append( ',' ).append( record.generationNanos ).append( ',' ).append( record.writeNanos ).append( ',' ).append( record.generatedChars ).append( '\n' );
+		}
+		return sb.toString();
+	}
+
+	private static long getTotalNanos( ElementRecord record )
+	{
+		return record.analysisNanos + record.generationNanos + record.writeNanos;
+	}
+
+	private static void appendJsonString( StringBuilder sb, String value )
+	{
+		sb.append( '"' );
+		for( int i = 0; i < value.length(); i++ )
+		{
+			char c = value.charAt( i );
+			if( c == '"' || c == '\\' )
+				sb.append( '\\' );
+			sb.append( c );
+		}
+		sb.append( '"' );
+	}
+
+	synchronized String toJson()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append( "{\"elements\":" ).append( elements );
+		sb.append( ",\"generatedChars\":" ).append( generatedChars );
+		sb.append( ",\"allocationMeasured\":" ).append( threadBean != null );
+		sb.append( ",\"phases\":{" );
+		for( Phase phase : Phase.values() )
+		{
+			if( phase.ordinal() > 0 )
+				sb.append( ',' );
+			sb.append( '"' ).append( phase.label ).append( "\":{\"nanos\":" ).append( nanos[phase.ordinal()] ).append( ",\"allocatedBytes\":" ).append( allocatedBytes[phase.ordinal()] ).append( '}' );
+		}
+		sb.append( "}}" );
+		return sb.toString();
+	}
+
+	private long currentThreadAllocatedBytes()
+	{
+		if( threadBean == null )
+			return 0;
+		return threadBean.getThreadAllocatedBytes( Thread.currentThread().getId() );
+	}
+}
@@ -8,7 +8,7 @@ import java.lang.annotation.Target;
 /**
  * Ask for automatic generation of a builder for a constructor
  */
-@Retention( RetentionPolicy.SOURCE )
+@Retention( RetentionPolicy.CLASS )
 @Target( { ElementType.METHOD, ElementType.CONSTRUCTOR } )
 public @interface UseBuilderGenerator
 {
@@ -17,4 +17,140 @@ public @interface UseBuilderGenerator
 	String builderPackage() default "";
 
 	String finalMethodName() default "";
+
+	/**
+	 * Generates a <code>reuse()</code> entry point returning a thread confined builder instance, and a
+	 * <code>reset()</code> method, so that building objects in a loop does not allocate builders. <code>reset()</code>
+	 * is only available on the type returned by the entry points, and keeps the mandatory values given to them.
+	 */
+	boolean reusable() default false;
+
+	/**
+	 * Generates a single builder class, instead of one interface per mandatory parameter. Mandatory parameters are
+	 * then all given, in order, to the <code>prepare(...)</code> entry point.
+	 */
+	boolean compact() default false;
+
+	/**
+	 * When building, calls the overload of the target having the least parameters among those whose omitted
+	 * parameters have not been set. An overload is considered if all its parameters have the same name and type as
+	 * parameters of the target. The bulk methods and the row binders do not dispatch, they always call the target
+	 * with the default values of the parameters not given.
+	 */
+	boolean dispatchToOverloads() default false;
+
+	/**
+	 * Generates a <code>freeze()</code> method returning an immutable prototype of the builder state, which can be
+	 * shared between threads. Each thread can then <code>derive()</code> a new builder from it, to override some
+	 * parameters before building.
+	 */
+	boolean freezable() default false;
+
+	/**
+	 * Generates static <code>buildAll</code> methods (<code>callAll</code> for methods) calling the target for each
+	 * index of parameter arrays, and storing the results in a given array. A variant splits the work on a
+	 * {@link java.util.concurrent.ForkJoinPool}. A null optional column gives the default value of its parameter, the
+	 * target itself being called rather than an overload.
+	 */
+	boolean bulk() default false;
+
+	/**
+	 * Generates a <code>buildAsync(Executor)</code> method (<code>callAsync</code> for methods) running the target
+	 * on the executor and returning a {@link java.util.concurrent.CompletableFuture}. When compiling for Java 21 or
+	 * later, a <code>buildOnVirtualThread()</code> variant runs the target on a new virtual thread.
+	 */
+	boolean async() default false;
+
+	/**
+	 * Generates a <code>Batch</code> class, to which configured builders are added with <code>addTo(batch)</code>.
+	 * The batch stores their state in arrays, and running it calls the target for each of them, in order, on the
+	 * current thread or split on a {@link java.util.concurrent.ForkJoinPool}.
+	 */
+	boolean batch() default false;
+
+	/**
+	 * Maximum number of results memoized by the generated caller, 0 disables memoization. Only for methods returning a
+	 * value, which should not depend on anything else than the called instance and the parameters. The cache is split
+	 * in up to 16 segments of at least 8 results, the least recently used results of a segment being evicted first, so
+	 * a cache of less than 16 results is a single LRU. When the size is not a multiple of the number of segments, the
+	 * cache holds up to the largest multiple below it. Parameters are compared with <code>equals</code>, the called
+	 * instance by identity. Hit, miss and eviction counters are exposed by static methods of the caller.
+	 */
+	int memoize() default 0;
+
+	/**
+	 * Time in milliseconds after which a memoized result is computed again, 0 to keep it until evicted
+	 */
+	long memoizeTtlMillis() default 0;
+
+	/**
+	 * Generates a <code>Codec</code> class writing the constructor parameters of an instance to a
+	 * {@link java.nio.ByteBuffer} or a {@link java.io.DataOutput}, and creating an instance back from them. Each
+	 * parameter is read from a <code>getX()</code>, <code>isX()</code> or <code>x()</code> method, or from a field.
+	 * Parameters can be primitives, boxed primitives, strings, or types having a codec. A codec compiled beforehand, in
+	 * an incremental build, is found for the parameter type itself, while the codecs of its subtypes are only found
+	 * when they are generated in the same compilation round. A parameter type compiled beforehand must then be final,
+	 * otherwise a compilation error is reported.
+	 */
+	boolean codec() default false;
+
+	/**
+	 * Tag identifying the type of this constructor in the codecs of the parameters it is assigned to, written before
+	 * its values. By default, the hash code of the qualified name of the type, so that the tags of the existing types do
+	 * not change when codec types are added. Two codec types of a parameter having the same tag is a compilation error,
+	 * solved by giving one of them another tag, which must not be 0.
+	 */
+	int codecTag() default 0;
+
+	/**
+	 * Generates a <code>Flyweight</code> class reading the parameters from fixed size records stored in a
+	 * {@link java.nio.ByteBuffer}, such as a memory mapped file, and calling the target with them. Static methods write
+	 * the records. Only for targets whose parameters are all primitives.
+	 */
+	boolean flyweight() default false;
+
+	/**
+	 * Generates <code>fromMap(Map)</code> and <code>fromProperties(Properties)</code> entry points, and a
+	 * <code>bind(name, value)</code> method, setting the parameters by name. Values are converted to the parameter
+	 * types, numbers with their <code>xxxValue()</code> methods and strings by parsing them. The missing mandatory
+	 * parameters are all reported in the same {@link IllegalArgumentException}.
+	 */
+	boolean binding() default false;
+
+	/**
+	 * Generates a <code>RowBinder</code> class, which maps the columns of a header to the parameters once, and then
+	 * calls the target for each row of fields, or each line split on a separator. An empty or missing field gives the
+	 * default value of its parameter, the target itself being called rather than an overload. Only for targets whose
+	 * parameters are primitives, boxed primitives or strings.
+	 */
+	boolean rowBinder() default false;
+
+	/**
+	 * Generates, for each parameter whose type, or a subtype of it, has a builder generated for one of its
+	 * constructors, a setter receiving a function which configures that nested builder. The nested value is then built
+	 * without calling its final method. A builder compiled beforehand, in an incremental build, is found for the
+	 * parameter type itself, while the builders of its subtypes are only found when they are generated in the same
+	 * compilation round.
+	 */
+	boolean nestedConfigurers() default false;
+
+	/**
+	 * When the target has mandatory parameters and no optional parameter, the setter of the last mandatory parameter
+	 * calls the target and returns its result. Not supported by compact builders.
+	 */
+	boolean terminalSetter() default false;
+
+	/**
+	 * Generates <code>from(instance)</code>, giving a builder initialized with the values of an existing instance, and
+	 * for each parameter a static setter calling the constructor with the values of an instance, except the given one.
+	 * The values are read with the getters, or the fields, having the names of the parameters. Only for constructors.
+	 */
+	boolean withers() default false;
+
+	/**
+	 * Generates a <code>buildLazy()</code> method giving a thread safe {@link java.util.function.Supplier}, which calls
+	 * the constructor with a snapshot of the builder state on its first access, and then always returns the same
+	 * instance. Only for constructors.
+	 */
+	boolean lazy() default false;
 }
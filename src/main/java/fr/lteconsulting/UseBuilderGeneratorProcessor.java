@@ -1,27 +1,55 @@
 package fr.lteconsulting;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
-import javax.annotation.processing.SupportedSourceVersion;
+import javax.annotation.processing.SupportedOptions;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
-import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
 import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 /**
  * Generates a Builder class for constructors annotated with {@link UseBuilderGenerator}.
@@ -35,51 +63,225 @@ import javax.tools.JavaFileObject;
  * <p>
  * The generated builders conform to the pattern described here : http://www.jayway.com/2012/02/07/builder-pattern-with-a-twist/.
  * 
+ * <p>
+ * With the <code>-Abuildergen.skipUnchanged=true</code> option, a digest of the generation inputs is written in the
+ * header of each builder. When a builder already exists in the source output directory with the same digest, it is
+ * not generated again. This requires the source output directory to be part of the source path, which is the case
+ * with Maven. A clean build is necessary after upgrading the processor.
+ * 
+ * <p>
+ * Builders are generated in two steps : an immutable {@link GeneratorContext} is first extracted from each annotated
+ * element on the compiler thread, then the contexts are rendered to source code. With the
+ * <code>-Abuildergen.threads=n</code> option, rendering happens on a pool of <code>n</code> threads. Writing to the
+ * {@link javax.annotation.processing.Filer} is always done on the compiler thread, in the order of the elements.
+ * 
  * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
  *
  */
 @SupportedAnnotationTypes( UseBuilderGeneratorProcessor.AnnotationFqn )
-@SupportedSourceVersion( SourceVersion.RELEASE_8 )
+@SupportedOptions( { UseBuilderGeneratorProcessor.SkipUnchangedOption, UseBuilderGeneratorProcessor.StatsOption, UseBuilderGeneratorProcessor.ThreadsOption, UseBuilderGeneratorProcessor.MetricsOption, UseBuilderGeneratorProcessor.RegistryOption,
+		UseBuilderGeneratorProcessor.ProfileOption, UseBuilderGeneratorProcessor.IsolatingOption } )
 public class UseBuilderGeneratorProcessor extends AbstractProcessor
 {
-	private final static String tab = "    ";
 	public final static String AnnotationFqn = "fr.lteconsulting.UseBuilderGenerator";
+	public final static String SkipUnchangedOption = "buildergen.skipUnchanged";
+	public final static String StatsOption = "buildergen.stats";
+	public final static String ThreadsOption = "buildergen.threads";
+	public final static String MetricsOption = "buildergen.metrics";
+	public final static String RegistryOption = "buildergen.registry";
+	public final static String ProfileOption = "buildergen.profile";
+	public final static String IsolatingOption = "buildergen.isolating";
+	// the options which change the generated builders, unlike the ones about statistics, profiling or threads
+	private final static String[] GeneratedCodeOptions = { MetricsOption, RegistryOption, IsolatingOption };
+	private final static String DigestHeader = "// buildergen-digest: ";
+	private final static int WriteBufferSize = 8192;
+	private final static String OptionalParametersMaskField = "optionalParametersSet";
+	private final static int MaxOptionalParametersInMask = 64;
+	private final static int VirtualThreadsSourceVersion = 21;
+	private final static String GradleIsolatingOption = "org.gradle.annotation.processing.isolating";
+	private final static String GradleAggregatingOption = "org.gradle.annotation.processing.aggregating";
+	private final static int MaxMemoSegments = 16;
+	private final static int MinMemoSegmentCapacity = 8;
+	// literals which can be declared as default values, and the primitive cast which can precede them
+	private final static Pattern LiteralPattern = Pattern.compile( "null|true|false|[+-]?(0[xX][0-9a-fA-F_]+[lL]?|0[bB][01_]+[lL]?|(\\d[\\d_]*\\.?[\\d_]*|\\.\\d[\\d_]*)([eE][+-]?\\d+)?[fFdDlL]?)"
+			+ "|'([^'\\\\\\r\\n]|\\\\[^\\r\\n]+)'|\"([^\"\\\\\\r\\n]|\\\\.)*\"" );
+	private final static Pattern PrimitiveCastPattern = Pattern.compile( "\\(\\s*(boolean|byte|short|char|int|long|float|double)\\s*\\)(.*)", Pattern.DOTALL );
+
+	private boolean skipUnchanged;
+	private int upToDateBuilders;
+	private int regeneratedBuilders;
+	private ProcessingStatistics statistics;
+	private String profilePath;
+	private ForkJoinPool renderingPool;
+	private boolean virtualThreadsAvailable;
+	private boolean metrics;
+	private boolean isolating;
+	private Map<TypeElement, String> codecClasses = Collections.emptyMap();
+	private Set<TypeElement> roundTypes = Collections.emptySet();
+	private Map<TypeElement, NestedBuilderInformation> nestedBuilders = Collections.emptyMap();
+	private BuilderRegistryGenerator registry;
+	private ModelExtractor model;
+
+	@Override
+	public synchronized void init( ProcessingEnvironment processingEnv )
+	{
+		super.init( processingEnv );
+
+		skipUnchanged = Boolean.parseBoolean( processingEnv.getOptions().get( SkipUnchangedOption ) );
+		metrics = Boolean.parseBoolean( processingEnv.getOptions().get( MetricsOption ) );
+		profilePath = processingEnv.getOptions().get( ProfileOption );
+		if( profilePath != null && profilePath.isEmpty() )
+			profilePath = null;
+		model = new ModelExtractor( processingEnv.getElementUtils(), processingEnv.getTypeUtils() );
+		statistics = new ProcessingStatistics( Boolean.parseBoolean( processingEnv.getOptions().get( StatsOption ) ), profilePath != null );
+
+		String registryClassFqn = processingEnv.getOptions().get( RegistryOption );
+		if( registryClassFqn != null && !registryClassFqn.isEmpty() )
+			registry = new BuilderRegistryGenerator( processingEnv, registryClassFqn );
+
+		isolating = Boolean.parseBoolean( processingEnv.getOptions().get( IsolatingOption ) );
+		if( isolating && registry != null )
+		{
+			processingEnv.getMessager().printMessage( Kind.WARNING, "The " + IsolatingOption + " option is ignored, since the builder registry depends on all the builders" );
+			isolating = false;
+		}
+
+		String threadsOption = processingEnv.getOptions().get( ThreadsOption );
+		if( threadsOption != null )
+		{
+			try
+			{
+				int threads = Integer.parseInt( threadsOption.trim() );
+				if( threads > 1 )
+					renderingPool = new ForkJoinPool( threads );
+			}
+			catch( NumberFormatException e )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "The " + ThreadsOption + " option must be a number of threads : " + threadsOption );
+			}
+		}
+
+		// virtual threads can only be referenced by the generated code when compiling for a recent enough JDK
+		virtualThreadsAvailable = processingEnv.getSourceVersion().ordinal() >= VirtualThreadsSourceVersion;
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	/**
+	 * The processor is registered as a <i>dynamic</i> incremental processor for Gradle, which asks for its category
+	 * before any target is known. Codecs and nested configurers look for the subtypes of their parameter types among
+	 * all the targets of the round, and the builder registry depends on all of them, so the processor is
+	 * <i>aggregating</i>. With the isolating option, the targets of the round are not looked at, and each builder only
+	 * depends on its target and the types it references.
+	 */
+	@Override
+	public Set<String> getSupportedOptions()
+	{
+		Set<String> options = new TreeSet<>( super.getSupportedOptions() );
+		options.add( isolating ? GradleIsolatingOption : GradleAggregatingOption );
+		return options;
+	}
 
 	@Override
 	public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
 	{
+		if( roundEnv.processingOver() )
+		{
+			// the registry is written sooner, unless another processor generated annotated elements in the last round
+			if( registry != null && registry.isPending() )
+				registry.write();
+			if( skipUnchanged )
+				processingEnv.getMessager().printMessage( Kind.NOTE, "Builder generator: " + upToDateBuilders + " builder(s) up to date, " + regeneratedBuilders + " builder(s) generated" );
+			if( Boolean.parseBoolean( processingEnv.getOptions().get( StatsOption ) ) )
+				processingEnv.getMessager().printMessage( Kind.NOTE, ProcessingStatistics.NotePrefix + statistics.toJson() );
+			if( statistics.isProfiling() )
+				writeProfile();
+			if( renderingPool != null )
+				renderingPool.shutdown();
+			return true;
+		}
+
+		ProcessingStatistics.Measure measure = statistics.start();
+		statistics.startRound();
+		model.clear();
+
+		roundTypes = new HashSet<>( ElementFilter.typesIn( roundEnv.getRootElements() ) );
+		if( !isolating )
+		{
+			codecClasses = findCodecClasses( roundEnv );
+			nestedBuilders = findNestedBuilders( roundEnv );
+		}
+
+		List<GeneratorContext> contexts = new ArrayList<>();
 		for( Element e : roundEnv.getElementsAnnotatedWith( UseBuilderGenerator.class ) )
 		{
 			if( e.getKind() != ElementKind.CONSTRUCTOR && e.getKind() != ElementKind.METHOD )
 				continue;
-			processExecutableElement( (ExecutableElement) e );
+			ProcessingStatistics.Measure elementMeasure = statistics.start();
+			GeneratorContext ctx = createGeneratorContext( (ExecutableElement) e );
+			if( ctx != null )
+			{
+				contexts.add( ctx );
+				statistics.recordElement( model.getTypeInformation( e ).qualifiedName + "." + e, ctx.builderClassFqn, ctx.parameters.size(), statistics.elapsed( elementMeasure ) );
+			}
+		}
+
+		if( renderingPool == null )
+		{
+			// builders are generated straight into the Filer
+			for( GeneratorContext ctx : contexts )
+				saveBuilderClass( ctx, null );
+		}
+		else
+		{
+			List<String> sources = renderBuilderClasses( contexts );
+			for( int i = 0; i < contexts.size(); i++ )
+				saveBuilderClass( contexts.get( i ), sources.get( i ) );
 		}
 
+		// the registry is written once a round generates no builder, so that no other builder can come afterwards
+		if( registry != null && registry.isPending() && contexts.isEmpty() )
+			registry.write();
+
+		statistics.endRound( statistics.record( ProcessingStatistics.Phase.TOTAL, measure ) );
+
 		roundEnv.errorRaised();
 
 		return true;
 	}
 
-	private void processExecutableElement( ExecutableElement element )
+	/**
+	 * Extracts everything needed to generate the builder of this element. Returns null if no builder should be
+	 * generated.
+	 */
+	private GeneratorContext createGeneratorContext( ExecutableElement element )
 	{
-		// prepare lists of mandatory and optional parameters
+		// prepare lists of parameters, mandatory and optional parameters
+		List<ParameterInformation> parameters = new ArrayList<>();
 		List<ParameterInformation> mandatoryParameters = new ArrayList<>();
 		List<ParameterInformation> optionalParameters = new ArrayList<>();
 
 		// split the constructor parameters into mandatory and optional
-		analyzeParametersAndFeedLists( element, mandatoryParameters, optionalParameters );
+		ProcessingStatistics.Measure measure = statistics.start();
+		analyzeParametersAndFeedLists( element, parameters, mandatoryParameters, optionalParameters );
+		statistics.record( ProcessingStatistics.Phase.ANALYSIS, measure );
+
+		ModelExtractor.TargetOptions options = model.getTargetOptions( element );
+		ModelExtractor.TypeInformation enclosingType = model.getTypeInformation( element );
 
 		boolean staticCall = true;
 		String returnTypeFqn;
 		String finalCallText;
 		String defaultFinalMethodName;
-		String defaultBuilderClassName;
 		if( element.getKind() == ElementKind.CONSTRUCTOR )
 		{
-			returnTypeFqn = getEnclosingTypeElement( element ).getQualifiedName().toString();
-			finalCallText = "new " + getEnclosingTypeElement( element ).getQualifiedName().toString();
+			returnTypeFqn = enclosingType.qualifiedName;
+			finalCallText = "new " + enclosingType.qualifiedName;
 			defaultFinalMethodName = "build";
-			defaultBuilderClassName = getEnclosingTypeElement( element ).getSimpleName().toString() + "Builder";
 		}
 		else if( element.getKind() == ElementKind.METHOD )
 		{
@@ -92,310 +294,3409 @@ public class UseBuilderGeneratorProcessor extends AbstractProcessor
 			}
 			else
 			{
-				finalCallText = getEnclosingTypeElement( element ).getQualifiedName() + "." + element.getSimpleName();
+				finalCallText = enclosingType.qualifiedName + "." + element.getSimpleName();
 			}
 
 			defaultFinalMethodName = "call";
-			defaultBuilderClassName = capitalize( element.getSimpleName().toString() ) + "Caller";
 		}
 		else
 		{
 			processingEnv.getMessager().printMessage( Kind.ERROR, "This element is not supported by builder generator !", element );
-			return;
+			return null;
 		}
 
+		// type of the value given by a future completed by the target call
+		String resultTypeFqn = returnTypeFqn;
+		if( element.getKind() == ElementKind.METHOD && element.getReturnType().getKind() == TypeKind.VOID )
+			resultTypeFqn = "java.lang.Void";
+		else if( element.getKind() == ElementKind.METHOD && element.getReturnType().getKind().isPrimitive() )
+			resultTypeFqn = processingEnv.getTypeUtils().boxedClass( (PrimitiveType) element.getReturnType() ).getQualifiedName().toString();
+
 		// prepare and do code generation
-		UseBuilderGenerator useBuilderGeneratorAnnotation = element.getAnnotation( UseBuilderGenerator.class );
 		String finalMethodName = defaultFinalMethodName;
-		if( !useBuilderGeneratorAnnotation.finalMethodName().isEmpty() )
-			finalMethodName = useBuilderGeneratorAnnotation.finalMethodName();
-		String packageName = getPackageName( element );
-		if( !useBuilderGeneratorAnnotation.builderPackage().isEmpty() )
-			packageName = useBuilderGeneratorAnnotation.builderPackage();
-		String builderClassName = defaultBuilderClassName;
-		if( !useBuilderGeneratorAnnotation.builderName().isEmpty() )
-			builderClassName = useBuilderGeneratorAnnotation.builderName();
+		if( !options.finalMethodName.isEmpty() )
+			finalMethodName = options.finalMethodName;
+		String packageName = getBuilderPackageName( element, options );
+		String builderClassName = getBuilderClassName( element, options );
 		String builderClassFqn = packageName + "." + builderClassName;
 
-		GeneratorContext ctx = new GeneratorContext( element, staticCall, packageName, builderClassName, finalMethodName, returnTypeFqn, finalCallText, mandatoryParameters, optionalParameters, builderClassFqn );
-		StringBuilder sb = new StringBuilder();
+		String inputsDigest = null;
+		if( skipUnchanged )
+		{
+			inputsDigest = computeInputsDigest( element, builderClassFqn );
+			if( inputsDigest.equals( readExistingDigest( packageName, builderClassName ) ) )
+			{
+				// the existing builder was generated from the same inputs, which passed the checks below
+				if( registry != null )
+					registry.add( createRegistryEntry( element, staticCall, builderClassFqn, options.compact, mandatoryParameters ) );
+				upToDateBuilders++;
+				return null;
+			}
+			regeneratedBuilders++;
+		}
 
-		generateBuilderClassCode( ctx, sb );
+		String calledInstanceTypeFqn = enclosingType.qualifiedName;
 
-		saveBuilderClass( ctx, sb );
-	}
+		List<OverloadInformation> overloads = new ArrayList<>();
+		if( options.dispatchToOverloads )
+			analyzeOverloads( element, packageName, parameters, overloads );
 
-	private static class GeneratorContext
-	{
-		final ExecutableElement element;
-		final boolean staticCall;
-		final String packageName;
-		final String builderClassName;
-		final String finalMethodName;
-		final String returnTypeFqn;
-		final String finalCallText;
-		final List<ParameterInformation> mandatoryParameters;
-		final List<ParameterInformation> optionalParameters;
-		final String builderClassFqn;
+		if( options.memoize < 0 || options.memoizeTtlMillis < 0 )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "The memoization size and time to live cannot be negative", element );
+			return null;
+		}
+		if( options.memoize > 0 && (element.getKind() != ElementKind.METHOD || element.getReturnType().getKind() == TypeKind.VOID) )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Memoization is only supported for methods returning a value", element );
+			return null;
+		}
+		if( options.memoize == 0 && options.memoizeTtlMillis > 0 )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "A memoization time to live is given, but memoization is not enabled", element );
+			return null;
+		}
 
-		public GeneratorContext( ExecutableElement element, boolean staticCall, String packageName, String builderClassName, String finalMethodName, String returnTypeFqn, String finalCallText, List<ParameterInformation> mandatoryParameters,
-				List<ParameterInformation> optionalParameters, String builderClassFqn )
+		if( options.flyweight )
 		{
-			this.element = element;
-			this.staticCall = staticCall;
-			this.packageName = packageName;
-			this.builderClassName = builderClassName;
-			this.finalMethodName = finalMethodName;
-			this.returnTypeFqn = returnTypeFqn;
-			this.finalCallText = finalCallText;
-			this.mandatoryParameters = mandatoryParameters;
-			this.optionalParameters = optionalParameters;
-			this.builderClassFqn = builderClassFqn;
+			// records of zero bytes could not be counted nor moved along a buffer
+			if( element.getParameters().isEmpty() )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "Flyweights need at least one parameter", element );
+				return null;
+			}
+			for( VariableElement parameter : element.getParameters() )
+			{
+				if( !parameter.asType().getKind().isPrimitive() )
+				{
+					processingEnv.getMessager().printMessage( Kind.ERROR, "Flyweights are only supported when all the parameters are primitives", parameter );
+					return null;
+				}
+			}
 		}
-	}
 
-	private void analyzeParametersAndFeedLists( ExecutableElement element, List<ParameterInformation> mandatoryParameters, List<ParameterInformation> optionalParameters )
-	{
-		for( VariableElement parameter : element.getParameters() )
+		if( options.rowBinder )
 		{
-			String parameterName = parameter.getSimpleName().toString();
-			TypeMirror parameterType = parameter.asType();
-			Mandatory mandatoryAnnotation = parameter.getAnnotation( Mandatory.class );
-			Parameter parameterAnnotation = parameter.getAnnotation( Parameter.class );
+			for( ParameterInformation info : parameters )
+			{
+				if( !isPrimitiveTypeName( info.parameterType ) && getUnboxedTypeName( info.parameterType ) == null && !"java.lang.String".equals( info.parameterType ) )
+				{
+					processingEnv.getMessager().printMessage( Kind.ERROR, "Row binders only support primitives, boxed primitives and strings", element.getParameters().get( parameters.indexOf( info ) ) );
+					return null;
+				}
+			}
+		}
 
-			String setterName = "with" + capitalize( parameterName );
-			if( parameterAnnotation != null && !parameterAnnotation.name().isEmpty() )
-				setterName = parameterAnnotation.name();
+		if( options.binding && mandatoryParameters.size() > MaxOptionalParametersInMask )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Binding by name is not supported with more than " + MaxOptionalParametersInMask + " mandatory parameters", element );
+			return null;
+		}
 
-			ParameterInformation paramInfo = new ParameterInformation( parameterName, parameterType, setterName );
+		List<CodecParameterInformation> codecParameters = null;
+		if( options.codec )
+		{
+			if( element.getKind() != ElementKind.CONSTRUCTOR )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "Codecs are only supported for constructors", element );
+				return null;
+			}
+			codecParameters = analyzeCodecParameters( element, packageName, parameters );
+			if( codecParameters == null )
+				return null;
+		}
 
-			List<ParameterInformation> list = optionalParameters;
-			if( mandatoryAnnotation != null || (parameterAnnotation != null && parameterAnnotation.mandatory()) )
-				list = mandatoryParameters;
+		if( optionalParameters.size() > MaxOptionalParametersInMask && (!overloads.isEmpty() || hasDeclaredDefaultValues( optionalParameters )) )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Default values and overload dispatch are not supported with more than " + MaxOptionalParametersInMask + " optional parameters", element );
+			return null;
+		}
 
-			list.add( paramInfo );
+		if( options.terminalSetter && (options.compact || mandatoryParameters.isEmpty() || !optionalParameters.isEmpty()) )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Terminal setters need mandatory parameters and no optional parameter, and are not supported by compact builders", element );
+			return null;
+		}
+
+		List<String> witherAccessors = null;
+		if( options.withers )
+		{
+			if( element.getKind() != ElementKind.CONSTRUCTOR )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "Withers are only supported for constructors", element );
+				return null;
+			}
+			witherAccessors = analyzeWitherAccessors( element, packageName );
+			if( witherAccessors == null )
+				return null;
+		}
+
+		if( options.lazy && element.getKind() != ElementKind.CONSTRUCTOR )
+		{
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Lazy builds are only supported for constructors", element );
+			return null;
 		}
+
+		List<ConfigurerInformation> configurers = new ArrayList<>();
+		if( options.nestedConfigurers )
+			analyzeConfigurers( element, parameters, configurers );
+
+		// only the builders which are generated are indexed
+		if( registry != null )
+			registry.add( createRegistryEntry( element, staticCall, builderClassFqn, options.compact, mandatoryParameters ) );
+
+		return new GeneratorContext( element, staticCall, calledInstanceTypeFqn, packageName, builderClassName, finalMethodName, returnTypeFqn, resultTypeFqn, finalCallText, parameters, mandatoryParameters, optionalParameters,
+				builderClassFqn, options, inputsDigest, overloads, codecParameters, configurers, witherAccessors );
 	}
 
-	private void generateBuilderClassCode( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The registry entry of a builder. Its <code>prepare</code> method receives the called instance for instance
+	 * methods, and the mandatory parameters for compact builders.
+	 */
+	private BuilderRegistryGenerator.Entry createRegistryEntry( ExecutableElement element, boolean staticCall, String builderClassFqn, boolean compact, List<ParameterInformation> mandatoryParameters )
 	{
-		sb.append( "package " + ctx.packageName + ";\r\n" );
-		sb.append( "\r\n" );
-		sb.append( "public class " + ctx.builderClassName + " {\r\n" );
+		ModelExtractor.TypeInformation enclosingType = model.getTypeInformation( element );
+		String target = enclosingType.qualifiedName;
+		if( element.getKind() == ElementKind.METHOD )
+			target += "#" + element.getSimpleName();
 
-		generateMandatoryParametersInterfaces( ctx, sb );
-		generateOptionalParametersInterface( ctx, sb );
-		generateBuilderImplementation( ctx, sb );
-		generateBootstrapMethod( ctx, sb );
+		List<String> prepareParameterTypes = new ArrayList<>();
+		if( !staticCall )
+			prepareParameterTypes.add( processingEnv.getTypeUtils().erasure( enclosingType.type.asType() ).toString() );
+		if( compact )
+		{
+			for( ParameterInformation info : mandatoryParameters )
+				prepareParameterTypes.add( info.erasedParameterType );
+		}
 
-		sb.append( "}\r\n" );
+		return new BuilderRegistryGenerator.Entry( target, builderClassFqn, prepareParameterTypes, enclosingType.topLevelType );
 	}
 
-	private void generateMandatoryParametersInterfaces( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * Finds how to read each constructor parameter back from an instance. Returns null if a parameter has no accessor.
+	 */
+	private List<String> analyzeWitherAccessors( ExecutableElement element, String builderPackageName )
 	{
-		for( int i = 0; i < ctx.mandatoryParameters.size(); i++ )
+		TypeElement type = model.getTypeInformation( element ).type;
+		List<String> result = new ArrayList<>();
+		for( VariableElement parameter : element.getParameters() )
 		{
-			ParameterInformation paramInfo = ctx.mandatoryParameters.get( i );
-			String nextInterfaceName = i < ctx.mandatoryParameters.size() - 1 ? ctx.mandatoryParameters.get( i + 1 ).interfaceName : "OptionalParameters";
-
-			sb.append( tab + "public interface " + paramInfo.interfaceName + " {\r\n" );
-			sb.append( tab + tab + nextInterfaceName + " " + paramInfo.setterName + "(" + paramInfo.parameterType + " " + paramInfo.parameterName + ");\r\n" );
-			sb.append( tab + "}\r\n" );
-			sb.append( "\r\n" );
+			String accessor = findAccessor( type, parameter, builderPackageName );
+			if( accessor == null )
+				processingEnv.getMessager().printMessage( Kind.ERROR, "No accessible getter or field to read the value of this parameter for the withers", parameter );
+			result.add( accessor );
 		}
+		return result.contains( null ) ? null : result;
 	}
 
-	private void generateOptionalParametersInterface( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The builders generated in this round which can be used to build a parameter of another builder : those of
+	 * constructors, which are not compact. Types having several such builders are ignored, since they are ambiguous.
+	 * The builders compiled beforehand are found with {@link #findCompiledNestedBuilder(ExecutableElement)}.
+	 */
+	private Map<TypeElement, NestedBuilderInformation> findNestedBuilders( RoundEnvironment roundEnv )
 	{
-		sb.append( tab + "public interface OptionalParameters {\r\n" );
-		sb.append( tab + tab + ctx.returnTypeFqn + " " + ctx.finalMethodName + "();\r\n" );
-		for( ParameterInformation info : ctx.optionalParameters )
+		Map<TypeElement, NestedBuilderInformation> result = new HashMap<>();
+		Set<TypeElement> ambiguousTypes = new HashSet<>();
+		for( Element e : roundEnv.getElementsAnnotatedWith( UseBuilderGenerator.class ) )
 		{
-			sb.append( tab + tab + "OptionalParameters " + info.setterName + "(" + info.parameterType + " " + info.parameterName + ");\r\n" );
+			if( e.getKind() != ElementKind.CONSTRUCTOR )
+				continue;
+			ExecutableElement element = (ExecutableElement) e;
+			if( model.getTargetOptions( element ).compact )
+				continue;
+			TypeElement type = model.getTypeInformation( element ).type;
+			NestedBuilderInformation information = createNestedBuilderInformation( element );
+
+			if( result.containsKey( type ) )
+				ambiguousTypes.add( type );
+			result.put( type, information );
 		}
-		sb.append( tab + "}\r\n" );
-		sb.append( "\r\n" );
+		result.keySet().removeAll( ambiguousTypes );
+		return result;
 	}
 
-	private void generateBuilderImplementation( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The nested builder of a target compiled in this round, whose builder is not generated yet
+	 */
+	private NestedBuilderInformation createNestedBuilderInformation( ExecutableElement element )
 	{
-		sb.append( tab + "private static class BuilderInternal implements OptionalParameters" );
-		for( ParameterInformation info : ctx.mandatoryParameters )
-			sb.append( ", " + info.interfaceName );
-		sb.append( " {\r\n" );
+		ModelExtractor.TargetOptions options = model.getTargetOptions( element );
+		String builderClassFqn = getBuilderPackageName( element, options ) + "." + getBuilderClassName( element, options );
+		String shellTypeName = builderClassFqn + ".OptionalParameters";
+		int mandatoryCount = 0;
+		List<ModelExtractor.ParameterOptions> parameterOptions = model.getParameterOptions( element );
+		for( int i = 0; i < parameterOptions.size(); i++ )
+		{
+			if( !parameterOptions.get( i ).mandatory )
+				continue;
+			if( mandatoryCount++ == 0 )
+				shellTypeName = builderClassFqn + ".MandatoryParameter" + capitalize( element.getParameters().get( i ).getSimpleName().toString() );
+		}
 
-		generatePrivateFields( ctx, sb );
-		generateConstructor( ctx, sb );
-		generateBuildMethod( ctx, sb );
-		generateMandatorySetters( ctx, sb );
-		generateOptionalSetters( ctx, sb );
+		// with a terminal setter, the configurer gives the built instance itself
+		String finalMethodName = options.finalMethodName.isEmpty() ? "build" : options.finalMethodName;
+		boolean terminal = options.terminalSetter && mandatoryCount > 0 && mandatoryCount == element.getParameters().size();
+		return new NestedBuilderInformation( builderClassFqn, shellTypeName, terminal ? model.getTypeInformation( element ).qualifiedName : builderClassFqn + ".OptionalParameters", terminal ? null : finalMethodName );
+	}
 
-		sb.append( tab + "}\r\n" );
-		sb.append( "\r\n" );
+	/**
+	 * The nested builder of the target found for a parameter type, whether the type is compiled in this round or
+	 * beforehand. Returns null if the builder cannot be found.
+	 */
+	private NestedBuilderInformation findNestedBuilderOfTarget( ExecutableElement target )
+	{
+		if( roundTypes.contains( model.getTypeInformation( target ).topLevelType ) )
+			return createNestedBuilderInformation( target );
+		return findCompiledNestedBuilder( target );
 	}
 
-	private void generateConstructor( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The constructor of a type which is not among the nested builders of this round and can have a nested builder,
+	 * or null. In an incremental build, the type and its builder come from the class path. In an isolating build, the
+	 * nested builders of the round are not looked at, and the type can also be compiled in this round.
+	 */
+	private ExecutableElement findCompiledNestedTarget( TypeMirror type )
 	{
-		if( ctx.staticCall )
-			return;
+		if( type.getKind() != TypeKind.DECLARED || !((DeclaredType) type).getTypeArguments().isEmpty() )
+			return null;
+		TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+		if( nestedBuilders.containsKey( typeElement ) )
+			return null;
 
-		sb.append( tab + tab + "private BuilderInternal(" + getEnclosingTypeElement( ctx.element ).getQualifiedName() + " calledInstance) {\r\n" );
-		sb.append( tab + tab + tab + "this.calledInstance = calledInstance;\r\n" );
-		sb.append( tab + tab + "}\r\n" );
-		sb.append( tab + tab + "\r\n" );
-		sb.append( tab + tab + "\r\n" );
+		ExecutableElement result = null;
+		for( ExecutableElement constructor : ElementFilter.constructorsIn( typeElement.getEnclosedElements() ) )
+		{
+			if( !model.isTarget( constructor ) )
+				continue;
+			// ambiguous, as in the current round
+			if( result != null )
+				return null;
+			result = constructor;
+		}
+		if( result == null || model.getTargetOptions( result ).compact )
+			return null;
+		return result;
 	}
 
-	private void generatePrivateFields( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The nested builder of a target compiled beforehand, read from the builder itself since the names of the
+	 * parameters of a compiled constructor may not be known. Returns null if the builder cannot be found.
+	 */
+	private NestedBuilderInformation findCompiledNestedBuilder( ExecutableElement target )
 	{
-		if( !ctx.staticCall )
-			sb.append( tab + tab + "private " + getEnclosingTypeElement( ctx.element ).getQualifiedName() + " calledInstance;\r\n" );
-
-		for( VariableElement parameter : ctx.element.getParameters() )
-			sb.append( tab + tab + "private " + parameter.asType() + " " + parameter.getSimpleName().toString() + ";\r\n" );
+		ModelExtractor.TargetOptions options = model.getTargetOptions( target );
+		String builderClassFqn = getBuilderPackageName( target, options ) + "." + getBuilderClassName( target, options );
+		TypeElement builderType = processingEnv.getElementUtils().getTypeElement( builderClassFqn );
+		if( builderType == null )
+			return null;
 
-		sb.append( "\r\n" );
+		for( ExecutableElement method : ElementFilter.methodsIn( builderType.getEnclosedElements() ) )
+		{
+			if( method.getSimpleName().contentEquals( "prepare" ) && method.getParameters().isEmpty() && method.getModifiers().contains( Modifier.STATIC ) )
+			{
+				// a terminal setter is only generated when all the parameters are mandatory
+				String shellTypeName = model.getTypeName( method.getReturnType() );
+				if( options.terminalSetter )
+					return new NestedBuilderInformation( builderClassFqn, shellTypeName, model.getTypeInformation( target ).qualifiedName, null );
+				return new NestedBuilderInformation( builderClassFqn, shellTypeName, builderClassFqn + ".OptionalParameters", options.finalMethodName.isEmpty() ? "build" : options.finalMethodName );
+			}
+		}
+		return null;
 	}
 
-	private void generateBuildMethod( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * Finds the nested builders which can build the parameters : those generated in this round, and the one of the
+	 * parameter type itself when it was compiled beforehand. A configurer has the name of the parameter setter if the
+	 * nested builder builds exactly the parameter type, otherwise the simple name of the built type is appended.
+	 */
+	private void analyzeConfigurers( ExecutableElement element, List<ParameterInformation> parameters, List<ConfigurerInformation> configurers )
 	{
-		sb.append( tab + tab + "@Override public " + ctx.returnTypeFqn + " " + ctx.finalMethodName + "() {\r\n" );
-		sb.append( tab + tab + tab );
-		if( !"void".equals( ctx.returnTypeFqn ) )
-			sb.append( "return " );
-		sb.append( ctx.finalCallText + "(" );
-		boolean first = true;
-		for( VariableElement parameter : ctx.element.getParameters() )
+		Types types = processingEnv.getTypeUtils();
+		for( int i = 0; i < parameters.size(); i++ )
 		{
-			if( !first )
-				sb.append( ", " );
-			else
-				first = false;
-			sb.append( parameter.getSimpleName().toString() );
+			VariableElement parameter = element.getParameters().get( i );
+			TypeMirror parameterType = parameter.asType();
+			if( parameterType.getKind() != TypeKind.DECLARED || !((DeclaredType) parameterType).getTypeArguments().isEmpty() )
+				continue;
+
+			Map<TypeElement, NestedBuilderInformation> availableBuilders = nestedBuilders;
+			ExecutableElement compiledTarget = findCompiledNestedTarget( parameterType );
+			if( compiledTarget != null )
+			{
+				NestedBuilderInformation compiledBuilder = findNestedBuilderOfTarget( compiledTarget );
+				if( compiledBuilder == null )
+				{
+					processingEnv.getMessager().printMessage( Kind.WARNING, "The builder of the type of this parameter cannot be found, no configurer is generated for it", parameter );
+				}
+				else
+				{
+					availableBuilders = new HashMap<>( nestedBuilders );
+					availableBuilders.put( model.getTypeInformation( compiledTarget ).type, compiledBuilder );
+				}
+			}
+
+			List<TypeElement> candidates = new ArrayList<>();
+			for( TypeElement nestedType : availableBuilders.keySet() )
+			{
+				if( types.isAssignable( nestedType.asType(), parameterType ) )
+					candidates.add( nestedType );
+			}
+			Collections.sort( candidates, new Comparator<TypeElement>()
+			{
+				@Override
+				public int compare( TypeElement o1, TypeElement o2 )
+				{
+					return o1.getQualifiedName().toString().compareTo( o2.getQualifiedName().toString() );
+				}
+			} );
+
+			ParameterInformation info = parameters.get( i );
+			for( TypeElement candidate : candidates )
+			{
+				String configurerName = info.setterName;
+				if( !types.isSameType( candidate.asType(), parameterType ) )
+					configurerName += candidate.getSimpleName();
+				configurers.add( new ConfigurerInformation( info, configurerName, availableBuilders.get( candidate ) ) );
+			}
 		}
-		sb.append( ");\r\n" );
-		sb.append( tab + tab + "}\r\n" );
-		sb.append( "\r\n" );
 	}
 
-	private void generateMandatorySetters( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * Codec classes generated in this round, by the type they encode. The codecs of types compiled beforehand are
+	 * found with {@link #findCompiledCodecClass(TypeElement)}.
+	 */
+	private Map<TypeElement, String> findCodecClasses( RoundEnvironment roundEnv )
 	{
-		for( int i = 0; i < ctx.mandatoryParameters.size(); i++ )
+		Map<TypeElement, String> result = new HashMap<>();
+		for( Element e : roundEnv.getElementsAnnotatedWith( UseBuilderGenerator.class ) )
 		{
-			ParameterInformation paramInfo = ctx.mandatoryParameters.get( i );
-			String nextInterfaceName = i < ctx.mandatoryParameters.size() - 1 ? ctx.mandatoryParameters.get( i + 1 ).interfaceName : "OptionalParameters";
-
-			sb.append( tab + tab + "@Override public " + nextInterfaceName + " " + paramInfo.setterName + "(" + paramInfo.parameterType + " " + paramInfo.parameterName + ") {\r\n" );
-			sb.append( tab + tab + tab + "this." + paramInfo.parameterName + " = " + paramInfo.parameterName + ";\r\n" );
-			sb.append( tab + tab + tab + "return this;\r\n" );
-			sb.append( tab + tab + "}\r\n" );
-			sb.append( "\r\n" );
+			if( e.getKind() != ElementKind.CONSTRUCTOR )
+				continue;
+			ExecutableElement element = (ExecutableElement) e;
+			ModelExtractor.TargetOptions options = model.getTargetOptions( element );
+			if( !options.codec )
+				continue;
+			result.put( model.getTypeInformation( element ).type, getBuilderPackageName( element, options ) + "." + getBuilderClassName( element, options ) + ".Codec" );
 		}
+		return result;
 	}
 
-	private void generateOptionalSetters( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The codec class of a type which is not among the codec classes of this round, read from the annotation of its
+	 * constructors, or null. In an incremental build, the type and its codec come from the class path. In an isolating
+	 * build, the codec classes of the round are not looked at, and the type can also be compiled in this round.
+	 */
+	private String findCompiledCodecClass( TypeElement type )
 	{
-		for( ParameterInformation info : ctx.optionalParameters )
+		ExecutableElement constructor = findCodecConstructor( type );
+		if( constructor == null )
+			return null;
+		ModelExtractor.TargetOptions options = model.getTargetOptions( constructor );
+		return getBuilderPackageName( constructor, options ) + "." + getBuilderClassName( constructor, options ) + ".Codec";
+	}
+
+	private ExecutableElement findCodecConstructor( TypeElement type )
+	{
+		for( ExecutableElement constructor : ElementFilter.constructorsIn( type.getEnclosedElements() ) )
 		{
-			sb.append( tab + tab + "@Override public OptionalParameters " + info.setterName + "(" + info.parameterType + " " + info.parameterName + ") {\r\n" );
-			sb.append( tab + tab + tab + "this." + info.parameterName + " = " + info.parameterName + ";\r\n" );
-			sb.append( tab + tab + tab + "return this;\r\n" );
-			sb.append( tab + tab + "}\r\n" );
-			sb.append( "\r\n" );
+			if( model.getTargetOptions( constructor ).codec )
+				return constructor;
 		}
+		return null;
 	}
 
-	private void generateBootstrapMethod( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The tag of a codec type does not depend on the other codec types, so that adding one does not change what is
+	 * already written
+	 */
+	private int getCodecTag( TypeElement type )
 	{
-		if( !ctx.mandatoryParameters.isEmpty() )
+		ExecutableElement constructor = findCodecConstructor( type );
+		int codecTag = constructor == null ? 0 : model.getTargetOptions( constructor ).codecTag;
+		return codecTag != 0 ? codecTag : type.getQualifiedName().toString().hashCode();
+	}
+
+	/**
+	 * Finds how to read each constructor parameter back from an instance, and which codecs can encode the parameters
+	 * which are neither primitives nor strings. Returns null if a parameter cannot be encoded.
+	 */
+	private List<CodecParameterInformation> analyzeCodecParameters( ExecutableElement element, String builderPackageName, List<ParameterInformation> parameters )
+	{
+		TypeElement type = model.getTypeInformation( element ).type;
+		List<CodecParameterInformation> result = new ArrayList<>();
+		boolean valid = true;
+		for( int i = 0; i < parameters.size(); i++ )
 		{
-			ParameterInformation info = ctx.mandatoryParameters.get( 0 );
-			String nextInterfaceName = ctx.mandatoryParameters.size() > 1 ? ctx.mandatoryParameters.get( 1 ).interfaceName : "OptionalParameters";
+			VariableElement parameter = element.getParameters().get( i );
+			ParameterInformation info = parameters.get( i );
 
-			if( ctx.staticCall )
+			String accessor = findAccessor( type, parameter, builderPackageName );
+			if( accessor == null )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "No accessible getter or field to read the value of this parameter for the codec", parameter );
+				valid = false;
+				continue;
+			}
+
+			List<CodecTypeInformation> codecTypes = new ArrayList<>();
+			TypeMirror parameterType = parameter.asType();
+			if( !parameterType.getKind().isPrimitive() && !"java.lang.String".equals( info.parameterType ) && getUnboxedTypeName( info.parameterType ) == null )
 			{
-				sb.append( tab + "public static " + nextInterfaceName + " " + info.setterName + "(" + info.parameterType + " " + info.parameterName + ") {\r\n" );
-				sb.append( tab + tab + "return new BuilderInternal()." + info.setterName + "(" + info.parameterName + ");\r\n" );
-				sb.append( tab + "}\r\n" );
+				codecTypes = findCodecTypes( parameterType );
+				if( codecTypes.isEmpty() )
+				{
+					processingEnv.getMessager().printMessage( Kind.ERROR, "The codec cannot encode the type of this parameter : only primitives, strings and types having a codec are supported", parameter );
+					valid = false;
+					continue;
+				}
+				if( !checkCodecTypes( parameter, codecTypes ) )
+				{
+					valid = false;
+					continue;
+				}
 			}
 
-			generatePrepareMethod( ctx, info.interfaceName, sb );
-		}
-		else
-		{
-			generatePrepareMethod( ctx, "OptionalParameters", sb );
+			result.add( new CodecParameterInformation( info, accessor, codecTypes ) );
 		}
+		return valid ? result : null;
 	}
 
-	private void generatePrepareMethod( GeneratorContext ctx, String shellInterfaceName, StringBuilder sb )
+	/**
+	 * The subtypes of a parameter type compiled beforehand, or of any parameter type in an isolating build, cannot all
+	 * be known, so such a type must be final. The tags
+	 * must identify each codec type, and differ from the 0 written for null values.
+	 */
+	private boolean checkCodecTypes( VariableElement parameter, List<CodecTypeInformation> codecTypes )
 	{
-		if( ctx.staticCall )
+		TypeMirror erasure = processingEnv.getTypeUtils().erasure( parameter.asType() );
+		if( erasure.getKind() == TypeKind.DECLARED )
 		{
-			sb.append( tab + "public static " + shellInterfaceName + " prepare() {\r\n" );
-			sb.append( tab + tab + "return new BuilderInternal();\r\n" );
-			sb.append( tab + "}\r\n" );
+			TypeElement parameterType = (TypeElement) ((DeclaredType) erasure).asElement();
+			if( !parameterType.getModifiers().contains( Modifier.FINAL ) && (isolating || !roundTypes.contains( model.getTypeInformation( parameterType ).topLevelType )) )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "The type of this parameter is not final, and the codecs of its subtypes cannot all be found when it is compiled beforehand or with the " + IsolatingOption + " option : make it final", parameter );
+				return false;
+			}
 		}
-		else
+
+		Map<Integer, String> tags = new HashMap<>();
+		for( CodecTypeInformation codecType : codecTypes )
 		{
-			sb.append( tab + "public static " + shellInterfaceName + " prepare(" + getEnclosingTypeElement( ctx.element ).getQualifiedName() + " instance) {\r\n" );
-			sb.append( tab + tab + "return new BuilderInternal(instance);\r\n" );
-			sb.append( tab + "}\r\n" );
+			String other = codecType.tag == 0 ? "null values" : tags.put( codecType.tag, codecType.typeFqn );
+			if( other != null )
+			{
+				processingEnv.getMessager().printMessage( Kind.ERROR, "The codec tag of " + codecType.typeFqn + " is the same as the one of " + other + " : give it another codecTag", parameter );
+				return false;
+			}
 		}
+		return true;
 	}
 
-	private void saveBuilderClass( GeneratorContext ctx, StringBuilder sb )
+	/**
+	 * The codec types assignable to the parameter type : those generated in this round, and the parameter type itself
+	 * when its codec was compiled beforehand. Each one is identified by its tag. The list is ordered so that subtypes
+	 * come before their super types, and then by name.
+	 */
+	private List<CodecTypeInformation> findCodecTypes( TypeMirror parameterType )
 	{
-		try
-		{
-			JavaFileObject jfo = processingEnv.getFiler().createSourceFile( ctx.builderClassFqn, ctx.element );
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror erasure = types.erasure( parameterType );
 
-			OutputStream os = jfo.openOutputStream();
-			PrintWriter pw = new PrintWriter( os );
-			pw.print( sb.toString() );
-			pw.close();
-			os.close();
+		Map<TypeElement, String> availableCodecClasses = codecClasses;
+		if( erasure.getKind() == TypeKind.DECLARED )
+		{
+			TypeElement parameterTypeElement = (TypeElement) ((DeclaredType) erasure).asElement();
+			String compiledCodecClass = codecClasses.containsKey( parameterTypeElement ) ? null : findCompiledCodecClass( parameterTypeElement );
+			if( compiledCodecClass != null )
+			{
+				availableCodecClasses = new HashMap<>( codecClasses );
+				availableCodecClasses.put( parameterTypeElement, compiledCodecClass );
+			}
+		}
 
-			processingEnv.getMessager().printMessage( Kind.NOTE, "Builder generated for this constructor: " + ctx.builderClassFqn, ctx.element );
+		List<TypeElement> candidates = new ArrayList<>();
+		for( TypeElement codecType : availableCodecClasses.keySet() )
+		{
+			if( types.isAssignable( types.erasure( codecType.asType() ), erasure ) )
+				candidates.add( codecType );
 		}
-		catch( IOException e )
+		Collections.sort( candidates, new Comparator<TypeElement>()
 		{
-			e.printStackTrace();
-			processingEnv.getMessager().printMessage( Kind.ERROR, "Error generating builder, a builder may already exist (" + ctx.builderClassFqn + ") !" + e, ctx.element );
+			@Override
+			public int compare( TypeElement o1, TypeElement o2 )
+			{
+				return o1.getQualifiedName().toString().compareTo( o2.getQualifiedName().toString() );
+			}
+		} );
+
+		List<CodecTypeInformation> result = new ArrayList<>();
+		for( TypeElement candidate : candidates )
+		{
+			int subtypeCount = 0;
+			for( TypeElement other : candidates )
+			{
+				if( types.isAssignable( types.erasure( other.asType() ), types.erasure( candidate.asType() ) ) )
+					subtypeCount++;
+			}
+			result.add( new CodecTypeInformation( candidate.getQualifiedName().toString(), availableCodecClasses.get( candidate ), getCodecTag( candidate ), subtypeCount ) );
 		}
+		Collections.sort( result, new Comparator<CodecTypeInformation>()
+		{
+			@Override
+			public int compare( CodecTypeInformation o1, CodecTypeInformation o2 )
+			{
+				return Integer.compare( o1.subtypeCount, o2.subtypeCount );
+			}
+		} );
+		return result;
 	}
 
-	private static class ParameterInformation
+	/**
+	 * Finds an accessor giving the value of a constructor parameter from an instance, accessible from the builder
+	 * package : a <code>getX()</code>, <code>isX()</code> or <code>x()</code> method, or a field named after the
+	 * parameter. Returns the text to append to an instance expression, or null if there is none.
+	 */
+	private String findAccessor( TypeElement type, VariableElement parameter, String builderPackageName )
 	{
-		String parameterName;
-		TypeMirror parameterType;
-		String interfaceName;
-		String setterName;
+		Types types = processingEnv.getTypeUtils();
+		String name = parameter.getSimpleName().toString();
+		List<? extends Element> members = processingEnv.getElementUtils().getAllMembers( type );
 
-		public ParameterInformation( String parameterName, TypeMirror parameterType, String setterName )
+		String[] methodNames = { "get" + capitalize( name ), "is" + capitalize( name ), name };
+		for( String methodName : methodNames )
 		{
-			this.parameterName = parameterName;
-			this.parameterType = parameterType;
-			this.interfaceName = "MandatoryParameter" + capitalize( parameterName );
-			this.setterName = setterName;
+			for( ExecutableElement method : ElementFilter.methodsIn( members ) )
+			{
+				if( method.getSimpleName().contentEquals( methodName ) && method.getParameters().isEmpty() && !method.getModifiers().contains( Modifier.STATIC ) && isAccessibleFrom( method, builderPackageName )
+						&& types.isAssignable( method.getReturnType(), parameter.asType() ) )
+					return methodName + "()";
+			}
+		}
+
+		for( VariableElement field : ElementFilter.fieldsIn( members ) )
+		{
+			if( field.getSimpleName().contentEquals( name ) && !field.getModifiers().contains( Modifier.STATIC ) && isAccessibleFrom( field, builderPackageName ) && types.isAssignable( field.asType(), parameter.asType() ) )
+				return name;
 		}
+
+		return null;
 	}
 
-	private static String getPackageName( Element element )
+	private boolean isAccessibleFrom( Element member, String packageName )
 	{
-		while( element != null && !(element instanceof PackageElement) )
-			element = element.getEnclosingElement();
-		if( element == null )
-			return null;
-		return ((PackageElement) element).getQualifiedName().toString();
+		if( member.getModifiers().contains( Modifier.PUBLIC ) )
+			return true;
+		if( member.getModifiers().contains( Modifier.PRIVATE ) )
+			return false;
+		return packageName.equals( model.getTypeInformation( member ).packageName );
 	}
 
-	private static TypeElement getEnclosingTypeElement( Element element )
+	/**
+	 * Finds the overloads of the target whose parameters all have the same name and type as one of the target
+	 * parameters, including all the mandatory ones. Overloads omitting a parameter with a declared default value are
+	 * ignored since the builder must then apply the declared value. The result is sorted by increasing number of
+	 * parameters, the first overload whose omitted parameters have not been set being the one to call. Only the
+	 * overloads accessible from the builder package can be called.
+	 */
+	private void analyzeOverloads( ExecutableElement element, String builderPackageName, List<ParameterInformation> parameters, List<OverloadInformation> overloads )
 	{
-		while( element != null && !(element instanceof TypeElement) )
-			element = element.getEnclosingElement();
-		if( element == null )
-			return null;
-		return (TypeElement) element;
+		TypeElement enclosingType = model.getTypeInformation( element ).type;
+		List<ExecutableElement> candidates = element.getKind() == ElementKind.CONSTRUCTOR ? ElementFilter.constructorsIn( enclosingType.getEnclosedElements() ) : ElementFilter.methodsIn( enclosingType.getEnclosedElements() );
+
+		candidates: for( ExecutableElement candidate : candidates )
+		{
+			if( candidate.equals( element ) || !isAccessibleFrom( candidate, builderPackageName ) || !candidate.getSimpleName().equals( element.getSimpleName() )
+					|| candidate.getModifiers().contains( Modifier.STATIC ) != element.getModifiers().contains( Modifier.STATIC )
+					|| !processingEnv.getTypeUtils().isSameType( candidate.getReturnType(), element.getReturnType() ) )
+				continue;
+
+			List<ParameterInformation> overloadParameters = new ArrayList<>();
+			for( VariableElement candidateParameter : candidate.getParameters() )
+			{
+				int index = findParameter( element, candidateParameter );
+				if( index < 0 )
+					continue candidates;
+				overloadParameters.add( parameters.get( index ) );
+			}
+
+			long omittedMask = 0;
+			for( ParameterInformation info : parameters )
+			{
+				if( overloadParameters.contains( info ) )
+					continue;
+				if( info.optionalIndex < 0 || info.declaredDefaultValue != null )
+					continue candidates;
+				omittedMask |= 1L << info.optionalIndex;
+			}
+
+			// same parameters as the target itself
+			if( omittedMask == 0 )
+				continue;
+
+			overloads.add( new OverloadInformation( overloadParameters, omittedMask ) );
+		}
+
+		Collections.sort( overloads, new Comparator<OverloadInformation>()
+		{
+			@Override
+			public int compare( OverloadInformation o1, OverloadInformation o2 )
+			{
+				return Integer.compare( o1.parameters.size(), o2.parameters.size() );
+			}
+		} );
+	}
+
+	private int findParameter( ExecutableElement element, VariableElement parameter )
+	{
+		List<? extends VariableElement> elementParameters = element.getParameters();
+		for( int i = 0; i < elementParameters.size(); i++ )
+		{
+			VariableElement elementParameter = elementParameters.get( i );
+			if( elementParameter.getSimpleName().equals( parameter.getSimpleName() ) && processingEnv.getTypeUtils().isSameType( elementParameter.asType(), parameter.asType() ) )
+				return i;
+		}
+		return -1;
+	}
+
+	private static boolean hasDeclaredDefaultValues( List<ParameterInformation> parameters )
+	{
+		for( ParameterInformation info : parameters )
+		{
+			if( info.declaredDefaultValue != null )
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Renders the builders source code in parallel on the rendering pool. The result is in the same order as the
+	 * contexts.
+	 */
+	private List<String> renderBuilderClasses( List<GeneratorContext> contexts )
+	{
+		List<String> sources = new ArrayList<>( contexts.size() );
+
+		List<Callable<String>> tasks = new ArrayList<>( contexts.size() );
+		for( final GeneratorContext ctx : contexts )
+		{
+			tasks.add( new Callable<String>()
+			{
+				@Override
+				public String call()
+				{
+					StringWriter writer = new StringWriter();
+					renderBuilderClass( ctx, writer );
+					return writer.toString();
+				}
+			} );
+		}
+
+		try
+		{
+			for( Future<String> future : renderingPool.invokeAll( tasks ) )
+				sources.add( future.get() );
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException( "Interrupted while generating builders", e );
+		}
+		catch( ExecutionException e )
+		{
+			throw new IllegalStateException( "Error while generating builders", e.getCause() );
+		}
+
+		return sources;
+	}
+
+	/**
+	 * Writes the profile report as a resource of the class output, and its summary as a note
+	 */
+	private void writeProfile()
+	{
+		try
+		{
+			FileObject report = processingEnv.getFiler().createResource( StandardLocation.CLASS_OUTPUT, "", profilePath );
+			try( Writer writer = new BufferedWriter( report.openWriter(), WriteBufferSize ) )
+			{
+				writer.write( profilePath.endsWith( ".csv" ) ? statistics.toProfileCsv() : statistics.toProfileJson() );
+			}
+			processingEnv.getMessager().printMessage( Kind.NOTE, "Builder generator profile: " + statistics.toProfileSummary() + ", report written to " + report.toUri() );
+		}
+		catch( IOException | IllegalArgumentException e )
+		{
+			processingEnv.getMessager().printMessage( Kind.WARNING, "Builder generator profile could not be written to " + profilePath + " : " + e );
+		}
+	}
+
+	/**
+	 * Only uses the context, so that it can be called from any thread
+	 */
+	private void renderBuilderClass( GeneratorContext ctx, Writer writer )
+	{
+		CodeWriter w = new CodeWriter( writer );
+
+		ProcessingStatistics.Measure measure = statistics.start();
+		generateBuilderClassCode( ctx, w );
+		long nanos = statistics.record( ProcessingStatistics.Phase.GENERATION, measure );
+		statistics.countElement( ctx.builderClassFqn, w.getLength(), nanos );
+	}
+
+	/**
+	 * Immutable description of a builder to generate. The element is only there for the {@link javax.annotation.processing.Filer} and
+	 * {@link javax.annotation.processing.Messager} calls made on the compiler thread, code generation only relies on the
+	 * other fields.
+	 */
+	private static class GeneratorContext
+	{
+		final ExecutableElement element;
+		final boolean staticCall;
+		final String calledInstanceTypeFqn;
+		final String packageName;
+		final String builderClassName;
+		final String finalMethodName;
+		final String returnTypeFqn;
+		final String resultTypeFqn;
+		final String finalCallText;
+		final List<ParameterInformation> parameters;
+		final List<ParameterInformation> mandatoryParameters;
+		final List<ParameterInformation> optionalParameters;
+		final String builderClassFqn;
+		final String inputsDigest;
+		final List<OverloadInformation> overloads;
+		final boolean reusable;
+		final boolean compact;
+		final boolean freezable;
+		final boolean bulk;
+		final boolean async;
+		final boolean batch;
+		final int memoizeSize;
+		final List<CodecParameterInformation> codecParameters;
+		final List<ConfigurerInformation> configurers;
+		final boolean terminalSetter;
+		final List<String> witherAccessors;
+		final boolean lazy;
+		final boolean flyweight;
+		final boolean binding;
+		final boolean rowBinder;
+		final long memoizeTtlMillis;
+
+		public GeneratorContext( ExecutableElement element, boolean staticCall, String calledInstanceTypeFqn, String packageName, String builderClassName, String finalMethodName, String returnTypeFqn, String resultTypeFqn,
+				String finalCallText, List<ParameterInformation> parameters, List<ParameterInformation> mandatoryParameters, List<ParameterInformation> optionalParameters, String builderClassFqn, ModelExtractor.TargetOptions options,
+				String inputsDigest, List<OverloadInformation> overloads, List<CodecParameterInformation> codecParameters, List<ConfigurerInformation> configurers,
+				List<String> witherAccessors )
+		{
+			this.element = element;
+			this.staticCall = staticCall;
+			this.calledInstanceTypeFqn = calledInstanceTypeFqn;
+			this.packageName = packageName;
+			this.builderClassName = builderClassName;
+			this.finalMethodName = finalMethodName;
+			this.returnTypeFqn = returnTypeFqn;
+			this.resultTypeFqn = resultTypeFqn;
+			this.finalCallText = finalCallText;
+			this.parameters = Collections.unmodifiableList( parameters );
+			this.mandatoryParameters = Collections.unmodifiableList( mandatoryParameters );
+			this.optionalParameters = Collections.unmodifiableList( optionalParameters );
+			this.builderClassFqn = builderClassFqn;
+			this.inputsDigest = inputsDigest;
+			this.overloads = Collections.unmodifiableList( overloads );
+			this.reusable = options.reusable;
+			this.compact = options.compact;
+			this.freezable = options.freezable;
+			this.bulk = options.bulk;
+			this.async = options.async;
+			this.batch = options.batch;
+			this.memoizeSize = options.memoize;
+			this.memoizeTtlMillis = options.memoizeTtlMillis;
+			this.flyweight = options.flyweight;
+			this.binding = options.binding;
+			this.rowBinder = options.rowBinder;
+			this.codecParameters = codecParameters == null ? null : Collections.unmodifiableList( codecParameters );
+			this.configurers = Collections.unmodifiableList( configurers );
+			this.terminalSetter = options.terminalSetter;
+			this.witherAccessors = witherAccessors == null ? null : Collections.unmodifiableList( witherAccessors );
+			this.lazy = options.lazy;
+		}
+
+		/**
+		 * Name of the interface returned by the builder entry points
+		 */
+		String getShellInterfaceName()
+		{
+			if( compact )
+				return builderClassName;
+			return mandatoryParameters.isEmpty() ? "OptionalParameters" : mandatoryParameters.get( 0 ).interfaceName;
+		}
+
+		/**
+		 * Name of the type returned by the optional parameters setters
+		 */
+		String getOptionalParametersTypeName()
+		{
+			return compact ? builderClassName : "OptionalParameters";
+		}
+
+		/**
+		 * Name of the class holding the builder state
+		 */
+		String getImplementationClassName()
+		{
+			return compact ? builderClassName : "BuilderInternal";
+		}
+
+		/**
+		 * Name of the type returned by the setter of a mandatory parameter : the interface of the next mandatory
+		 * parameter, the optional parameters or, for the last one of a terminal setter, the result of the target
+		 */
+		String getNextStageTypeName( int mandatoryIndex )
+		{
+			if( mandatoryIndex < mandatoryParameters.size() - 1 )
+				return mandatoryParameters.get( mandatoryIndex + 1 ).interfaceName;
+			return terminalSetter ? returnTypeFqn : "OptionalParameters";
+		}
+
+		/**
+		 * Prefix of the statements giving the result of a mandatory parameter setter
+		 */
+		String getNextStageReturn( int mandatoryIndex )
+		{
+			return "void".equals( getNextStageTypeName( mandatoryIndex ) ) ? "" : "return ";
+		}
+
+		List<ConfigurerInformation> getConfigurers( ParameterInformation info )
+		{
+			List<ConfigurerInformation> result = new ArrayList<>();
+			for( ConfigurerInformation configurer : configurers )
+			{
+				if( configurer.parameter == info )
+					result.add( configurer );
+			}
+			return result;
+		}
+
+		/**
+		 * Whether the builder tracks which optional parameters have been set, in a bit mask
+		 */
+		boolean usesOptionalParametersMask()
+		{
+			return !overloads.isEmpty() || hasDeclaredDefaultValues( optionalParameters );
+		}
+
+		String getOptionalParametersMaskType()
+		{
+			return optionalParameters.size() > 32 ? "long" : "int";
+		}
+
+		String getOptionalParametersMaskLiteral( long mask )
+		{
+			return "0x" + Long.toHexString( mask ) + (optionalParameters.size() > 32 ? "L" : "");
+		}
+
+		/**
+		 * Expression giving the value of a parameter when calling the target, applying its declared default value if
+		 * it has not been set
+		 */
+		String getArgumentExpression( ParameterInformation info )
+		{
+			if( info.declaredDefaultValue == null || info.optionalIndex < 0 )
+				return info.parameterName;
+			return "((" + OptionalParametersMaskField + " & " + getOptionalParametersMaskLiteral( 1L << info.optionalIndex ) + ") != 0 ? " + info.parameterName + " : (" + info.declaredDefaultValue + "))";
+		}
+
+		/**
+		 * Text of the target call, with the given expression as the called instance
+		 */
+		String getTargetCallText( String calledInstanceExpression )
+		{
+			if( staticCall )
+				return finalCallText;
+			return calledInstanceExpression + finalCallText.substring( "calledInstance".length() );
+		}
+
+		boolean isVoid()
+		{
+			return "void".equals( returnTypeFqn );
+		}
+
+		/**
+		 * Modifiers of the builder methods, which implement interface methods unless in compact mode
+		 */
+		String getMethodModifiers()
+		{
+			return compact ? "public " : "@Override public ";
+		}
+	}
+
+	private void analyzeParametersAndFeedLists( ExecutableElement element, List<ParameterInformation> parameters, List<ParameterInformation> mandatoryParameters, List<ParameterInformation> optionalParameters )
+	{
+		List<ModelExtractor.ParameterOptions> parameterOptions = model.getParameterOptions( element );
+		for( int i = 0; i < parameterOptions.size(); i++ )
+		{
+			VariableElement parameter = element.getParameters().get( i );
+			ModelExtractor.ParameterOptions options = parameterOptions.get( i );
+			String parameterName = parameter.getSimpleName().toString();
+			TypeMirror parameterType = parameter.asType();
+
+			String setterName = "with" + capitalize( parameterName );
+			if( !options.name.isEmpty() )
+				setterName = options.name;
+
+			boolean mandatory = options.mandatory;
+
+			String declaredDefaultValue = null;
+			if( !options.defaultValue.isEmpty() )
+			{
+				if( mandatory )
+					processingEnv.getMessager().printMessage( Kind.WARNING, "Default value ignored on a mandatory parameter", parameter );
+				else if( !isConstantExpression( options.defaultValue, element ) )
+					processingEnv.getMessager().printMessage( Kind.ERROR, "The default value must be a compile time constant : a literal, or a qualified reference to a constant field", parameter );
+				else
+					declaredDefaultValue = options.defaultValue;
+			}
+
+			ParameterInformation paramInfo = new ParameterInformation( parameterName, model.getTypeName( parameterType ), model.getErasedTypeName( parameterType ), getDefaultValue( parameterType ), declaredDefaultValue, setterName, mandatory ? -1 : optionalParameters.size() );
+			parameters.add( paramInfo );
+
+			List<ParameterInformation> list = optionalParameters;
+			if( mandatory )
+				list = mandatoryParameters;
+
+			list.add( paramInfo );
+		}
+	}
+
+	/**
+	 * Whether a declared default value is a compile time constant : a literal, possibly cast to a primitive type, or a
+	 * reference to a constant field qualified by its type. Types can be named relatively to the package of the target
+	 * or to <code>java.lang</code>.
+	 */
+	private boolean isConstantExpression( String value, ExecutableElement element )
+	{
+		String expression = value.trim();
+		Matcher cast = PrimitiveCastPattern.matcher( expression );
+		if( cast.matches() )
+			expression = cast.group( 2 ).trim();
+		if( LiteralPattern.matcher( expression ).matches() )
+			return true;
+
+		int separator = expression.lastIndexOf( '.' );
+		if( separator < 0 )
+			return false;
+		String typeName = expression.substring( 0, separator ).trim();
+		String fieldName = expression.substring( separator + 1 ).trim();
+
+		String[] candidateTypeNames = { typeName, model.getTypeInformation( element ).packageName + "." + typeName, "java.lang." + typeName };
+		for( String candidateTypeName : candidateTypeNames )
+		{
+			TypeElement type = processingEnv.getElementUtils().getTypeElement( candidateTypeName );
+			if( type == null )
+				continue;
+			for( VariableElement field : ElementFilter.fieldsIn( type.getEnclosedElements() ) )
+			{
+				if( field.getSimpleName().contentEquals( fieldName ) && field.getModifiers().contains( Modifier.STATIC ) && field.getConstantValue() != null )
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Digest of everything the generated code depends on : the target signature, the annotations on it and on its
+	 * parameters, and the processor options changing the generated code.
+	 */
+	private String computeInputsDigest( ExecutableElement element, String builderClassFqn )
+	{
+		ModelExtractor.TargetOptions options = model.getTargetOptions( element );
+		TypeElement enclosingType = model.getTypeInformation( element ).type;
+
+		StringBuilder inputs = new StringBuilder();
+		inputs.append( builderClassFqn ).append( '\n' );
+		inputs.append( element.getKind() ).append( ' ' ).append( element.getModifiers() ).append( ' ' ).append( enclosingType.getQualifiedName() ).append( '.' ).append( element.getSimpleName() ).append( ' ' )
+				.append( element.getReturnType() ).append( '\n' );
+		appendAnnotations( element, inputs );
+		for( VariableElement parameter : element.getParameters() )
+		{
+			inputs.append( parameter.getSimpleName() ).append( ' ' ).append( parameter.asType() ).append( '\n' );
+			appendAnnotations( parameter, inputs );
+		}
+		// the overloads of the target are candidates for dispatching
+		for( ExecutableElement sibling : ElementFilter.constructorsIn( enclosingType.getEnclosedElements() ) )
+			inputs.append( sibling.getModifiers() ).append( ' ' ).append( sibling ).append( '\n' );
+		for( ExecutableElement sibling : ElementFilter.methodsIn( enclosingType.getEnclosedElements() ) )
+		{
+			if( sibling.getSimpleName().equals( element.getSimpleName() ) )
+				inputs.append( sibling.getModifiers() ).append( ' ' ).append( sibling.getReturnType() ).append( ' ' ).append( sibling ).append( '\n' );
+		}
+		// codecs and withers read the parameters back through the members of the type
+		if( options.codec || options.withers )
+		{
+			for( Element member : processingEnv.getElementUtils().getAllMembers( enclosingType ) )
+			{
+				if( member.getKind() == ElementKind.FIELD || member.getKind() == ElementKind.METHOD )
+					inputs.append( member.getModifiers() ).append( ' ' ).append( member.asType() ).append( ' ' ).append( member ).append( '\n' );
+			}
+		}
+		inputs.append( processingEnv.getSourceVersion() ).append( '\n' );
+		// a codec depends on the codecs generated for the types of its parameters
+		if( options.codec )
+		{
+			inputs.append( new TreeSet<>( codecClasses.values() ) ).append( '\n' );
+			for( VariableElement parameter : element.getParameters() )
+			{
+				for( CodecTypeInformation codecType : findCodecTypes( parameter.asType() ) )
+					inputs.append( codecType.codecClassFqn ).append( ' ' ).append( codecType.tag ).append( ' ' );
+			}
+			inputs.append( '\n' );
+		}
+		// the configurers depend on the builders generated for the types of the parameters
+		if( options.nestedConfigurers )
+		{
+			Set<String> nested = new TreeSet<>();
+			List<NestedBuilderInformation> informations = new ArrayList<>( nestedBuilders.values() );
+			for( VariableElement parameter : element.getParameters() )
+			{
+				ExecutableElement compiledTarget = findCompiledNestedTarget( parameter.asType() );
+				NestedBuilderInformation compiledBuilder = compiledTarget == null ? null : findNestedBuilderOfTarget( compiledTarget );
+				if( compiledBuilder != null )
+					informations.add( compiledBuilder );
+			}
+			for( NestedBuilderInformation information : informations )
+				nested.add( information.builderClassFqn + ' ' + information.shellTypeName + ' ' + information.finalTypeName + ' ' + information.finalMethodName );
+			inputs.append( nested ).append( '\n' );
+		}
+		for( String option : GeneratedCodeOptions )
+			inputs.append( option ).append( '=' ).append( processingEnv.getOptions().get( option ) ).append( '\n' );
+
+		try
+		{
+			StringBuilder digest = new StringBuilder();
+			for( byte b : MessageDigest.getInstance( "SHA-256" ).digest( inputs.toString().getBytes( StandardCharsets.UTF_8 ) ) )
+				digest.append( String.format( "%02x", b ) );
+			return digest.toString();
+		}
+		catch( NoSuchAlgorithmException e )
+		{
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private void appendAnnotations( Element element, StringBuilder inputs )
+	{
+		for( AnnotationMirror annotation : element.getAnnotationMirrors() )
+		{
+			inputs.append( '@' ).append( annotation.getAnnotationType() );
+			Map<String, String> values = new TreeMap<>();
+			for( Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : processingEnv.getElementUtils().getElementValuesWithDefaults( annotation ).entrySet() )
+				values.put( value.getKey().getSimpleName().toString(), String.valueOf( value.getValue() ) );
+			inputs.append( values ).append( '\n' );
+		}
+	}
+
+	private String readExistingDigest( String packageName, String builderClassName )
+	{
+		try
+		{
+			FileObject existing = processingEnv.getFiler().getResource( StandardLocation.SOURCE_OUTPUT, packageName, builderClassName + ".java" );
+			try( BufferedReader reader = new BufferedReader( existing.openReader( true ) ) )
+			{
+				String header = reader.readLine();
+				if( header == null || !header.startsWith( DigestHeader ) )
+					return null;
+				return header.substring( DigestHeader.length() );
+			}
+		}
+		catch( IOException | IllegalArgumentException e )
+		{
+			// no previously generated builder
+			return null;
+		}
+	}
+
+	private void generateBuilderClassCode( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.compact )
+		{
+			generateCompactBuilderClassCode( ctx, w );
+			return;
+		}
+
+		generateFileHeader( ctx, w );
+		w.beginBlock( "public class ", ctx.builderClassName );
+
+		generateMetricsFields( ctx, w );
+
+		generateMandatoryParametersInterfaces( ctx, w );
+		generateOptionalParametersInterface( ctx, w );
+		generateBuilderImplementation( ctx, w );
+		generatePrototypeClass( ctx, w );
+		generateLazyClass( ctx, w );
+		generateBatchClass( ctx, w );
+		generateCodecClass( ctx, w );
+		generateFlyweightClass( ctx, w );
+		generateRowBinderClass( ctx, w );
+		generateBootstrapMethod( ctx, w );
+		generateBulkMethods( ctx, w );
+		generateMemoCache( ctx, w );
+		generateBindingEntryPoints( ctx, w );
+		generateWithers( ctx, w );
+
+		w.endBlock();
+	}
+
+	/**
+	 * In compact mode, the builder class holds the builder state itself. The mandatory parameters are given in order to
+	 * the static entry points, which avoids generating one interface per mandatory parameter.
+	 */
+	private void generateCompactBuilderClassCode( GeneratorContext ctx, CodeWriter w )
+	{
+		generateFileHeader( ctx, w );
+		w.beginBlock( "public final class ", ctx.builderClassName );
+
+		generateMetricsFields( ctx, w );
+
+		generatePrivateFields( ctx, w );
+		generateConstructor( ctx, w );
+		generateBuildMethod( ctx, w );
+		generateAsyncMethods( ctx, w, false );
+		generateLazyMethod( ctx, w, false );
+		generateOptionalSetters( ctx, w );
+		generateResetMethod( ctx, w );
+		generateFreezeMethod( ctx, w );
+		generateAddToBatchMethod( ctx, w );
+		generateBindMethods( ctx, w );
+		generatePrototypeClass( ctx, w );
+		generateLazyClass( ctx, w );
+		generateBatchClass( ctx, w );
+		generateCodecClass( ctx, w );
+		generateFlyweightClass( ctx, w );
+		generateRowBinderClass( ctx, w );
+		generateCompactBootstrapMethod( ctx, w );
+		generateBulkMethods( ctx, w );
+		generateMemoCache( ctx, w );
+		generateBindingEntryPoints( ctx, w );
+		generateWithers( ctx, w );
+
+		w.endBlock();
+	}
+
+	private void generateFileHeader( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.inputsDigest != null )
+			w.println( DigestHeader, ctx.inputsDigest );
+		w.println( "package ", ctx.packageName, ";" );
+		w.println();
+	}
+
+	/**
+	 * <code>reset()</code> is only declared by the shell interface, the one given by the entry points, so that it
+	 * cannot drop the mandatory values once the chain has gone past them
+	 */
+	private void generateMandatoryParametersInterfaces( GeneratorContext ctx, CodeWriter w )
+	{
+		for( int i = 0; i < ctx.mandatoryParameters.size(); i++ )
+		{
+			ParameterInformation paramInfo = ctx.mandatoryParameters.get( i );
+			String nextInterfaceName = ctx.getNextStageTypeName( i );
+
+			w.beginBlock( "public interface ", paramInfo.interfaceName );
+			if( ctx.reusable && i == 0 )
+				w.println( paramInfo.interfaceName, " reset();" );
+			w.println( nextInterfaceName, " ", paramInfo.setterName, "(", paramInfo.parameterType, " ", paramInfo.parameterName, ");" );
+			for( ConfigurerInformation configurer : ctx.getConfigurers( paramInfo ) )
+				w.println( nextInterfaceName, " ", configurer.configurerName, "(", configurer.getParameterDeclaration(), ");" );
+			w.endBlock();
+			w.println();
+		}
+	}
+
+	private void generateOptionalParametersInterface( GeneratorContext ctx, CodeWriter w )
+	{
+		w.beginBlock( "public interface OptionalParameters" );
+		w.println( ctx.returnTypeFqn, " ", ctx.finalMethodName, "();" );
+		if( ctx.reusable && ctx.mandatoryParameters.isEmpty() )
+			w.println( "OptionalParameters reset();" );
+		if( ctx.freezable )
+			w.println( "Prototype freeze();" );
+		if( ctx.async )
+		{
+			w.println( "java.util.concurrent.CompletableFuture<", ctx.resultTypeFqn, "> ", ctx.finalMethodName, "Async(java.util.concurrent.Executor executor);" );
+			if( virtualThreadsAvailable )
+				w.println( "java.util.concurrent.CompletableFuture<", ctx.resultTypeFqn, "> ", ctx.finalMethodName, "OnVirtualThread();" );
+		}
+		if( ctx.batch )
+			w.println( "Batch addTo(Batch batch);" );
+		if( ctx.lazy )
+			w.println( "java.util.function.Supplier<", ctx.returnTypeFqn, "> ", ctx.finalMethodName, "Lazy();" );
+		if( ctx.binding )
+			w.println( "OptionalParameters bind(String name, Object value);" );
+		for( ParameterInformation info : ctx.optionalParameters )
+		{
+			w.println( "OptionalParameters ", info.setterName, "(", info.parameterType, " ", info.parameterName, ");" );
+			for( ConfigurerInformation configurer : ctx.getConfigurers( info ) )
+				w.println( "OptionalParameters ", configurer.configurerName, "(", configurer.getParameterDeclaration(), ");" );
+		}
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateBuilderImplementation( GeneratorContext ctx, CodeWriter w )
+	{
+		w.print( "private static class BuilderInternal implements OptionalParameters" );
+		for( ParameterInformation info : ctx.mandatoryParameters )
+			w.print( ", ", info.interfaceName );
+		w.beginBlock();
+
+		generatePrivateFields( ctx, w );
+		generateConstructor( ctx, w );
+		generateBuildMethod( ctx, w );
+		generateAsyncMethods( ctx, w, false );
+		generateLazyMethod( ctx, w, false );
+		generateMandatorySetters( ctx, w );
+		generateOptionalSetters( ctx, w );
+		generateResetMethod( ctx, w );
+		generateFreezeMethod( ctx, w );
+		generateAddToBatchMethod( ctx, w );
+		generateBindMethods( ctx, w );
+
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateConstructor( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.staticCall )
+		{
+			// the compact builder class is public, it should only be instantiated through its entry points
+			if( ctx.compact )
+			{
+				w.beginBlock( "private ", ctx.getImplementationClassName(), "()" );
+				w.endBlock();
+				w.println();
+			}
+			return;
+		}
+
+		w.beginBlock( "private ", ctx.getImplementationClassName(), "(", ctx.calledInstanceTypeFqn, " calledInstance)" );
+		w.println( "this.calledInstance = calledInstance;" );
+		w.endBlock();
+		w.println();
+	}
+
+	private void generatePrivateFields( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.staticCall )
+			w.println( "private ", ctx.calledInstanceTypeFqn, " calledInstance;" );
+
+		for( ParameterInformation info : ctx.parameters )
+			w.println( "private ", info.parameterType, " ", info.parameterName, ";" );
+
+		if( ctx.usesOptionalParametersMask() )
+			w.println( "private ", ctx.getOptionalParametersMaskType(), " ", OptionalParametersMaskField, ";" );
+
+		w.println();
+	}
+
+	private void generateBuildMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.memoizeSize > 0 )
+		{
+			generateMemoizedBuildMethod( ctx, ctx.getMethodModifiers(), w );
+			return;
+		}
+
+		generateTargetMethod( ctx, ctx.getMethodModifiers(), ctx.finalMethodName, w );
+	}
+
+	/**
+	 * The memoized final method looks the builder state up in the cache, and only calls the target on a miss
+	 */
+	private void generateMemoizedBuildMethod( GeneratorContext ctx, String modifiers, CodeWriter w )
+	{
+		String uncachedMethodName = ctx.finalMethodName + "Uncached";
+
+		w.beginBlock( modifiers, ctx.returnTypeFqn, " ", ctx.finalMethodName, "()" );
+		w.print( "CacheKey key = new CacheKey(" );
+		generateMemoKeyArguments( ctx, w );
+		w.println( ");" );
+		w.println( "MemoSegment segment = MEMO_SEGMENTS[(key.memoHash ^ (key.memoHash >>> 16)) & (MEMO_SEGMENTS.length - 1)];" );
+		w.println( "MemoEntry entry;" );
+		w.beginBlock( "synchronized (segment)" );
+		w.println( "entry = segment.get(key);" );
+		if( ctx.memoizeTtlMillis > 0 )
+		{
+			w.beginBlock( "if (entry != null && entry.expiresAtNanos - System.nanoTime() <= 0)" );
+			w.println( "segment.remove(key);" );
+			w.println( "MEMO_EVICTIONS.increment();" );
+			w.println( "entry = null;" );
+			w.endBlock();
+		}
+		w.endBlock();
+		w.beginBlock( "if (entry != null)" );
+		w.println( "MEMO_HITS.increment();" );
+		w.println( "return entry.value;" );
+		w.endBlock();
+		w.println( "MEMO_MISSES.increment();" );
+		w.println( ctx.returnTypeFqn, " value = ", uncachedMethodName, "();" );
+		w.beginBlock( "synchronized (segment)" );
+		w.println( "segment.put(key, new MemoEntry(value", ctx.memoizeTtlMillis > 0 ? ", System.nanoTime() + MEMO_TTL_NANOS" : "", "));" );
+		w.endBlock();
+		w.println( "return value;" );
+		w.endBlock();
+		w.println();
+
+		generateTargetMethod( ctx, "private ", uncachedMethodName, w );
+	}
+
+	private void generateMemoKeyArguments( GeneratorContext ctx, CodeWriter w )
+	{
+		boolean first = true;
+		for( String field : getMemoKeyFields( ctx ) )
+		{
+			if( !first )
+				w.print( ", " );
+			else
+				first = false;
+			w.print( field );
+		}
+	}
+
+	/**
+	 * The memoization key holds everything the result depends on : the called instance, the parameter values and the
+	 * mask of the optional parameters set
+	 */
+	private static List<String> getMemoKeyFields( GeneratorContext ctx )
+	{
+		List<String> fields = new ArrayList<>();
+		if( !ctx.staticCall )
+			fields.add( "calledInstance" );
+		for( ParameterInformation info : ctx.parameters )
+			fields.add( info.parameterName );
+		if( ctx.usesOptionalParametersMask() )
+			fields.add( OptionalParametersMaskField );
+		return fields;
+	}
+
+	/**
+	 * The memoization cache is split in segments, each being a size bounded access ordered {@link java.util.LinkedHashMap}
+	 * guarded by its own lock, so that calls with different keys seldom contend. Keys store the parameter values
+	 * unboxed, and compare the called instance by identity.
+	 *
+	 * <p>
+	 * The segments never hold more results than the memoization size in total, each one holding at least
+	 * {@link #MinMemoSegmentCapacity} results. Eviction is least recently used within a segment, small caches having
+	 * a single segment.
+	 */
+	private void generateMemoCache( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.memoizeSize <= 0 )
+			return;
+
+		int segments = Math.min( MaxMemoSegments, Integer.highestOneBit( Math.max( 1, ctx.memoizeSize / MinMemoSegmentCapacity ) ) );
+		int segmentCapacity = ctx.memoizeSize / segments;
+
+		w.println();
+		w.println( "private static final java.util.concurrent.atomic.LongAdder MEMO_HITS = new java.util.concurrent.atomic.LongAdder();" );
+		w.println( "private static final java.util.concurrent.atomic.LongAdder MEMO_MISSES = new java.util.concurrent.atomic.LongAdder();" );
+		w.println( "private static final java.util.concurrent.atomic.LongAdder MEMO_EVICTIONS = new java.util.concurrent.atomic.LongAdder();" );
+		if( ctx.memoizeTtlMillis > 0 )
+			w.println( "private static final long MEMO_TTL_NANOS = ", String.valueOf( ctx.memoizeTtlMillis ), "L * 1000000L;" );
+		w.println( "private static final MemoSegment[] MEMO_SEGMENTS = new MemoSegment[", String.valueOf( segments ), "];" );
+		w.println();
+		w.beginBlock( "static" );
+		w.beginBlock( "for (int i = 0; i < MEMO_SEGMENTS.length; i++)" );
+		w.println( "MEMO_SEGMENTS[i] = new MemoSegment();" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public static long cacheHits()" );
+		w.println( "return MEMO_HITS.sum();" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "public static long cacheMisses()" );
+		w.println( "return MEMO_MISSES.sum();" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "public static long cacheEvictions()" );
+		w.println( "return MEMO_EVICTIONS.sum();" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "public static void clearCache()" );
+		w.beginBlock( "for (MemoSegment segment : MEMO_SEGMENTS)" );
+		w.beginBlock( "synchronized (segment)" );
+		w.println( "segment.clear();" );
+		w.endBlock();
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		// cache key
+		List<String> keyFields = getMemoKeyFields( ctx );
+		List<String> keyTypes = new ArrayList<>();
+		if( !ctx.staticCall )
+			keyTypes.add( ctx.calledInstanceTypeFqn );
+		for( ParameterInformation info : ctx.parameters )
+			keyTypes.add( info.parameterType );
+		if( ctx.usesOptionalParametersMask() )
+			keyTypes.add( ctx.getOptionalParametersMaskType() );
+
+		w.beginBlock( "private static final class CacheKey" );
+		for( int i = 0; i < keyFields.size(); i++ )
+			w.println( "private final ", keyTypes.get( i ), " ", keyFields.get( i ), ";" );
+		w.println( "private final int memoHash;" );
+		w.println();
+		w.print( "CacheKey(" );
+		for( int i = 0; i < keyFields.size(); i++ )
+			w.print( i > 0 ? ", " : "", keyTypes.get( i ), " ", keyFields.get( i ) );
+		w.beginBlock( ")" );
+		w.println( "int memoHash = 1;" );
+		for( int i = 0; i < keyFields.size(); i++ )
+		{
+			w.println( "this.", keyFields.get( i ), " = ", keyFields.get( i ), ";" );
+			boolean identity = !ctx.staticCall && i == 0;
+			w.println( "memoHash = 31 * memoHash + ", identity ? "System.identityHashCode(" + keyFields.get( i ) + ")" : getHashCodeExpression( keyTypes.get( i ), keyFields.get( i ) ), ";" );
+		}
+		w.println( "this.memoHash = memoHash;" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "@Override public int hashCode()" );
+		w.println( "return memoHash;" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "@Override public boolean equals(Object object)" );
+		w.beginBlock( "if (this == object)" );
+		w.println( "return true;" );
+		w.endBlock();
+		w.beginBlock( "if (!(object instanceof CacheKey))" );
+		w.println( "return false;" );
+		w.endBlock();
+		w.println( "CacheKey other = (CacheKey) object;" );
+		w.print( "return memoHash == other.memoHash" );
+		for( int i = 0; i < keyFields.size(); i++ )
+		{
+			boolean identity = !ctx.staticCall && i == 0;
+			String field = keyFields.get( i );
+			w.print( " && ", identity ? "this." + field + " == other." + field : getEqualsExpression( keyTypes.get( i ), "this." + field, "other." + field ) );
+		}
+		w.println( ";" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		// cache entry
+		w.beginBlock( "private static final class MemoEntry" );
+		w.println( "private final ", ctx.returnTypeFqn, " value;" );
+		if( ctx.memoizeTtlMillis > 0 )
+			w.println( "private final long expiresAtNanos;" );
+		w.println();
+		w.beginBlock( "MemoEntry(", ctx.returnTypeFqn, " value", ctx.memoizeTtlMillis > 0 ? ", long expiresAtNanos" : "", ")" );
+		w.println( "this.value = value;" );
+		if( ctx.memoizeTtlMillis > 0 )
+			w.println( "this.expiresAtNanos = expiresAtNanos;" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		// cache segment
+		w.println( "@SuppressWarnings(\"serial\")" );
+		w.beginBlock( "private static final class MemoSegment extends java.util.LinkedHashMap<CacheKey, MemoEntry>" );
+		w.beginBlock( "MemoSegment()" );
+		w.println( "super(16, 0.75f, true);" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "@Override protected boolean removeEldestEntry(java.util.Map.Entry<CacheKey, MemoEntry> eldest)" );
+		w.beginBlock( "if (size() > ", String.valueOf( segmentCapacity ), ")" );
+		w.println( "MEMO_EVICTIONS.increment();" );
+		w.println( "return true;" );
+		w.endBlock();
+		w.println( "return false;" );
+		w.endBlock();
+		w.endBlock();
+	}
+
+	/**
+	 * The primitive type of a boxed type name, or null if the type is not a boxed primitive
+	 */
+	private static String getUnboxedTypeName( String type )
+	{
+		switch( type )
+		{
+			case "java.lang.Boolean":
+				return "boolean";
+			case "java.lang.Byte":
+				return "byte";
+			case "java.lang.Short":
+				return "short";
+			case "java.lang.Character":
+				return "char";
+			case "java.lang.Integer":
+				return "int";
+			case "java.lang.Long":
+				return "long";
+			case "java.lang.Float":
+				return "float";
+			case "java.lang.Double":
+				return "double";
+			default:
+				return null;
+		}
+	}
+
+	private static boolean isPrimitiveTypeName( String type )
+	{
+		switch( type )
+		{
+			case "boolean":
+			case "byte":
+			case "short":
+			case "char":
+			case "int":
+			case "long":
+			case "float":
+			case "double":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Expression computing the hash code of a value, without boxing it if it is primitive
+	 */
+	private static String getHashCodeExpression( String type, String expression )
+	{
+		switch( type )
+		{
+			case "boolean":
+				return "Boolean.hashCode(" + expression + ")";
+			case "byte":
+			case "short":
+			case "char":
+			case "int":
+				return expression;
+			case "long":
+				return "Long.hashCode(" + expression + ")";
+			case "float":
+				return "Float.hashCode(" + expression + ")";
+			case "double":
+				return "Double.hashCode(" + expression + ")";
+			default:
+				return "java.util.Objects.hashCode(" + expression + ")";
+		}
+	}
+
+	private static String getEqualsExpression( String type, String left, String right )
+	{
+		switch( type )
+		{
+			case "boolean":
+			case "byte":
+			case "short":
+			case "char":
+			case "int":
+			case "long":
+				return left + " == " + right;
+			case "float":
+				return "Float.compare(" + left + ", " + right + ") == 0";
+			case "double":
+				return "Double.compare(" + left + ", " + right + ") == 0";
+			default:
+				return "java.util.Objects.equals(" + left + ", " + right + ")";
+		}
+	}
+
+	/**
+	 * The metrics fields are static final, so that the JIT removes the measuring code when metrics are disabled at
+	 * runtime
+	 */
+	private void generateMetricsFields( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !metrics )
+			return;
+
+		w.println( "private static final boolean METRICS_ENABLED = fr.lteconsulting.metrics.BuilderMetrics.isEnabled();" );
+		w.println( "private static final fr.lteconsulting.metrics.BuilderProbe METRICS_PROBE = fr.lteconsulting.metrics.BuilderMetrics.probe(\"", ctx.builderClassFqn, "\");" );
+		w.println();
+	}
+
+	/**
+	 * A method calling the target with the values of the fields holding the builder state. When metrics are enabled,
+	 * the call is measured in a separate method : the JIT decides to inline a method on its bytecode size, before
+	 * removing the disabled branch, and the builder can only be scalar replaced if the method is inlined.
+	 */
+	private void generateTargetMethod( GeneratorContext ctx, String modifiers, String methodName, CodeWriter w )
+	{
+		String measuredMethodName = methodName + "Measured";
+
+		w.beginBlock( modifiers, ctx.returnTypeFqn, " ", methodName, "()" );
+		if( metrics )
+		{
+			w.beginBlock( "if (METRICS_ENABLED)" );
+			if( ctx.isVoid() )
+			{
+				w.println( measuredMethodName, "();" );
+				w.println( "return;" );
+			}
+			else
+			{
+				w.println( "return ", measuredMethodName, "();" );
+			}
+			w.endBlock();
+		}
+		generateTargetCalls( ctx, w );
+		w.endBlock();
+		w.println();
+
+		if( !metrics )
+			return;
+
+		w.beginBlock( "private ", ctx.returnTypeFqn, " ", measuredMethodName, "()" );
+		w.println( "long metricsStart = System.nanoTime();" );
+		w.beginBlock( "try" );
+		generateTargetCalls( ctx, w );
+		w.continueBlock( "finally" );
+		w.println( "METRICS_PROBE.record(System.nanoTime() - metricsStart);" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateTargetCalls( GeneratorContext ctx, CodeWriter w )
+	{
+		for( OverloadInformation overload : ctx.overloads )
+		{
+			w.beginBlock( "if ((", OptionalParametersMaskField, " & ", ctx.getOptionalParametersMaskLiteral( overload.omittedMask ), ") == 0)" );
+			generateTargetCall( ctx, overload.parameters, w );
+			if( "void".equals( ctx.returnTypeFqn ) )
+				w.println( "return;" );
+			w.endBlock();
+		}
+		generateTargetCall( ctx, ctx.parameters, w );
+	}
+
+	/**
+	 * The asynchronous variants of the final method work on a snapshot of the builder state, so that the builder can be
+	 * modified or reused while the target is running. A prototype being immutable, it is its own snapshot.
+	 */
+	private void generateAsyncMethods( GeneratorContext ctx, CodeWriter w, boolean prototype )
+	{
+		if( !ctx.async )
+			return;
+
+		String futureType = "java.util.concurrent.CompletableFuture<" + ctx.resultTypeFqn + ">";
+		String modifiers = prototype ? "public " : ctx.getMethodModifiers();
+
+		w.beginBlock( modifiers, futureType, " ", ctx.finalMethodName, "Async(java.util.concurrent.Executor executor)" );
+		String snapshot = "this";
+		if( !prototype )
+		{
+			String implementationClassName = ctx.getImplementationClassName();
+			w.println( implementationClassName, " snapshot = new ", implementationClassName, "(", ctx.staticCall ? "" : "calledInstance", ");" );
+			generateStateCopy( ctx, "snapshot", "this", w );
+			snapshot = "snapshot";
+		}
+		w.println( "return java.util.concurrent.CompletableFuture.", ctx.isVoid() ? "runAsync" : "supplyAsync", "(", snapshot, "::", ctx.finalMethodName, ", executor);" );
+		w.endBlock();
+		w.println();
+
+		if( virtualThreadsAvailable )
+		{
+			w.beginBlock( modifiers, futureType, " ", ctx.finalMethodName, "OnVirtualThread()" );
+			w.println( "return ", ctx.finalMethodName, "Async(Thread::startVirtualThread);" );
+			w.endBlock();
+			w.println();
+		}
+	}
+
+	/**
+	 * The bulk methods take one array per parameter (a column) and call the target for each index, without any builder.
+	 * Optional columns can be null, the default value of the parameter is then used. The parallel variant splits the
+	 * range in chunks processed on a fork join pool. The lengths of the columns are checked before any call.
+	 */
+	private void generateBulkMethods( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.bulk )
+			return;
+
+		String methodName = ctx.finalMethodName + "All";
+
+		w.println();
+		w.println( "private static final int BULK_TASK_THRESHOLD = 1024;" );
+		w.println();
+
+		w.print( "public static void ", methodName, "(int bulkCount" );
+		generateBulkColumnsDeclaration( ctx, w );
+		w.beginBlock( ")" );
+		w.print( "bulkCheck(bulkCount" );
+		generateBulkColumnsArguments( ctx, w );
+		w.println( ");" );
+		w.print( "bulkRange(0, bulkCount" );
+		generateBulkColumnsArguments( ctx, w );
+		w.println( ");" );
+		w.endBlock();
+		w.println();
+
+		w.print( "public static void ", methodName, "(java.util.concurrent.ForkJoinPool bulkPool, int bulkCount" );
+		generateBulkColumnsDeclaration( ctx, w );
+		w.beginBlock( ")" );
+		w.print( "bulkCheck(bulkCount" );
+		generateBulkColumnsArguments( ctx, w );
+		w.println( ");" );
+		w.print( "bulkPool.invoke(new BulkTask(0, bulkCount" );
+		generateBulkColumnsArguments( ctx, w );
+		w.println( "));" );
+		w.endBlock();
+		w.println();
+
+		// a shorter column would fail in the middle of the calls, or in some of the tasks only
+		w.print( "private static void bulkCheck(int bulkCount" );
+		generateBulkColumnsDeclaration( ctx, w );
+		w.beginBlock( ")" );
+		if( !ctx.staticCall )
+			w.println( "bulkCheckColumn(bulkCount, bulkInstances.length, \"instances\");" );
+		if( !ctx.isVoid() )
+			w.println( "bulkCheckColumn(bulkCount, bulkResults.length, \"results\");" );
+		for( ParameterInformation info : ctx.parameters )
+		{
+			if( info.optionalIndex >= 0 )
+				w.print( "if (", info.parameterName, " != null) " );
+			w.println( "bulkCheckColumn(bulkCount, ", info.parameterName, ".length, \"", info.parameterName, "\");" );
+		}
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "private static void bulkCheckColumn(int bulkCount, int columnLength, String column)" );
+		w.beginBlock( "if (columnLength < bulkCount)" );
+		w.println( "throw new IllegalArgumentException(\"The \" + column + \" column has \" + columnLength + \" value(s), not \" + bulkCount);" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		w.print( "private static void bulkRange(int bulkFrom, int bulkTo" );
+		generateBulkColumnsDeclaration( ctx, w );
+		w.beginBlock( ")" );
+		w.beginBlock( "for (int bulkIndex = bulkFrom; bulkIndex < bulkTo; bulkIndex++)" );
+		if( !ctx.isVoid() )
+			w.print( "bulkResults[bulkIndex] = " );
+		w.print( ctx.getTargetCallText( "bulkInstances[bulkIndex]" ), "(" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+		{
+			ParameterInformation info = ctx.parameters.get( i );
+			if( i > 0 )
+				w.print( ", " );
+			if( info.optionalIndex < 0 )
+				w.print( info.parameterName, "[bulkIndex]" );
+			else
+				w.print( info.parameterName, " == null ? ", info.declaredDefaultValue != null ? "(" + info.declaredDefaultValue + ")" : info.defaultValue, " : ", info.parameterName, "[bulkIndex]" );
+		}
+		w.println( ");" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		// fork join tasks are serializable, but the tasks are never serialized
+		w.println( "@SuppressWarnings(\"serial\")" );
+		w.beginBlock( "private static final class BulkTask extends java.util.concurrent.RecursiveAction" );
+		w.println( "private final int bulkFrom;" );
+		w.println( "private final int bulkTo;" );
+		if( !ctx.staticCall )
+			w.println( "private final ", ctx.calledInstanceTypeFqn, "[] bulkInstances;" );
+		if( !ctx.isVoid() )
+			w.println( "private final ", ctx.returnTypeFqn, "[] bulkResults;" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( "private final ", info.parameterType, "[] ", info.parameterName, ";" );
+		w.println();
+		w.print( "BulkTask(int bulkFrom, int bulkTo" );
+		generateBulkColumnsDeclaration( ctx, w );
+		w.beginBlock( ")" );
+		w.println( "this.bulkFrom = bulkFrom;" );
+		w.println( "this.bulkTo = bulkTo;" );
+		if( !ctx.staticCall )
+			w.println( "this.bulkInstances = bulkInstances;" );
+		if( !ctx.isVoid() )
+			w.println( "this.bulkResults = bulkResults;" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( "this.", info.parameterName, " = ", info.parameterName, ";" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "@Override protected void compute()" );
+		w.beginBlock( "if (bulkTo - bulkFrom <= BULK_TASK_THRESHOLD)" );
+		w.print( "bulkRange(bulkFrom, bulkTo" );
+		generateBulkColumnsArguments( ctx, w );
+		w.println( ");" );
+		w.println( "return;" );
+		w.endBlock();
+		w.println( "int bulkMiddle = (bulkFrom + bulkTo) >>> 1;" );
+		w.print( "invokeAll(new BulkTask(bulkFrom, bulkMiddle" );
+		generateBulkColumnsArguments( ctx, w );
+		w.print( "), new BulkTask(bulkMiddle, bulkTo" );
+		generateBulkColumnsArguments( ctx, w );
+		w.println( "));" );
+		w.endBlock();
+		w.endBlock();
+	}
+
+	private void generateBulkColumnsDeclaration( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.staticCall )
+			w.print( ", ", ctx.calledInstanceTypeFqn, "[] bulkInstances" );
+		if( !ctx.isVoid() )
+			w.print( ", ", ctx.returnTypeFqn, "[] bulkResults" );
+		for( ParameterInformation info : ctx.parameters )
+			w.print( ", ", info.parameterType, "[] ", info.parameterName );
+	}
+
+	private void generateBulkColumnsArguments( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.staticCall )
+			w.print( ", bulkInstances" );
+		if( !ctx.isVoid() )
+			w.print( ", bulkResults" );
+		for( ParameterInformation info : ctx.parameters )
+			w.print( ", ", info.parameterName );
+	}
+
+	private void generateTargetCall( GeneratorContext ctx, List<ParameterInformation> arguments, CodeWriter w )
+	{
+		if( !"void".equals( ctx.returnTypeFqn ) )
+			w.print( "return " );
+		w.print( ctx.finalCallText, "(" );
+		boolean first = true;
+		for( ParameterInformation info : arguments )
+		{
+			if( !first )
+				w.print( ", " );
+			else
+				first = false;
+			w.print( ctx.getArgumentExpression( info ) );
+		}
+		w.println( ");" );
+	}
+
+	private void generateMandatorySetters( GeneratorContext ctx, CodeWriter w )
+	{
+		for( int i = 0; i < ctx.mandatoryParameters.size(); i++ )
+		{
+			ParameterInformation paramInfo = ctx.mandatoryParameters.get( i );
+			String nextInterfaceName = ctx.getNextStageTypeName( i );
+
+			w.beginBlock( "@Override public ", nextInterfaceName, " ", paramInfo.setterName, "(", paramInfo.parameterType, " ", paramInfo.parameterName, ")" );
+			w.println( "this.", paramInfo.parameterName, " = ", paramInfo.parameterName, ";" );
+			if( i == ctx.mandatoryParameters.size() - 1 && ctx.terminalSetter )
+				w.println( ctx.getNextStageReturn( i ), ctx.finalMethodName, "();" );
+			else
+				w.println( "return this;" );
+			w.endBlock();
+			w.println();
+
+			generateConfigurers( paramInfo, "@Override public ", nextInterfaceName, ctx.getNextStageReturn( i ), "", ctx, w );
+		}
+	}
+
+	private void generateOptionalSetters( GeneratorContext ctx, CodeWriter w )
+	{
+		for( ParameterInformation info : ctx.optionalParameters )
+		{
+			w.beginBlock( ctx.getMethodModifiers(), ctx.getOptionalParametersTypeName(), " ", info.setterName, "(", info.parameterType, " ", info.parameterName, ")" );
+			w.println( "this.", info.parameterName, " = ", info.parameterName, ";" );
+			if( ctx.usesOptionalParametersMask() )
+				w.println( OptionalParametersMaskField, " |= ", ctx.getOptionalParametersMaskLiteral( 1L << info.optionalIndex ), ";" );
+			w.println( "return this;" );
+			w.endBlock();
+			w.println();
+
+			generateConfigurers( info, ctx.getMethodModifiers(), ctx.getOptionalParametersTypeName(), "return ", "", ctx, w );
+		}
+	}
+
+	/**
+	 * A configurer receives a function which sets the parameters of a nested builder, builds the value and gives it
+	 * to the setter of the parameter
+	 */
+	private void generateConfigurers( ParameterInformation info, String modifiers, String returnTypeName, String returnPrefix, String target, GeneratorContext ctx, CodeWriter w )
+	{
+		for( ConfigurerInformation configurer : ctx.getConfigurers( info ) )
+		{
+			NestedBuilderInformation nested = configurer.nested;
+			w.beginBlock( modifiers, returnTypeName, " ", configurer.configurerName, "(", configurer.getParameterDeclaration(), ")" );
+			w.print( returnPrefix, target, info.setterName, "(configurer.apply(", nested.builderClassFqn, ".prepare())" );
+			if( nested.finalMethodName != null )
+				w.print( ".", nested.finalMethodName, "()" );
+			w.println( ");" );
+			w.endBlock();
+			w.println();
+		}
+	}
+
+	/**
+	 * Withers read the parameters from an existing instance, to initialize a builder or to call the constructor with
+	 * one of the values replaced
+	 */
+	private void generateWithers( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.witherAccessors == null )
+			return;
+
+		String implementationClassName = ctx.getImplementationClassName();
+
+		w.println();
+		w.beginBlock( "public static ", ctx.getOptionalParametersTypeName(), " from(", ctx.returnTypeFqn, " instance)" );
+		w.println( implementationClassName, " builder = new ", implementationClassName, "();" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+			w.println( "builder.", ctx.parameters.get( i ).parameterName, " = instance.", ctx.witherAccessors.get( i ), ";" );
+		if( ctx.usesOptionalParametersMask() )
+			w.println( "builder.", OptionalParametersMaskField, " = ", ctx.getOptionalParametersMaskLiteral( ctx.optionalParameters.size() == 64 ? -1L : (1L << ctx.optionalParameters.size()) - 1 ), ";" );
+		w.println( "return builder;" );
+		w.endBlock();
+
+		for( ParameterInformation replaced : ctx.parameters )
+		{
+			w.println();
+			w.beginBlock( "public static ", ctx.returnTypeFqn, " ", replaced.setterName, "(", ctx.returnTypeFqn, " instance, ", replaced.parameterType, " ", replaced.parameterName, ")" );
+			w.print( "return ", ctx.finalCallText, "(" );
+			for( int i = 0; i < ctx.parameters.size(); i++ )
+			{
+				ParameterInformation info = ctx.parameters.get( i );
+				w.print( i > 0 ? ", " : "", info == replaced ? info.parameterName : "instance." + ctx.witherAccessors.get( i ) );
+			}
+			w.println( ");" );
+			w.endBlock();
+		}
+	}
+
+	/**
+	 * Resets the builder to the state given by the entry points. A compact builder being its own shell, its mandatory
+	 * values, given to the entry points, are kept.
+	 */
+	private void generateResetMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.reusable )
+			return;
+
+		w.beginBlock( ctx.getMethodModifiers(), ctx.getShellInterfaceName(), " reset()" );
+		for( ParameterInformation info : ctx.compact ? ctx.optionalParameters : ctx.parameters )
+			w.println( "this.", info.parameterName, " = ", info.defaultValue, ";" );
+		if( ctx.usesOptionalParametersMask() )
+			w.println( OptionalParametersMaskField, " = 0;" );
+		w.println( "return this;" );
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateFreezeMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.freezable )
+			return;
+
+		w.beginBlock( ctx.getMethodModifiers(), "Prototype freeze()" );
+		w.println( "return new Prototype(this);" );
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * A prototype is an immutable copy of the builder state. Its fields being final, it can be shared between threads
+	 * without synchronization. Each derived builder starts with a copy of these fields.
+	 */
+	private void generatePrototypeClass( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.freezable )
+			return;
+
+		String implementationClassName = ctx.getImplementationClassName();
+
+		w.beginBlock( "public static final class Prototype" );
+		if( !ctx.staticCall )
+			w.println( "private final ", ctx.calledInstanceTypeFqn, " calledInstance;" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( "private final ", info.parameterType, " ", info.parameterName, ";" );
+		if( ctx.usesOptionalParametersMask() )
+			w.println( "private final ", ctx.getOptionalParametersMaskType(), " ", OptionalParametersMaskField, ";" );
+		w.println();
+
+		w.beginBlock( "private Prototype(", implementationClassName, " builder)" );
+		generateStateCopy( ctx, "this", "builder", w );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public ", ctx.getOptionalParametersTypeName(), " derive()" );
+		w.println( implementationClassName, " builder = new ", implementationClassName, "(", ctx.staticCall ? "" : "calledInstance", ");" );
+		generateStateCopy( ctx, "builder", "this", w );
+		w.println( "return builder;" );
+		w.endBlock();
+		w.println();
+
+		if( ctx.memoizeSize > 0 )
+		{
+			generateMemoizedBuildMethod( ctx, "public ", w );
+		}
+		else
+		{
+			generateTargetMethod( ctx, "public ", ctx.finalMethodName, w );
+		}
+
+		generateAsyncMethods( ctx, w, true );
+		generateLazyMethod( ctx, w, true );
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * Binding by name dispatches on the parameter name with a string switch, which the compiler turns into a hash
+	 * lookup. <code>bindValue</code> returns the bit of the mandatory parameter bound, so that the missing ones can be
+	 * reported at once.
+	 */
+	private void generateBindMethods( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.binding )
+			return;
+
+		w.beginBlock( ctx.getMethodModifiers(), ctx.getOptionalParametersTypeName(), " bind(String name, Object value)" );
+		w.println( "bindValue(name, value);" );
+		w.println( "return this;" );
+		w.endBlock();
+		w.println();
+
+		w.println( "@SuppressWarnings(\"unchecked\")" );
+		w.beginBlock( "private long bindValue(String name, Object value)" );
+		w.beginBlock( "switch (name)" );
+		for( ParameterInformation info : ctx.parameters )
+		{
+			w.println( "case \"", info.parameterName, "\":" );
+			String conversion = getBindingConversion( info.parameterType, "name", "value" );
+			int mandatoryIndex = ctx.mandatoryParameters.indexOf( info );
+			if( mandatoryIndex >= 0 )
+			{
+				w.println( "    this.", info.parameterName, " = ", conversion, ";" );
+				w.println( "    return 0x", Long.toHexString( 1L << mandatoryIndex ), "L;" );
+			}
+			else
+			{
+				w.println( "    ", info.setterName, "(", conversion, ");" );
+				w.println( "    return 0;" );
+			}
+		}
+		w.println( "default:" );
+		w.println( "    throw new IllegalArgumentException(\"Unknown parameter \" + name);" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * The <code>fromMap</code> and <code>fromProperties</code> entry points, and the conversion methods of the bound
+	 * values
+	 */
+	private void generateBindingEntryPoints( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.binding )
+			return;
+
+		String implementationClassName = ctx.getImplementationClassName();
+		String instanceParameter = ctx.staticCall ? "" : ctx.calledInstanceTypeFqn + " calledInstance, ";
+
+		w.println();
+		w.beginBlock( "public static ", ctx.getOptionalParametersTypeName(), " fromMap(", instanceParameter, "java.util.Map<String, ?> values)" );
+		w.println( implementationClassName, " builder = new ", implementationClassName, "(", ctx.staticCall ? "" : "calledInstance", ");" );
+		w.println( "long bound = 0;" );
+		w.beginBlock( "for (java.util.Map.Entry<String, ?> entry : values.entrySet())" );
+		w.println( "bound |= builder.bindValue(entry.getKey(), entry.getValue());" );
+		w.endBlock();
+		if( !ctx.mandatoryParameters.isEmpty() )
+			w.println( "checkMandatoryBound(bound);" );
+		w.println( "return builder;" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public static ", ctx.getOptionalParametersTypeName(), " fromProperties(", instanceParameter, "java.util.Properties properties)" );
+		w.println( implementationClassName, " builder = new ", implementationClassName, "(", ctx.staticCall ? "" : "calledInstance", ");" );
+		w.println( "long bound = 0;" );
+		w.beginBlock( "for (String name : properties.stringPropertyNames())" );
+		w.println( "bound |= builder.bindValue(name, properties.getProperty(name));" );
+		w.endBlock();
+		if( !ctx.mandatoryParameters.isEmpty() )
+			w.println( "checkMandatoryBound(bound);" );
+		w.println( "return builder;" );
+		w.endBlock();
+
+		if( !ctx.mandatoryParameters.isEmpty() )
+		{
+			long allBound = ctx.mandatoryParameters.size() == 64 ? -1L : (1L << ctx.mandatoryParameters.size()) - 1;
+
+			w.println();
+			w.beginBlock( "private static void checkMandatoryBound(long bound)" );
+			w.beginBlock( "if (bound == 0x", Long.toHexString( allBound ), "L)" );
+			w.println( "return;" );
+			w.endBlock();
+			w.println( "StringBuilder missing = new StringBuilder();" );
+			for( int i = 0; i < ctx.mandatoryParameters.size(); i++ )
+			{
+				w.beginBlock( "if ((bound & 0x", Long.toHexString( 1L << i ), "L) == 0)" );
+				w.println( "missing.append(missing.length() == 0 ? \"\" : \", \").append(\"", ctx.mandatoryParameters.get( i ).parameterName, "\");" );
+				w.endBlock();
+			}
+			w.println( "throw new IllegalArgumentException(\"Missing mandatory parameters : \" + missing);" );
+			w.endBlock();
+		}
+
+		Set<String> primitiveTypes = new TreeSet<>();
+		for( ParameterInformation info : ctx.parameters )
+		{
+			String primitiveType = isPrimitiveTypeName( info.parameterType ) ? info.parameterType : getUnboxedTypeName( info.parameterType );
+			if( primitiveType != null )
+				primitiveTypes.add( primitiveType );
+		}
+		for( String primitiveType : primitiveTypes )
+			generateBindingConversionMethod( primitiveType, w );
+	}
+
+	/**
+	 * Expression converting a bound value to the type of a parameter. Numbers are converted with their
+	 * <code>xxxValue()</code> methods, strings are parsed.
+	 */
+	private static String getBindingConversion( String type, String name, String value )
+	{
+		if( isPrimitiveTypeName( type ) )
+			return "to" + capitalize( type ) + "(" + name + ", " + value + ")";
+		String unboxedType = getUnboxedTypeName( type );
+		if( unboxedType != null )
+			return value + " == null ? null : " + type + ".valueOf(to" + capitalize( unboxedType ) + "(" + name + ", " + value + "))";
+		if( "java.lang.String".equals( type ) )
+			return value + " == null ? null : " + value + ".toString()";
+		return "(" + type + ") " + value;
+	}
+
+	private void generateBindingConversionMethod( String primitiveType, CodeWriter w )
+	{
+		w.println();
+		w.beginBlock( "private static ", primitiveType, " to", capitalize( primitiveType ), "(String name, Object value)" );
+		switch( primitiveType )
+		{
+			case "boolean":
+				w.beginBlock( "if (value instanceof Boolean)" );
+				w.println( "return (Boolean) value;" );
+				w.endBlock();
+				w.beginBlock( "if (value instanceof String)" );
+				w.println( "return Boolean.parseBoolean((String) value);" );
+				w.endBlock();
+				break;
+			case "char":
+				w.beginBlock( "if (value instanceof Character)" );
+				w.println( "return (Character) value;" );
+				w.endBlock();
+				// empty or longer strings are not truncated, they are reported below with the name of the parameter
+				w.beginBlock( "if (value instanceof String && ((String) value).length() == 1)" );
+				w.println( "return ((String) value).charAt(0);" );
+				w.endBlock();
+				break;
+			default:
+				w.beginBlock( "if (value instanceof Number)" );
+				w.println( "return ((Number) value).", primitiveType, "Value();" );
+				w.endBlock();
+				w.beginBlock( "if (value instanceof String)" );
+				w.println( "return ", getBoxedTypeSimpleName( primitiveType ), ".parse", capitalize( primitiveType ), "((String) value);" );
+				w.endBlock();
+				break;
+		}
+		w.println( "throw new IllegalArgumentException(\"Cannot convert the value of \" + name + \" to ", primitiveType, " : \" + value);" );
+		w.endBlock();
+	}
+
+	private static String getBoxedTypeSimpleName( String primitiveType )
+	{
+		switch( primitiveType )
+		{
+			case "int":
+				return "Integer";
+			case "char":
+				return "Character";
+			default:
+				return capitalize( primitiveType );
+		}
+	}
+
+	private void generateAddToBatchMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.batch )
+			return;
+
+		w.beginBlock( ctx.getMethodModifiers(), "Batch addTo(Batch batch)" );
+		w.println( "batch.append(this);" );
+		w.println( "return batch;" );
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * A batch stores the state of the builders added to it in one growable array per field, instead of keeping the
+	 * builders. Running it replays each index through a single builder per range, so that overload dispatch, default
+	 * values and memoization behave as with the final method.
+	 */
+	private void generateBatchClass( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.batch )
+			return;
+
+		String implementationClassName = ctx.getImplementationClassName();
+
+		List<String> columnNames = new ArrayList<>();
+		List<String> columnTypes = new ArrayList<>();
+		if( !ctx.staticCall )
+		{
+			columnNames.add( "calledInstance" );
+			columnTypes.add( ctx.calledInstanceTypeFqn );
+		}
+		for( ParameterInformation info : ctx.parameters )
+		{
+			columnNames.add( info.parameterName );
+			columnTypes.add( info.erasedParameterType );
+		}
+		if( ctx.usesOptionalParametersMask() )
+		{
+			columnNames.add( OptionalParametersMaskField );
+			columnTypes.add( ctx.getOptionalParametersMaskType() );
+		}
+
+		// columns of parameterized types are arrays of their erasure
+		w.println( "@SuppressWarnings({ \"rawtypes\", \"unchecked\" })" );
+		w.beginBlock( "public static final class Batch" );
+		w.println( "private static final int BATCH_TASK_THRESHOLD = 1024;" );
+		w.println();
+		w.println( "private int batchSize;" );
+		for( int i = 0; i < columnNames.size(); i++ )
+			w.println( "private ", columnTypes.get( i ), "[] ", columnNames.get( i ), ";" );
+		w.println();
+
+		w.beginBlock( "public Batch()" );
+		w.println( "this(16);" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public Batch(int initialCapacity)" );
+		for( int i = 0; i < columnNames.size(); i++ )
+			w.println( columnNames.get( i ), " = new ", columnTypes.get( i ), "[Math.max(1, initialCapacity)];" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public int size()" );
+		w.println( "return batchSize;" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public void clear()" );
+		for( int i = 0; i < columnNames.size(); i++ )
+		{
+			// release the references held by the batch
+			if( !isPrimitiveTypeName( columnTypes.get( i ) ) )
+				w.println( "java.util.Arrays.fill(", columnNames.get( i ), ", 0, batchSize, null);" );
+		}
+		w.println( "batchSize = 0;" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "private void append(", implementationClassName, " builder)" );
+		if( !columnNames.isEmpty() )
+		{
+			w.beginBlock( "if (batchSize == ", columnNames.get( 0 ), ".length)" );
+			w.println( "int capacity = batchSize * 2;" );
+			for( String columnName : columnNames )
+				w.println( columnName, " = java.util.Arrays.copyOf(", columnName, ", capacity);" );
+			w.endBlock();
+		}
+		for( String columnName : columnNames )
+			w.println( columnName, "[batchSize] = builder.", columnName, ";" );
+		w.println( "batchSize++;" );
+		w.endBlock();
+		w.println();
+
+		if( ctx.isVoid() )
+		{
+			w.beginBlock( "public void run()" );
+			w.println( "runRange(0, batchSize, null);" );
+			w.endBlock();
+			w.println();
+
+			w.beginBlock( "public void run(java.util.concurrent.ForkJoinPool pool)" );
+			w.println( "pool.invoke(new BatchTask(0, batchSize, null));" );
+			w.endBlock();
+			w.println();
+		}
+		else
+		{
+			w.beginBlock( "public java.util.List<", ctx.resultTypeFqn, "> run()" );
+			w.println( "Object[] batchResults = new Object[batchSize];" );
+			w.println( "runRange(0, batchSize, batchResults);" );
+			w.println( "return results(batchResults);" );
+			w.endBlock();
+			w.println();
+
+			w.beginBlock( "public java.util.List<", ctx.resultTypeFqn, "> run(java.util.concurrent.ForkJoinPool pool)" );
+			w.println( "Object[] batchResults = new Object[batchSize];" );
+			w.println( "pool.invoke(new BatchTask(0, batchSize, batchResults));" );
+			w.println( "return results(batchResults);" );
+			w.endBlock();
+			w.println();
+
+			w.beginBlock( "private static java.util.List<", ctx.resultTypeFqn, "> results(Object[] batchResults)" );
+			w.println( "return (java.util.List<", ctx.resultTypeFqn, ">) (java.util.List<?>) java.util.Arrays.asList(batchResults);" );
+			w.endBlock();
+			w.println();
+		}
+
+		w.beginBlock( "private void runRange(int batchFrom, int batchTo, Object[] batchResults)" );
+		w.println( implementationClassName, " builder = new ", implementationClassName, "(", ctx.staticCall ? "" : "null", ");" );
+		w.beginBlock( "for (int batchIndex = batchFrom; batchIndex < batchTo; batchIndex++)" );
+		for( String columnName : columnNames )
+			w.println( "builder.", columnName, " = ", columnName, "[batchIndex];" );
+		if( ctx.isVoid() )
+			w.println( "builder.", ctx.finalMethodName, "();" );
+		else
+			w.println( "batchResults[batchIndex] = builder.", ctx.finalMethodName, "();" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		w.println( "@SuppressWarnings(\"serial\")" );
+		w.beginBlock( "private final class BatchTask extends java.util.concurrent.RecursiveAction" );
+		w.println( "private final int batchFrom;" );
+		w.println( "private final int batchTo;" );
+		w.println( "private final Object[] batchResults;" );
+		w.println();
+		w.beginBlock( "BatchTask(int batchFrom, int batchTo, Object[] batchResults)" );
+		w.println( "this.batchFrom = batchFrom;" );
+		w.println( "this.batchTo = batchTo;" );
+		w.println( "this.batchResults = batchResults;" );
+		w.endBlock();
+		w.println();
+		w.beginBlock( "@Override protected void compute()" );
+		w.beginBlock( "if (batchTo - batchFrom <= BATCH_TASK_THRESHOLD)" );
+		w.println( "runRange(batchFrom, batchTo, batchResults);" );
+		w.println( "return;" );
+		w.endBlock();
+		w.println( "int batchMiddle = (batchFrom + batchTo) >>> 1;" );
+		w.println( "invokeAll(new BatchTask(batchFrom, batchMiddle, batchResults), new BatchTask(batchMiddle, batchTo, batchResults));" );
+		w.endBlock();
+		w.endBlock();
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * The codec writes the constructor parameters, in order, read back from the instance through its accessors.
+	 * Primitives are written with their natural size, strings as their UTF-8 length followed by their bytes (-1 for
+	 * null), boxed values after a presence byte, and other types after an int tag identifying their codec (0 for null).
+	 */
+	private void generateCodecClass( GeneratorContext ctx, CodeWriter w )
+	{
+		if( ctx.codecParameters == null )
+			return;
+
+		w.beginBlock( "public static final class Codec" );
+		w.beginBlock( "private Codec()" );
+		w.endBlock();
+		w.println();
+
+		boolean usesStrings = false;
+		for( CodecParameterInformation codecInfo : ctx.codecParameters )
+			usesStrings |= "java.lang.String".equals( codecInfo.parameter.parameterType );
+
+		for( CodecStream stream : CodecStream.values() )
+		{
+			w.beginBlock( "public static void write(", stream.outputType, " ", stream.outputName, ", ", ctx.returnTypeFqn, " codecValue)", stream.throwsClause );
+			for( CodecParameterInformation codecInfo : ctx.codecParameters )
+			{
+				String value = "codecValue." + codecInfo.accessor;
+				String type = codecInfo.parameter.parameterType;
+				if( isPrimitiveTypeName( type ) )
+					w.println( stream.write( type, value ), ";" );
+				else if( "java.lang.String".equals( type ) )
+					w.println( "writeUtf8(", stream.outputName, ", ", value, ");" );
+				else
+					w.println( "write", capitalize( codecInfo.parameter.parameterName ), "(", stream.outputName, ", ", value, ");" );
+			}
+			w.endBlock();
+			w.println();
+
+			w.beginBlock( "public static ", ctx.returnTypeFqn, " read(", stream.inputType, " ", stream.inputName, ")", stream.throwsClause );
+			for( CodecParameterInformation codecInfo : ctx.codecParameters )
+			{
+				String type = codecInfo.parameter.parameterType;
+				w.print( type, " ", codecInfo.parameter.parameterName, " = " );
+				if( isPrimitiveTypeName( type ) )
+					w.println( stream.read( type ), ";" );
+				else if( "java.lang.String".equals( type ) )
+					w.println( "readUtf8(", stream.inputName, ");" );
+				else
+					w.println( "read", capitalize( codecInfo.parameter.parameterName ), "(", stream.inputName, ");" );
+			}
+			w.print( "return ", ctx.finalCallText, "(" );
+			for( int i = 0; i < ctx.codecParameters.size(); i++ )
+				w.print( i > 0 ? ", " : "", ctx.codecParameters.get( i ).parameter.parameterName );
+			w.println( ");" );
+			w.endBlock();
+			w.println();
+
+			for( CodecParameterInformation codecInfo : ctx.codecParameters )
+				generateCodecValueMethods( codecInfo, stream, w );
+
+			if( usesStrings )
+				generateCodecStringMethods( stream, w );
+		}
+
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * A flyweight reads the parameters of one record at a time from a buffer holding fixed size records. Each parameter
+	 * is stored at a fixed offset in the record, in the order of declaration and without padding, booleans taking one
+	 * byte. A single flyweight can be moved along the whole buffer, and objects are only built for the records kept.
+	 */
+	private void generateFlyweightClass( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.flyweight )
+			return;
+
+		w.beginBlock( "public static final class Flyweight" );
+		int offset = 0;
+		for( ParameterInformation info : ctx.parameters )
+		{
+			w.println( "private static final int ", getFlyweightOffsetName( info ), " = ", String.valueOf( offset ), ";" );
+			offset += getPrimitiveSize( info.parameterType );
+		}
+		w.println( "public static final int RECORD_SIZE = ", String.valueOf( offset ), ";" );
+		w.println();
+		w.println( "private java.nio.ByteBuffer flyweightBuffer;" );
+		w.println( "private int flyweightOffset;" );
+		w.println();
+
+		w.beginBlock( "public static int count(java.nio.ByteBuffer flyweightBuffer)" );
+		w.println( "return flyweightBuffer.limit() / RECORD_SIZE;" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public Flyweight wrap(java.nio.ByteBuffer flyweightBuffer, int index)" );
+		w.println( "this.flyweightBuffer = flyweightBuffer;" );
+		w.println( "this.flyweightOffset = index * RECORD_SIZE;" );
+		w.println( "return this;" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public Flyweight moveTo(int index)" );
+		w.println( "this.flyweightOffset = index * RECORD_SIZE;" );
+		w.println( "return this;" );
+		w.endBlock();
+		w.println();
+
+		for( ParameterInformation info : ctx.parameters )
+		{
+			w.beginBlock( "public ", info.parameterType, " get", capitalize( info.parameterName ), "()" );
+			w.println( "return ", getFlyweightRead( info.parameterType, "flyweightOffset + " + getFlyweightOffsetName( info ) ), ";" );
+			w.endBlock();
+			w.println();
+		}
+
+		w.print( "public ", ctx.returnTypeFqn, " ", ctx.finalMethodName, "(" );
+		if( !ctx.staticCall )
+			w.print( ctx.calledInstanceTypeFqn, " calledInstance" );
+		w.beginBlock( ")" );
+		if( !ctx.isVoid() )
+			w.print( "return " );
+		w.print( ctx.getTargetCallText( "calledInstance" ), "(" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+			w.print( i > 0 ? ", " : "", "get", capitalize( ctx.parameters.get( i ).parameterName ), "()" );
+		w.println( ");" );
+		w.endBlock();
+		w.println();
+
+		w.print( "public static void write(java.nio.ByteBuffer flyweightBuffer, int flyweightIndex" );
+		for( ParameterInformation info : ctx.parameters )
+			w.print( ", ", info.parameterType, " ", info.parameterName );
+		w.beginBlock( ")" );
+		w.println( "int flyweightOffset = flyweightIndex * RECORD_SIZE;" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( getFlyweightWrite( info.parameterType, "flyweightOffset + " + getFlyweightOffsetName( info ), info.parameterName ), ";" );
+		w.endBlock();
+		w.println();
+
+		w.print( "public static void append(java.nio.ByteBuffer flyweightBuffer" );
+		for( ParameterInformation info : ctx.parameters )
+			w.print( ", ", info.parameterType, " ", info.parameterName );
+		w.beginBlock( ")" );
+		w.println( "int flyweightOffset = flyweightBuffer.position();" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( getFlyweightWrite( info.parameterType, "flyweightOffset + " + getFlyweightOffsetName( info ), info.parameterName ), ";" );
+		w.println( "flyweightBuffer.position(flyweightOffset + RECORD_SIZE);" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * A row binder maps the columns of a header to the parameters once, and then calls the target for each row with
+	 * the parsed fields. An empty field, a column missing from the header or a row shorter than the header gives the
+	 * default value of the parameter. Integers and booleans are parsed without allocating, and a malformed value throws
+	 * an IllegalArgumentException. Lines are split on a separator character, quoting is not supported.
+	 */
+	private void generateRowBinderClass( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.rowBinder )
+			return;
+
+		String instanceParameter = ctx.staticCall ? "" : ctx.calledInstanceTypeFqn + " calledInstance, ";
+
+		w.beginBlock( "public static final class RowBinder" );
+		w.println( "private final int[] rowColumnParameters;" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( "private final int ", info.parameterName, "Column;" );
+		w.println();
+
+		w.beginBlock( "private RowBinder(int[] rowColumnParameters)" );
+		w.println( "this.rowColumnParameters = rowColumnParameters;" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+			w.println( "this.", ctx.parameters.get( i ).parameterName, "Column = rowColumnOf(rowColumnParameters, ", String.valueOf( i ), ");" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public static RowBinder forHeader(CharSequence... header)" );
+		w.println( "int[] rowColumnParameters = new int[header.length];" );
+		w.beginBlock( "for (int rowColumn = 0; rowColumn < header.length; rowColumn++)" );
+		w.beginBlock( "switch (header[rowColumn].toString().trim())" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+		{
+			w.println( "case \"", ctx.parameters.get( i ).parameterName, "\":" );
+			w.println( "    rowColumnParameters[rowColumn] = ", String.valueOf( i ), ";" );
+			w.println( "    break;" );
+		}
+		w.println( "default:" );
+		w.println( "    rowColumnParameters[rowColumn] = -1;" );
+		w.endBlock();
+		w.endBlock();
+		w.println( "RowBinder binder = new RowBinder(rowColumnParameters);" );
+		if( !ctx.mandatoryParameters.isEmpty() )
+		{
+			w.println( "StringBuilder missing = new StringBuilder();" );
+			for( ParameterInformation info : ctx.mandatoryParameters )
+			{
+				w.beginBlock( "if (binder.", info.parameterName, "Column < 0)" );
+				w.println( "missing.append(missing.length() == 0 ? \"\" : \", \").append(\"", info.parameterName, "\");" );
+				w.endBlock();
+			}
+			w.beginBlock( "if (missing.length() > 0)" );
+			w.println( "throw new IllegalArgumentException(\"Missing mandatory columns : \" + missing);" );
+			w.endBlock();
+		}
+		w.println( "return binder;" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public static RowBinder forHeaderLine(CharSequence line, char separator)" );
+		w.println( "java.util.List<CharSequence> header = new java.util.ArrayList<>();" );
+		w.println( "int rowStart = 0;" );
+		w.beginBlock( "for (int rowEnd = 0; rowEnd <= line.length(); rowEnd++)" );
+		w.beginBlock( "if (rowEnd == line.length() || line.charAt(rowEnd) == separator)" );
+		w.println( "header.add(line.subSequence(rowStart, rowEnd));" );
+		w.println( "rowStart = rowEnd + 1;" );
+		w.endBlock();
+		w.endBlock();
+		w.println( "return forHeader(header.toArray(new CharSequence[header.size()]));" );
+		w.endBlock();
+		w.println();
+
+		// binding of a row given as an array of fields, the names of the parameters and locals being prefixed so that
+		// they cannot clash with the locals named after the target parameters
+		w.beginBlock( "public ", ctx.returnTypeFqn, " bind(", instanceParameter, "CharSequence[] rowFields)" );
+		for( ParameterInformation info : ctx.parameters )
+		{
+			String column = info.parameterName + "Column";
+			w.println( info.parameterType, " ", info.parameterName, " = ", column, " < 0 || ", column, " >= rowFields.length || rowFields[", column, "].length() == 0 ? ",
+					getRowDefaultValue( info ), " : ",
+					getRowParsing( info.parameterType, "rowFields[" + column + "]", "0", "rowFields[" + column + "].length()" ), ";" );
+		}
+		generateRowTargetCall( ctx, w );
+		w.endBlock();
+		w.println();
+
+		// binding of a line, split on the fly
+		w.beginBlock( "public ", ctx.returnTypeFqn, " bind(", instanceParameter, "CharSequence rowLine, char rowSeparator)" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( info.parameterType, " ", info.parameterName, " = ", getRowDefaultValue( info ), ";" );
+		w.println( "int rowField = 0;" );
+		w.println( "int rowStart = 0;" );
+		w.println( "int rowLength = rowLine.length();" );
+		w.beginBlock( "for (int rowEnd = 0; rowEnd <= rowLength; rowEnd++)" );
+		w.beginBlock( "if (rowEnd < rowLength && rowLine.charAt(rowEnd) != rowSeparator)" );
+		w.println( "continue;" );
+		w.endBlock();
+		w.beginBlock( "if (rowField < rowColumnParameters.length && rowEnd > rowStart)" );
+		w.beginBlock( "switch (rowColumnParameters[rowField])" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+		{
+			ParameterInformation info = ctx.parameters.get( i );
+			w.println( "case ", String.valueOf( i ), ":" );
+			w.println( "    ", info.parameterName, " = ", getRowParsing( info.parameterType, "rowLine", "rowStart", "rowEnd" ), ";" );
+			w.println( "    break;" );
+		}
+		w.endBlock();
+		w.endBlock();
+		w.println( "rowField++;" );
+		w.println( "rowStart = rowEnd + 1;" );
+		w.endBlock();
+		generateRowTargetCall( ctx, w );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "public java.util.stream.Stream<", ctx.resultTypeFqn, "> map(", instanceParameter, "java.util.stream.Stream<? extends CharSequence> rowLines, char rowSeparator)" );
+		String bindCall = "bind(" + (ctx.staticCall ? "" : "calledInstance, ") + "rowLine, rowSeparator)";
+		if( ctx.isVoid() )
+			w.println( "return rowLines.map(rowLine -> {" ).println( "    ", bindCall, ";" ).println( "    return null;" ).println( "});" );
+		else
+			w.println( "return rowLines.map(rowLine -> ", bindCall, ");" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "private static int rowColumnOf(int[] rowColumnParameters, int parameter)" );
+		w.beginBlock( "for (int rowColumn = 0; rowColumn < rowColumnParameters.length; rowColumn++)" );
+		w.beginBlock( "if (rowColumnParameters[rowColumn] == parameter)" );
+		w.println( "return rowColumn;" );
+		w.endBlock();
+		w.endBlock();
+		w.println( "return -1;" );
+		w.endBlock();
+
+		Set<String> parsedTypes = new TreeSet<>();
+		for( ParameterInformation info : ctx.parameters )
+		{
+			String primitiveType = getUnboxedTypeName( info.parameterType );
+			parsedTypes.add( primitiveType != null ? primitiveType : info.parameterType );
+		}
+		// the narrower integers are parsed as longs
+		if( parsedTypes.contains( "byte" ) || parsedTypes.contains( "short" ) || parsedTypes.contains( "int" ) )
+			parsedTypes.add( "long" );
+		for( String parsedType : parsedTypes )
+			generateRowParsingMethod( parsedType, w );
+
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateRowTargetCall( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.isVoid() )
+			w.print( "return " );
+		w.print( ctx.getTargetCallText( "calledInstance" ), "(" );
+		for( int i = 0; i < ctx.parameters.size(); i++ )
+			w.print( i > 0 ? ", " : "", ctx.parameters.get( i ).parameterName );
+		w.println( ");" );
+	}
+
+	private static String getRowDefaultValue( ParameterInformation info )
+	{
+		if( info.declaredDefaultValue != null )
+			return "(" + info.declaredDefaultValue + ")";
+		return info.defaultValue;
+	}
+
+	private static String getRowParsing( String type, String text, String start, String end )
+	{
+		String arguments = "(" + text + ", " + start + ", " + end + ")";
+		if( "java.lang.String".equals( type ) && "0".equals( start ) )
+			return text + ".toString()";
+		if( "java.lang.String".equals( type ) )
+			return text + ".subSequence(" + start + ", " + end + ").toString()";
+		String unboxedType = getUnboxedTypeName( type );
+		if( unboxedType != null )
+			return type + ".valueOf(rowParse" + capitalize( unboxedType ) + arguments + ")";
+		return "rowParse" + capitalize( type ) + arguments;
+	}
+
+	private void generateRowParsingMethod( String type, CodeWriter w )
+	{
+		if( "java.lang.String".equals( type ) )
+			return;
+
+		w.println();
+		w.beginBlock( "private static ", type, " rowParse", capitalize( type ), "(CharSequence text, int start, int end)" );
+		switch( type )
+		{
+			case "long":
+				w.println( "int index = start;" );
+				w.println( "boolean negative = text.charAt(index) == '-';" );
+				w.beginBlock( "if (negative || text.charAt(index) == '+')" );
+				w.println( "index++;" );
+				w.endBlock();
+				w.beginBlock( "if (index == end)" );
+				w.println( "throw new NumberFormatException(\"Not a number : \" + text.subSequence(start, end));" );
+				w.endBlock();
+				w.println( "// accumulated negatively, to reach Long.MIN_VALUE" );
+				w.println( "long result = 0;" );
+				w.beginBlock( "for (; index < end; index++)" );
+				w.println( "int digit = text.charAt(index) - '0';" );
+				w.beginBlock( "if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10)" );
+				w.println( "throw new NumberFormatException(\"Not a long : \" + text.subSequence(start, end));" );
+				w.endBlock();
+				w.println( "result = result * 10 - digit;" );
+				w.endBlock();
+				w.beginBlock( "if (!negative && result == Long.MIN_VALUE)" );
+				w.println( "throw new NumberFormatException(\"Not a long : \" + text.subSequence(start, end));" );
+				w.endBlock();
+				w.println( "return negative ? result : -result;" );
+				break;
+			case "byte":
+			case "short":
+			case "int":
+				String boxedType = getBoxedTypeSimpleName( type );
+				w.println( "long result = rowParseLong(text, start, end);" );
+				w.beginBlock( "if (result < ", boxedType, ".MIN_VALUE || result > ", boxedType, ".MAX_VALUE)" );
+				w.println( "throw new NumberFormatException(\"Not ", "int".equals( type ) ? "an " : "a ", type, " : \" + text.subSequence(start, end));" );
+				w.endBlock();
+				w.println( "return (", type, ") result;" );
+				break;
+			case "boolean":
+				w.println( "String expected = end - start == 4 ? \"true\" : \"false\";" );
+				w.println( "boolean matches = end - start == expected.length();" );
+				w.beginBlock( "for (int index = 0; matches && index < expected.length(); index++)" );
+				w.println( "matches = Character.toLowerCase(text.charAt(start + index)) == expected.charAt(index);" );
+				w.endBlock();
+				w.beginBlock( "if (!matches)" );
+				w.println( "throw new IllegalArgumentException(\"Not a boolean : \" + text.subSequence(start, end));" );
+				w.endBlock();
+				w.println( "return end - start == 4;" );
+				break;
+			case "char":
+				w.beginBlock( "if (end - start != 1)" );
+				w.println( "throw new IllegalArgumentException(\"Not a char : \" + text.subSequence(start, end));" );
+				w.endBlock();
+				w.println( "return text.charAt(start);" );
+				break;
+			default:
+				w.println( "return ", getBoxedTypeSimpleName( type ), ".parse", capitalize( type ), "(text.subSequence(start, end).toString());" );
+				break;
+		}
+		w.endBlock();
+	}
+
+	private static String getFlyweightOffsetName( ParameterInformation info )
+	{
+		StringBuilder name = new StringBuilder( "OFFSET_" );
+		for( char c : info.parameterName.toCharArray() )
+		{
+			if( Character.isUpperCase( c ) )
+				name.append( '_' );
+			name.append( Character.toUpperCase( c ) );
+		}
+		return name.toString();
+	}
+
+	private static String getFlyweightRead( String primitiveType, String offset )
+	{
+		switch( primitiveType )
+		{
+			case "boolean":
+				return "flyweightBuffer.get(" + offset + ") != 0";
+			case "byte":
+				return "flyweightBuffer.get(" + offset + ")";
+			default:
+				return "flyweightBuffer.get" + capitalize( primitiveType ) + "(" + offset + ")";
+		}
+	}
+
+	private static String getFlyweightWrite( String primitiveType, String offset, String value )
+	{
+		switch( primitiveType )
+		{
+			case "boolean":
+				return "flyweightBuffer.put(" + offset + ", (byte) (" + value + " ? 1 : 0))";
+			case "byte":
+				return "flyweightBuffer.put(" + offset + ", " + value + ")";
+			default:
+				return "flyweightBuffer.put" + capitalize( primitiveType ) + "(" + offset + ", " + value + ")";
+		}
+	}
+
+	/**
+	 * Size in bytes of a primitive value in a flyweight record
+	 */
+	private static int getPrimitiveSize( String primitiveType )
+	{
+		switch( primitiveType )
+		{
+			case "boolean":
+			case "byte":
+				return 1;
+			case "short":
+			case "char":
+				return 2;
+			case "int":
+			case "float":
+				return 4;
+			default:
+				return 8;
+		}
+	}
+
+	private void generateCodecValueMethods( CodecParameterInformation codecInfo, CodecStream stream, CodeWriter w )
+	{
+		String type = codecInfo.parameter.parameterType;
+		String unboxedType = getUnboxedTypeName( type );
+		if( isPrimitiveTypeName( type ) || "java.lang.String".equals( type ) )
+			return;
+
+		String suffix = capitalize( codecInfo.parameter.parameterName );
+
+		w.beginBlock( "private static void write", suffix, "(", stream.outputType, " ", stream.outputName, ", ", type, " codecValue)", stream.throwsClause );
+		w.beginBlock( "if (codecValue == null)" );
+		w.println( unboxedType != null ? stream.write( "byte", "(byte) 0" ) : stream.write( "int", "0" ), ";" );
+		if( unboxedType != null )
+		{
+			w.continueBlock( "else" );
+			w.println( stream.write( "byte", "(byte) 1" ), ";" );
+			w.println( stream.write( unboxedType, "codecValue" ), ";" );
+		}
+		else
+		{
+			for( CodecTypeInformation codecType : codecInfo.codecTypes )
+			{
+				w.continueBlock( "else if (codecValue instanceof ", codecType.typeFqn, ")" );
+				w.println( stream.write( "int", String.valueOf( codecType.tag ) ), ";" );
+				w.println( codecType.codecClassFqn, ".write(", stream.outputName, ", (", codecType.typeFqn, ") codecValue);" );
+			}
+			w.continueBlock( "else" );
+			w.println( "throw new IllegalArgumentException(\"No codec for \" + codecValue.getClass().getName());" );
+		}
+		w.endBlock();
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "private static ", type, " read", suffix, "(", stream.inputType, " ", stream.inputName, ")", stream.throwsClause );
+		if( unboxedType != null )
+		{
+			w.println( "return ", stream.read( "byte" ), " == 0 ? null : ", type, ".valueOf(", stream.read( unboxedType ), ");" );
+		}
+		else
+		{
+			w.println( "int codecTag = ", stream.read( "int" ), ";" );
+			w.beginBlock( "switch (codecTag)" );
+			w.println( "case 0:" );
+			w.println( "    return null;" );
+			for( CodecTypeInformation codecType : codecInfo.codecTypes )
+			{
+				w.println( "case ", String.valueOf( codecType.tag ), ":" );
+				w.println( "    return ", codecType.codecClassFqn, ".read(", stream.inputName, ");" );
+			}
+			w.println( "default:" );
+			w.println( "    throw new IllegalArgumentException(\"Unknown codec tag \" + codecTag);" );
+			w.endBlock();
+		}
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateCodecStringMethods( CodecStream stream, CodeWriter w )
+	{
+		w.beginBlock( "private static void writeUtf8(", stream.outputType, " ", stream.outputName, ", String codecValue)", stream.throwsClause );
+		w.beginBlock( "if (codecValue == null)" );
+		w.println( stream.write( "int", "-1" ), ";" );
+		w.println( "return;" );
+		w.endBlock();
+		w.println( "byte[] codecBytes = codecValue.getBytes(java.nio.charset.StandardCharsets.UTF_8);" );
+		w.println( stream.write( "int", "codecBytes.length" ), ";" );
+		w.println( stream.outputName, ".", stream.bytesWriteMethod, "(codecBytes);" );
+		w.endBlock();
+		w.println();
+
+		w.beginBlock( "private static String readUtf8(", stream.inputType, " ", stream.inputName, ")", stream.throwsClause );
+		w.println( "int codecLength = ", stream.read( "int" ), ";" );
+		w.beginBlock( "if (codecLength < 0)" );
+		w.println( "return null;" );
+		w.endBlock();
+		w.println( "byte[] codecBytes = new byte[codecLength];" );
+		w.println( stream.inputName, ".", stream.bytesReadMethod, "(codecBytes);" );
+		w.println( "return new String(codecBytes, java.nio.charset.StandardCharsets.UTF_8);" );
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * The lazy final method works on a snapshot of the builder state, like the asynchronous ones
+	 */
+	private void generateLazyMethod( GeneratorContext ctx, CodeWriter w, boolean prototype )
+	{
+		if( !ctx.lazy )
+			return;
+
+		String modifiers = prototype ? "public " : ctx.getMethodModifiers();
+
+		w.beginBlock( modifiers, "java.util.function.Supplier<", ctx.returnTypeFqn, "> ", ctx.finalMethodName, "Lazy()" );
+		String snapshot = "this";
+		if( !prototype )
+		{
+			String implementationClassName = ctx.getImplementationClassName();
+			w.println( implementationClassName, " snapshot = new ", implementationClassName, "(", ctx.staticCall ? "" : "calledInstance", ");" );
+			generateStateCopy( ctx, "snapshot", "this", w );
+			snapshot = "snapshot";
+		}
+		w.println( "return new Lazy(", snapshot, "::", ctx.finalMethodName, ");" );
+		w.endBlock();
+		w.println();
+	}
+
+	/**
+	 * Supplier calling the target once, with double checked locking on a volatile field, so that no lock is taken once
+	 * the instance is built. A target throwing an exception is called again on the next access. The snapshot is
+	 * released once the instance is built.
+	 */
+	private void generateLazyClass( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.lazy )
+			return;
+
+		String supplierType = "java.util.function.Supplier<" + ctx.returnTypeFqn + ">";
+
+		w.beginBlock( "private static final class Lazy implements ", supplierType );
+		w.println( "private ", supplierType, " target;" );
+		w.println( "private volatile ", ctx.returnTypeFqn, " value;" );
+		w.println();
+
+		w.beginBlock( "private Lazy(", supplierType, " target)" );
+		w.println( "this.target = target;" );
+		w.endBlock();
+		w.println();
+
+		w.println( "@Override" );
+		w.beginBlock( "public ", ctx.returnTypeFqn, " get()" );
+		w.println( ctx.returnTypeFqn, " result = value;" );
+		w.beginBlock( "if (result == null)" );
+		w.beginBlock( "synchronized (this)" );
+		w.println( "result = value;" );
+		w.beginBlock( "if (result == null)" );
+		w.println( "result = target.get();" );
+		w.println( "value = result;" );
+		w.println( "target = null;" );
+		w.endBlock();
+		w.endBlock();
+		w.endBlock();
+		w.println( "return result;" );
+		w.endBlock();
+		w.endBlock();
+		w.println();
+	}
+
+	private void generateStateCopy( GeneratorContext ctx, String target, String source, CodeWriter w )
+	{
+		if( !ctx.staticCall )
+			w.println( target, ".calledInstance = ", source, ".calledInstance;" );
+		for( ParameterInformation info : ctx.parameters )
+			w.println( target, ".", info.parameterName, " = ", source, ".", info.parameterName, ";" );
+		if( ctx.usesOptionalParametersMask() )
+			w.println( target, ".", OptionalParametersMaskField, " = ", source, ".", OptionalParametersMaskField, ";" );
+	}
+
+	private void generateBootstrapMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.mandatoryParameters.isEmpty() )
+		{
+			ParameterInformation info = ctx.mandatoryParameters.get( 0 );
+			String nextInterfaceName = ctx.getNextStageTypeName( 0 );
+
+			if( ctx.staticCall )
+			{
+				w.beginBlock( "public static ", nextInterfaceName, " ", info.setterName, "(", info.parameterType, " ", info.parameterName, ")" );
+				w.println( ctx.getNextStageReturn( 0 ), "new BuilderInternal().", info.setterName, "(", info.parameterName, ");" );
+				w.endBlock();
+
+				generateConfigurers( info, "public static ", nextInterfaceName, ctx.getNextStageReturn( 0 ), "new BuilderInternal().", ctx, w );
+			}
+
+			generatePrepareMethod( ctx, info.interfaceName, w );
+		}
+		else
+		{
+			generatePrepareMethod( ctx, "OptionalParameters", w );
+		}
+
+		generateReuseMethod( ctx, w );
+	}
+
+	private void generateCompactBootstrapMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		String className = ctx.builderClassName;
+
+		w.print( "public static ", className, " prepare" );
+		generateCompactEntryPointParameters( ctx, w );
+		w.beginBlock();
+		w.println( className, " builder = new ", className, "(", ctx.staticCall ? "" : "instance", ");" );
+		for( ParameterInformation info : ctx.mandatoryParameters )
+			w.println( "builder.", info.parameterName, " = ", info.parameterName, ";" );
+		w.println( "return builder;" );
+		w.endBlock();
+
+		generateReuseMethod( ctx, w );
+	}
+
+	/**
+	 * The compact entry points receive the called instance, if any, and all the mandatory parameters in order
+	 */
+	private void generateCompactEntryPointParameters( GeneratorContext ctx, CodeWriter w )
+	{
+		w.print( "(" );
+		if( !ctx.staticCall )
+			w.print( ctx.calledInstanceTypeFqn, " instance" );
+		for( int i = 0; i < ctx.mandatoryParameters.size(); i++ )
+		{
+			ParameterInformation info = ctx.mandatoryParameters.get( i );
+			if( i > 0 || !ctx.staticCall )
+				w.print( ", " );
+			w.print( info.parameterType, " ", info.parameterName );
+		}
+		w.print( ")" );
+	}
+
+	/**
+	 * The reusable builder is kept in a {@link ThreadLocal}, so each thread always gets back the same instance.
+	 * It is reset at each call, which means it should not be used in a reentrant way. The called instance is only
+	 * replaced by the next <code>reuse()</code>, so that a builder given by <code>prepare()</code> can still be called
+	 * several times : a thread keeps the last instance it called reachable until then.
+	 */
+	private void generateReuseMethod( GeneratorContext ctx, CodeWriter w )
+	{
+		if( !ctx.reusable )
+			return;
+
+		String shellInterfaceName = ctx.getShellInterfaceName();
+		String implementationClassName = ctx.getImplementationClassName();
+
+		w.println();
+		w.beginBlock( "private static final ThreadLocal<", implementationClassName, "> reusableBuilder = new ThreadLocal<", implementationClassName, ">()" );
+		w.beginBlock( "@Override protected ", implementationClassName, " initialValue()" );
+		w.println( "return new ", implementationClassName, "(", ctx.staticCall ? "" : "null", ");" );
+		w.endBlock();
+		w.endBlock( ";" );
+		w.println();
+
+		if( ctx.compact )
+		{
+			w.print( "public static ", shellInterfaceName, " reuse" );
+			generateCompactEntryPointParameters( ctx, w );
+			w.beginBlock();
+			w.println( implementationClassName, " builder = reusableBuilder.get();" );
+			w.println( "builder.reset();" );
+			if( !ctx.staticCall )
+				w.println( "builder.calledInstance = instance;" );
+			for( ParameterInformation info : ctx.mandatoryParameters )
+				w.println( "builder.", info.parameterName, " = ", info.parameterName, ";" );
+			w.println( "return builder;" );
+			w.endBlock();
+		}
+		else if( ctx.staticCall )
+		{
+			w.beginBlock( "public static ", shellInterfaceName, " reuse()" );
+			w.println( "return reusableBuilder.get().reset();" );
+			w.endBlock();
+		}
+		else
+		{
+			w.beginBlock( "public static ", shellInterfaceName, " reuse(", ctx.calledInstanceTypeFqn, " instance)" );
+			w.println( implementationClassName, " builder = reusableBuilder.get();" );
+			w.println( "builder.reset();" );
+			w.println( "builder.calledInstance = instance;" );
+			w.println( "return builder;" );
+			w.endBlock();
+		}
+	}
+
+	private void generatePrepareMethod( GeneratorContext ctx, String shellInterfaceName, CodeWriter w )
+	{
+		if( ctx.staticCall )
+		{
+			w.beginBlock( "public static ", shellInterfaceName, " prepare()" );
+			w.println( "return new BuilderInternal();" );
+			w.endBlock();
+		}
+		else
+		{
+			w.beginBlock( "public static ", shellInterfaceName, " prepare(", ctx.calledInstanceTypeFqn, " instance)" );
+			w.println( "return new BuilderInternal(instance);" );
+			w.endBlock();
+		}
+	}
+
+	/**
+	 * Writes the builder source file. When the source has not been rendered beforehand, it is generated directly into
+	 * the file.
+	 */
+	private void saveBuilderClass( GeneratorContext ctx, String renderedSource )
+	{
+		try
+		{
+			ProcessingStatistics.Measure measure = statistics.start();
+			JavaFileObject jfo = processingEnv.getFiler().createSourceFile( ctx.builderClassFqn, getOriginatingElements( ctx.element ) );
+
+			// the file creation and the flush on close are write time, the rendering into the file is not
+			long writeNanos;
+
+			// the Filer's writer uses the -encoding of the compilation, which reads the generated source back
+			try( Writer writer = new BufferedWriter( jfo.openWriter(), WriteBufferSize ) )
+			{
+				writeNanos = statistics.record( ProcessingStatistics.Phase.WRITE, measure );
+
+				if( renderedSource == null )
+				{
+					renderBuilderClass( ctx, writer );
+					measure = statistics.start();
+				}
+				else
+				{
+					measure = statistics.start();
+					writer.write( renderedSource );
+				}
+			}
+			writeNanos += statistics.record( ProcessingStatistics.Phase.WRITE, measure );
+			statistics.recordElementWrite( ctx.builderClassFqn, writeNanos );
+
+			processingEnv.getMessager().printMessage( Kind.NOTE, "Builder generated for this constructor: " + ctx.builderClassFqn, ctx.element );
+		}
+		catch( IOException | UncheckedIOException e )
+		{
+			e.printStackTrace();
+			processingEnv.getMessager().printMessage( Kind.ERROR, "Error generating builder, a builder may already exist (" + ctx.builderClassFqn + ") !" + e, ctx.element );
+		}
+	}
+
+	/**
+	 * The originating elements of a builder are the annotated element and its enclosing types, which all belong to
+	 * the same top level type. This is what incremental build tools (Gradle isolating processors) expect.
+	 */
+	private Element[] getOriginatingElements( ExecutableElement element )
+	{
+		ModelExtractor.TypeInformation typeInformation = model.getTypeInformation( element );
+		TypeElement enclosingType = typeInformation.type;
+		TypeElement topLevelType = typeInformation.topLevelType;
+		if( enclosingType == topLevelType )
+			return new Element[] { element, enclosingType };
+		return new Element[] { element, enclosingType, topLevelType };
+	}
+
+	private static class ParameterInformation
+	{
+		final String parameterName;
+		final String parameterType;
+		final String erasedParameterType;
+		final String defaultValue;
+		final String declaredDefaultValue;
+		final String interfaceName;
+		final String setterName;
+		final int optionalIndex;
+
+		/**
+		 * @param erasedParameterType
+		 *            the erasure of the parameter type, which can be used to create arrays
+		 * @param defaultValue
+		 *            the default value of the parameter type
+		 * @param declaredDefaultValue
+		 *            the default value given with {@link Parameter#defaultValue()}, or null
+		 * @param optionalIndex
+		 *            the index of the parameter in the optional parameters list, -1 if it is mandatory
+		 */
+		public ParameterInformation( String parameterName, String parameterType, String erasedParameterType, String defaultValue, String declaredDefaultValue, String setterName, int optionalIndex )
+		{
+			this.parameterName = parameterName;
+			this.parameterType = parameterType;
+			this.erasedParameterType = erasedParameterType;
+			this.defaultValue = defaultValue;
+			this.declaredDefaultValue = declaredDefaultValue;
+			this.interfaceName = "MandatoryParameter" + capitalize( parameterName );
+			this.setterName = setterName;
+			this.optionalIndex = optionalIndex;
+		}
+	}
+
+	/**
+	 * How the codec reads a constructor parameter from an instance, and which codecs can encode its value when it is
+	 * neither a primitive nor a string
+	 */
+	private static class CodecParameterInformation
+	{
+		final ParameterInformation parameter;
+		final String accessor;
+		final List<CodecTypeInformation> codecTypes;
+
+		public CodecParameterInformation( ParameterInformation parameter, String accessor, List<CodecTypeInformation> codecTypes )
+		{
+			this.parameter = parameter;
+			this.accessor = accessor;
+			this.codecTypes = Collections.unmodifiableList( codecTypes );
+		}
+	}
+
+	/**
+	 * A builder generated in this round, or compiled beforehand, which can build the parameters of other builders
+	 */
+	private static class NestedBuilderInformation
+	{
+		final String builderClassFqn;
+		final String shellTypeName;
+		final String finalTypeName;
+		final String finalMethodName;
+
+		/**
+		 * @param shellTypeName
+		 *            the type returned by the <code>prepare()</code> method of the builder
+		 * @param finalTypeName
+		 *            the type returned by the last setter
+		 * @param finalMethodName
+		 *            the method building the value, null if the last setter gives the value
+		 */
+		public NestedBuilderInformation( String builderClassFqn, String shellTypeName, String finalTypeName, String finalMethodName )
+		{
+			this.builderClassFqn = builderClassFqn;
+			this.shellTypeName = shellTypeName;
+			this.finalTypeName = finalTypeName;
+			this.finalMethodName = finalMethodName;
+		}
+	}
+
+	private static class ConfigurerInformation
+	{
+		final ParameterInformation parameter;
+		final String configurerName;
+		final NestedBuilderInformation nested;
+
+		public ConfigurerInformation( ParameterInformation parameter, String configurerName, NestedBuilderInformation nested )
+		{
+			this.parameter = parameter;
+			this.configurerName = configurerName;
+			this.nested = nested;
+		}
+
+		String getParameterDeclaration()
+		{
+			return "java.util.function.Function<? super " + nested.shellTypeName + ", ? extends " + nested.finalTypeName + "> configurer";
+		}
+	}
+
+	private static class CodecTypeInformation
+	{
+		final String typeFqn;
+		final String codecClassFqn;
+		final int tag;
+		final int subtypeCount;
+
+		public CodecTypeInformation( String typeFqn, String codecClassFqn, int tag, int subtypeCount )
+		{
+			this.typeFqn = typeFqn;
+			this.codecClassFqn = codecClassFqn;
+			this.tag = tag;
+			this.subtypeCount = subtypeCount;
+		}
+	}
+
+	/**
+	 * The streams supported by the generated codecs, and how primitives are written to and read from them
+	 */
+	private enum CodecStream
+	{
+		BYTE_BUFFER( "java.nio.ByteBuffer", "codecBuffer", "java.nio.ByteBuffer", "codecBuffer", "", "put", "get" ),
+		DATA_STREAM( "java.io.DataOutput", "codecOutput", "java.io.DataInput", "codecInput", " throws java.io.IOException", "write", "readFully" );
+
+		final String outputType;
+		final String outputName;
+		final String inputType;
+		final String inputName;
+		final String throwsClause;
+		final String bytesWriteMethod;
+		final String bytesReadMethod;
+
+		CodecStream( String outputType, String outputName, String inputType, String inputName, String throwsClause, String bytesWriteMethod, String bytesReadMethod )
+		{
+			this.outputType = outputType;
+			this.outputName = outputName;
+			this.inputType = inputType;
+			this.inputName = inputName;
+			this.throwsClause = throwsClause;
+			this.bytesWriteMethod = bytesWriteMethod;
+			this.bytesReadMethod = bytesReadMethod;
+		}
+
+		String write( String primitiveType, String value )
+		{
+			if( this == DATA_STREAM )
+				return outputName + ".write" + capitalize( primitiveType ) + "(" + value + ")";
+			if( "boolean".equals( primitiveType ) )
+				return outputName + ".put((byte) (" + value + " ? 1 : 0))";
+			if( "byte".equals( primitiveType ) )
+				return outputName + ".put(" + value + ")";
+			return outputName + ".put" + capitalize( primitiveType ) + "(" + value + ")";
+		}
+
+		String read( String primitiveType )
+		{
+			if( this == DATA_STREAM )
+				return inputName + ".read" + capitalize( primitiveType ) + "()";
+			if( "boolean".equals( primitiveType ) )
+				return "(" + inputName + ".get() != 0)";
+			if( "byte".equals( primitiveType ) )
+				return inputName + ".get()";
+			return inputName + ".get" + capitalize( primitiveType ) + "()";
+		}
+	}
+
+	/**
+	 * An overload of the target which can be called when none of its omitted parameters has been set
+	 */
+	private static class OverloadInformation
+	{
+		final List<ParameterInformation> parameters;
+		final long omittedMask;
+
+		public OverloadInformation( List<ParameterInformation> parameters, long omittedMask )
+		{
+			this.parameters = Collections.unmodifiableList( parameters );
+			this.omittedMask = omittedMask;
+		}
+	}
+
+	private String getBuilderPackageName( ExecutableElement element, ModelExtractor.TargetOptions options )
+	{
+		if( !options.builderPackage.isEmpty() )
+			return options.builderPackage;
+		return model.getTypeInformation( element ).packageName;
+	}
+
+	private String getBuilderClassName( ExecutableElement element, ModelExtractor.TargetOptions options )
+	{
+		if( !options.builderName.isEmpty() )
+			return options.builderName;
+		if( element.getKind() == ElementKind.CONSTRUCTOR )
+			return model.getTypeInformation( element ).simpleName + "Builder";
+		return capitalize( element.getSimpleName().toString() ) + "Caller";
+	}
+
+	private static String getDefaultValue( TypeMirror type )
+	{
+		switch( type.getKind() )
+		{
+			case BOOLEAN:
+				return "false";
+			case BYTE:
+				return "(byte) 0";
+			case SHORT:
+				return "(short) 0";
+			case CHAR:
+				return "'\\0'";
+			case INT:
+				return "0";
+			case LONG:
+				return "0L";
+			case FLOAT:
+				return "0f";
+			case DOUBLE:
+				return "0d";
+			default:
+				return "null";
+		}
 	}
 
 	private static String capitalize( String value )
@@ -0,0 +1,55 @@
+package fr.lteconsulting.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Entry point used by the builders generated with the <code>-Abuildergen.metrics=true</code> option.
+ *
+ * <p>
+ * Metrics can be disabled at runtime with the <code>-Dbuildergen.metrics=false</code> system property. The generated
+ * builders keep the result of {@link #isEnabled()} in a <code>static final</code> field, so that the JIT removes the
+ * measuring code when they are disabled.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public final class BuilderMetrics
+{
+	public final static String EnabledProperty = "buildergen.metrics";
+
+	private final static boolean enabled = !"false".equals( System.getProperty( EnabledProperty ) );
+	private final static BuilderMetricsProvider provider = loadProvider();
+
+	private BuilderMetrics()
+	{
+	}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public static BuilderMetricsProvider getProvider()
+	{
+		return provider;
+	}
+
+	/**
+	 * Gives the probe of a builder, or null if metrics are disabled
+	 */
+	public static BuilderProbe probe( String builderName )
+	{
+		if( !enabled )
+			return null;
+		return provider.createProbe( builderName );
+	}
+
+	private static BuilderMetricsProvider loadProvider()
+	{
+		Iterator<BuilderMetricsProvider> providers = ServiceLoader.load( BuilderMetricsProvider.class ).iterator();
+		if( providers.hasNext() )
+			return providers.next();
+		return new DefaultBuilderMetricsProvider();
+	}
+}
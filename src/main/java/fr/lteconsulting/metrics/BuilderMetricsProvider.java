@@ -0,0 +1,19 @@
+package fr.lteconsulting.metrics;
+
+/**
+ * Service provider interface for the builder metrics. The first implementation found by the {@link java.util.ServiceLoader}
+ * is used, {@link DefaultBuilderMetricsProvider} otherwise.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public interface BuilderMetricsProvider
+{
+	/**
+	 * Gives the probe of a builder. Called once per generated builder class, when it is initialized.
+	 *
+	 * @param builderName
+	 *            the fully qualified name of the builder class
+	 */
+	BuilderProbe createProbe( String builderName );
+}
@@ -0,0 +1,16 @@
+package fr.lteconsulting.metrics;
+
+/**
+ * Receives the measures of one generated builder. Implementations are called concurrently by all the threads using
+ * the builder, and should not block.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public interface BuilderProbe
+{
+	/**
+	 * Records one call of the builder target, which took the given time
+	 */
+	void record( long nanos );
+}
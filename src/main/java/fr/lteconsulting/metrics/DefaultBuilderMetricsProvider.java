@@ -0,0 +1,38 @@
+package fr.lteconsulting.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link StripedBuilderProbe} per builder, which can be read by the application.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public class DefaultBuilderMetricsProvider implements BuilderMetricsProvider
+{
+	private final ConcurrentHashMap<String, StripedBuilderProbe> probes = new ConcurrentHashMap<>();
+
+	@Override
+	public BuilderProbe createProbe( String builderName )
+	{
+		return getProbe( builderName );
+	}
+
+	public StripedBuilderProbe getProbe( String builderName )
+	{
+		StripedBuilderProbe probe = probes.get( builderName );
+		if( probe != null )
+			return probe;
+
+		StripedBuilderProbe created = new StripedBuilderProbe();
+		probe = probes.putIfAbsent( builderName, created );
+		return probe != null ? probe : created;
+	}
+
+	public Map<String, StripedBuilderProbe> getProbes()
+	{
+		return Collections.unmodifiableMap( probes );
+	}
+}
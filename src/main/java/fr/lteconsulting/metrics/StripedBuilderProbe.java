@@ -0,0 +1,57 @@
+package fr.lteconsulting.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the calls of a builder and their latency, in {@link LongAdder}s so that concurrent builders do not contend.
+ *
+ * <p>
+ * The latency histogram has one bucket per power of two : bucket <code>i</code> counts the calls which took between
+ * <code>2^i</code> and <code>2^(i+1) - 1</code> nanoseconds, bucket 0 also counting the calls measured as 0.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public class StripedBuilderProbe implements BuilderProbe
+{
+	public final static int Buckets = 64;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAdder[] histogram = new LongAdder[Buckets];
+
+	public StripedBuilderProbe()
+	{
+		for( int i = 0; i < Buckets; i++ )
+			histogram[i] = new LongAdder();
+	}
+
+	@Override
+	public void record( long nanos )
+	{
+		count.increment();
+		totalNanos.add( nanos );
+		histogram[nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros( nanos )].increment();
+	}
+
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	public long getTotalNanos()
+	{
+		return totalNanos.sum();
+	}
+
+	/**
+	 * A copy of the latency histogram
+	 */
+	public long[] getHistogram()
+	{
+		long[] result = new long[Buckets];
+		for( int i = 0; i < Buckets; i++ )
+			result[i] = histogram[i].sum();
+		return result;
+	}
+}
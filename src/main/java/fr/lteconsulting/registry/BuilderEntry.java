@@ -0,0 +1,75 @@
+package fr.lteconsulting.registry;
+
+/**
+ * A builder of a {@link BuilderRegistry}, and its <code>prepare</code> entry point.
+ *
+ * <p>
+ * The <code>prepare</code> method receives the called instance for instance methods. With compact builders, it also
+ * receives the mandatory parameters, in order.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public final class BuilderEntry
+{
+	private final BuilderRegistry registry;
+	private final int index;
+	private final String target;
+	private final String builderClassName;
+	private final String[] prepareParameterTypes;
+
+	public BuilderEntry( BuilderRegistry registry, int index, String target, String builderClassName, String... prepareParameterTypes )
+	{
+		this.registry = registry;
+		this.index = index;
+		this.target = target;
+		this.builderClassName = builderClassName;
+		this.prepareParameterTypes = prepareParameterTypes;
+	}
+
+	/**
+	 * The qualified name of the type for a constructor, or the qualified name of the type followed by <code>#</code>
+	 * and the method name for a method
+	 */
+	public String getTarget()
+	{
+		return target;
+	}
+
+	public String getBuilderClassName()
+	{
+		return builderClassName;
+	}
+
+	/**
+	 * The builder class, which is only loaded by this call
+	 */
+	public Class<?> getBuilderClass()
+	{
+		return registry.getBuilderClass( index );
+	}
+
+	/**
+	 * The erased types of the parameters of the <code>prepare</code> method
+	 */
+	public String[] getPrepareParameterTypes()
+	{
+		return prepareParameterTypes.clone();
+	}
+
+	/**
+	 * Calls the <code>prepare</code> method of the builder, without reflection
+	 */
+	public Object prepare( Object... arguments )
+	{
+		if( arguments.length != prepareParameterTypes.length )
+			throw new IllegalArgumentException( "The builder of " + target + " is prepared with " + prepareParameterTypes.length + " argument(s), not " + arguments.length );
+		return registry.prepare( index, arguments );
+	}
+
+	@Override
+	public String toString()
+	{
+		return target + " -> " + builderClassName;
+	}
+}
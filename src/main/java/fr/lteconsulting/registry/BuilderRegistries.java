@@ -0,0 +1,66 @@
+package fr.lteconsulting.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Finds builders in all the {@link BuilderRegistry} services, loaded once on first use. Lookups are then a single
+ * hash table access.
+ *
+ * <p>
+ * When several builders have the same target, the first one found is returned by {@link #find(String)}, all of them
+ * are listed by {@link #getEntries()}.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public final class BuilderRegistries
+{
+	private final static List<BuilderEntry> entries = new ArrayList<>();
+	private final static Map<String, BuilderEntry> targets = new HashMap<>();
+
+	static
+	{
+		for( BuilderRegistry registry : ServiceLoader.load( BuilderRegistry.class ) )
+		{
+			for( BuilderEntry entry : registry.getEntries() )
+			{
+				entries.add( entry );
+				if( !targets.containsKey( entry.getTarget() ) )
+					targets.put( entry.getTarget(), entry );
+			}
+		}
+	}
+
+	private BuilderRegistries()
+	{
+	}
+
+	public static Collection<BuilderEntry> getEntries()
+	{
+		return Collections.unmodifiableList( entries );
+	}
+
+	/**
+	 * Gives the builder of a target, or null if there is none
+	 *
+	 * @see BuilderRegistry#find(String)
+	 */
+	public static BuilderEntry find( String target )
+	{
+		return targets.get( target );
+	}
+
+	/**
+	 * Gives the builder of a constructor of a type, or null if there is none
+	 */
+	public static BuilderEntry find( Class<?> type )
+	{
+		return targets.get( type.getCanonicalName() );
+	}
+}
@@ -0,0 +1,38 @@
+package fr.lteconsulting.registry;
+
+import java.util.Collection;
+
+/**
+ * Index of the builders generated in a module, implemented by the class generated with the
+ * <code>-Abuildergen.registry=&lt;class name&gt;</code> option and registered as a {@link java.util.ServiceLoader}
+ * service. {@link BuilderRegistries} merges the registries of all the modules.
+ *
+ * @author Arnaud Tournier www.lteconsulting.fr github.com/ltearno @ltearno
+ *
+ */
+public interface BuilderRegistry
+{
+	/**
+	 * All the builders of the module, in the order of their names
+	 */
+	Collection<BuilderEntry> getEntries();
+
+	/**
+	 * Gives the builder of a target, or null if there is none
+	 *
+	 * @param target
+	 *            the qualified name of the type for a constructor, or the qualified name of the type followed by
+	 *            <code>#</code> and the method name for a method
+	 */
+	BuilderEntry find( String target );
+
+	/**
+	 * Gives the class of a builder, used by {@link BuilderEntry#getBuilderClass()}
+	 */
+	Class<?> getBuilderClass( int index );
+
+	/**
+	 * Calls the <code>prepare</code> method of a builder, used by {@link BuilderEntry#prepare(Object...)}
+	 */
+	Object prepare( int index, Object... arguments );
+}
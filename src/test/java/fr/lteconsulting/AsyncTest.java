@@ -0,0 +1,123 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.SourceVersion;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Asynchronous calls run the target on an executor with the values given before the call, whatever is set on the
+ * builder afterwards. Virtual threads are only used when compiling for Java 21 or later.
+ */
+public class AsyncTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"import java.util.concurrent.*;\n" +
+			"public class Job {\n" +
+			"    static final java.util.List<String> log = new CopyOnWriteArrayList<>();\n" +
+			"    final String name; final int base;\n" +
+			"    @UseBuilderGenerator(async = true)\n" +
+			"    public Job(@Mandatory String name, int base) { this.name = name; this.base = base; }\n" +
+			"    @UseBuilderGenerator(async = true)\n" +
+			"    public static void record(@Mandatory String entry) { log.add(entry + \"@\" + Thread.currentThread().getName()); }\n" +
+			"    @UseBuilderGenerator(async = true)\n" +
+			"    public int add(@Mandatory int x, int y) { return base + x + y; }\n" +
+			"    public static java.util.List<String> run() throws Exception {\n" +
+			"        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, \"worker\"));\n" +
+			"        CountDownLatch release = new CountDownLatch(1);\n" +
+			"        executor.execute(() -> { try { release.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); } });\n" +
+			"        JobBuilder.OptionalParameters builder = JobBuilder.withName(\"a\").withBase(10);\n" +
+			"        CompletableFuture<Job> job = builder.buildAsync(executor);\n" +
+			"        AddCaller.OptionalParameters caller = AddCaller.prepare(new Job(\"b\", 100)).withX(1).withY(2);\n" +
+			"        CompletableFuture<Integer> sum = caller.callAsync(executor);\n" +
+			"        CompletableFuture<Void> recorded = RecordCaller.withEntry(\"x\").callAsync(executor);\n" +
+			"        // changed while the calls are still waiting for the executor\n" +
+			"        builder.withBase(20);\n" +
+			"        caller.withY(3);\n" +
+			"        release.countDown();\n" +
+			"        java.util.List<String> result = java.util.Arrays.asList(job.get().name + \":\" + job.get().base, String.valueOf(sum.get()), String.valueOf(recorded.get()), log.toString(),\n" +
+			"                String.valueOf(builder.build().base), String.valueOf(caller.call()));\n" +
+			"        executor.shutdown();\n" +
+			"        return result;\n" +
+			"    }\n" +
+			"}\n";
+
+	@Test
+	public void valuesAreTakenWhenTheCallIsSubmitted() throws Exception
+	{
+		TestCompiler compiler = new TestCompiler().addSource( "test.Job", Target );
+		try
+		{
+			boolean compiled = compiler.compile();
+			assertTrue( compiler.getDiagnostics(), compiled );
+
+			Object result = compiler.getClassLoader().loadClass( "test.Job" ).getMethod( "run" ).invoke( null );
+			assertEquals( Arrays.asList( "a:10", "103", "null", "[x@worker]", "20", "104" ), result );
+		}
+		finally
+		{
+			compiler.delete();
+		}
+	}
+
+	@Test
+	public void noVirtualThreadsBeforeJava21() throws Exception
+	{
+		TestCompiler compiler = new TestCompiler().addOption( "--release" ).addOption( "11" ).addSource( "test.Job", Target );
+		try
+		{
+			boolean compiled = compiler.compile();
+			assertTrue( compiler.getDiagnostics(), compiled );
+
+			assertEquals( Arrays.asList( "buildAsync" ), getAsyncMethodNames( compiler, "test.JobBuilder$OptionalParameters", "build" ) );
+			assertEquals( Arrays.asList( "callAsync" ), getAsyncMethodNames( compiler, "test.AddCaller$OptionalParameters", "call" ) );
+		}
+		finally
+		{
+			compiler.delete();
+		}
+	}
+
+	@Test
+	public void virtualThreadsFromJava21() throws Exception
+	{
+		Assume.assumeTrue( SourceVersion.latestSupported().ordinal() >= 21 );
+
+		TestCompiler compiler = new TestCompiler().addOption( "--release" ).addOption( "21" ).addSource( "test.Job", Target );
+		try
+		{
+			boolean compiled = compiler.compile();
+			assertTrue( compiler.getDiagnostics(), compiled );
+
+			assertEquals( Arrays.asList( "buildAsync", "buildOnVirtualThread" ), getAsyncMethodNames( compiler, "test.JobBuilder$OptionalParameters", "build" ) );
+		}
+		finally
+		{
+			compiler.delete();
+		}
+	}
+
+	private static List<String> getAsyncMethodNames( TestCompiler compiler, String className, String finalMethodName ) throws Exception
+	{
+		List<String> result = new ArrayList<>();
+		for( Method method : compiler.getClassLoader().loadClass( className ).getMethods() )
+		{
+			if( method.getName().startsWith( finalMethodName ) && !method.getName().equals( finalMethodName ) )
+				result.add( method.getName() );
+		}
+		Collections.sort( result );
+		assertFalse( result.isEmpty() );
+		return result;
+	}
+}
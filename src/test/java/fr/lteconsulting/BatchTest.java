@@ -0,0 +1,93 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Batches keep the state of each added builder in their columns, and run them in order, sequentially or in parallel
+ */
+public class BatchTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Adder {\n" +
+			"    final int base;\n" +
+			"    public Adder(int base) { this.base = base; }\n" +
+			"    @UseBuilderGenerator(batch = true)\n" +
+			"    public String add(@Mandatory int x, @Parameter(defaultValue = \"100\") int y, String label) { return label + \":\" + (base + x + y); }\n" +
+			"    public static AddCaller.Batch fill(int count) {\n" +
+			"        AddCaller.Batch batch = new AddCaller.Batch(2);\n" +
+			"        Adder even = new Adder(1000), odd = new Adder(2000);\n" +
+			"        for (int i = 0; i < count; i++) {\n" +
+			"            if (i % 2 == 0) AddCaller.prepare(even).withX(i).addTo(batch);\n" +
+			"            else AddCaller.prepare(odd).withX(i).withY(i).withLabel(\"odd\").addTo(batch);\n" +
+			"        }\n" +
+			"        return batch;\n" +
+			"    }\n" +
+			"}\n";
+
+	private final static int Count = 3000;
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Adder", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void runInOrder() throws Exception
+	{
+		Object batch = fill();
+		assertEquals( Count, batch.getClass().getMethod( "size" ).invoke( batch ) );
+
+		List<?> results = (List<?>) batch.getClass().getMethod( "run" ).invoke( batch );
+		assertEquals( Count, results.size() );
+		for( int i = 0; i < Count; i++ )
+			assertEquals( i % 2 == 0 ? "null:" + (1100 + i) : "odd:" + (2000 + 2 * i), results.get( i ) );
+
+		// split among the threads of the pool above the task threshold
+		Object parallelResults = batch.getClass().getMethod( "run", ForkJoinPool.class ).invoke( batch, ForkJoinPool.commonPool() );
+		assertEquals( results, parallelResults );
+	}
+
+	@Test
+	public void clearReleasesTheColumns() throws Exception
+	{
+		Object batch = fill();
+		batch.getClass().getMethod( "clear" ).invoke( batch );
+
+		assertEquals( 0, batch.getClass().getMethod( "size" ).invoke( batch ) );
+		assertEquals( 0, ((List<?>) batch.getClass().getMethod( "run" ).invoke( batch )).size() );
+		for( String column : new String[] { "calledInstance", "label" } )
+		{
+			Field field = batch.getClass().getDeclaredField( column );
+			field.setAccessible( true );
+			for( Object value : (Object[]) field.get( batch ) )
+				assertNull( value );
+		}
+	}
+
+	private static Object fill() throws Exception
+	{
+		return compiler.getClassLoader().loadClass( "test.Adder" ).getMethod( "fill", int.class ).invoke( null, Count );
+	}
+}
@@ -0,0 +1,133 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Binding by name converts the values to the parameter types, and reports all the missing mandatory parameters
+ */
+public class BindingTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Server {\n" +
+			"    final String description;\n" +
+			"    @UseBuilderGenerator(binding = true)\n" +
+			"    public Server(@Mandatory String host, @Mandatory int port, @Parameter(defaultValue = \"30L\") long timeout, Boolean secure, char mode, java.util.List<String> tags) {\n" +
+			"        description = host + \"|\" + port + \"|\" + timeout + \"|\" + secure + \"|\" + mode + \"|\" + tags;\n" +
+			"    }\n" +
+			"    public static String fromMap(java.util.Map<String, ?> values) { return ServerBuilder.fromMap(values).build().description; }\n" +
+			"    public static String fromProperties(java.util.Properties properties) { return ServerBuilder.fromProperties(properties).bind(\"tags\", null).build().description; }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Server", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void typedValues() throws Exception
+	{
+		Map<String, Object> values = new HashMap<>();
+		values.put( "host", "localhost" );
+		values.put( "port", 8080 );
+		values.put( "timeout", 5 );
+		values.put( "secure", true );
+		values.put( "mode", 'r' );
+		values.put( "tags", Arrays.asList( "a", "b" ) );
+		assertEquals( "localhost|8080|5|true|r|[a, b]", fromMap( values ) );
+	}
+
+	@Test
+	public void stringValues() throws Exception
+	{
+		Properties properties = new Properties();
+		properties.setProperty( "host", "localhost" );
+		properties.setProperty( "port", "81" );
+		properties.setProperty( "secure", "TRUE" );
+		properties.setProperty( "mode", "w" );
+		Object result = compiler.getClassLoader().loadClass( "test.Server" ).getMethod( "fromProperties", Properties.class ).invoke( null, properties );
+		assertEquals( "localhost|81|30|true|w|null", result );
+	}
+
+	@Test
+	public void missingAndInvalidKeys() throws Exception
+	{
+		Map<String, Object> values = new HashMap<>();
+		assertRejected( values, "Missing mandatory parameters : host, port" );
+
+		values.put( "port", "81" );
+		assertRejected( values, "Missing mandatory parameters : host" );
+
+		values.put( "host", "localhost" );
+		values.put( "port", true );
+		assertRejected( values, "Cannot convert the value of port to int : true" );
+
+		values.put( "port", 81L );
+		values.put( "unknown", 1 );
+		assertRejected( values, "Unknown parameter unknown" );
+
+		values.remove( "unknown" );
+		assertEquals( "localhost|81|30|null|\0|null", fromMap( values ) );
+	}
+
+	@Test
+	public void charsMustBeOneCharacterLong() throws Exception
+	{
+		Map<String, Object> values = new HashMap<>();
+		values.put( "host", "localhost" );
+		values.put( "port", 81 );
+		values.put( "mode", "rw" );
+		assertRejected( values, "Cannot convert the value of mode to char : rw" );
+
+		values.put( "mode", "" );
+		assertRejected( values, "Cannot convert the value of mode to char : " );
+
+		values.put( "mode", 7 );
+		assertRejected( values, "Cannot convert the value of mode to char : 7" );
+
+		values.put( "mode", "x" );
+		assertEquals( "localhost|81|30|null|x|null", fromMap( values ) );
+	}
+
+	private static Object fromMap( Map<String, ?> values ) throws Exception
+	{
+		return compiler.getClassLoader().loadClass( "test.Server" ).getMethod( "fromMap", Map.class ).invoke( null, values );
+	}
+
+	private static void assertRejected( Map<String, ?> values, String message ) throws Exception
+	{
+		try
+		{
+			fromMap( values );
+			fail( message );
+		}
+		catch( InvocationTargetException e )
+		{
+			assertEquals( IllegalArgumentException.class, e.getCause().getClass() );
+			assertEquals( message, e.getCause().getMessage() );
+		}
+	}
+}
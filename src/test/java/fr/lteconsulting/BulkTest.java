@@ -0,0 +1,140 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Bulk calls take one column per parameter, the null optional columns giving the default values, and keep the
+ * results in index order when split among the threads of a pool
+ */
+public class BulkTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Gauge {\n" +
+			"    final long base;\n" +
+			"    public Gauge(long base) { this.base = base; }\n" +
+			"    @UseBuilderGenerator(bulk = true)\n" +
+			"    public static String format(@Mandatory String name, @Parameter(defaultValue = \"7\") int count, char mark, Double ratio) {\n" +
+			"        return name + \"|\" + count + \"|\" + (int) mark + \"|\" + ratio;\n" +
+			"    }\n" +
+			"    @UseBuilderGenerator(bulk = true)\n" +
+			"    public long scale(@Mandatory long value, double factor) { return base + (long) (value * factor); }\n" +
+			"    public static java.util.List<String> formats() {\n" +
+			"        String[] defaults = new String[2];\n" +
+			"        FormatCaller.callAll(2, defaults, new String[] { \"a\", \"b\" }, null, null, null);\n" +
+			"        String[] given = new String[2];\n" +
+			"        FormatCaller.callAll(2, given, new String[] { \"c\", \"d\" }, new int[] { 1, 2 }, new char[] { 'x', 'y' }, new Double[] { 0.5, null });\n" +
+			"        java.util.List<String> result = new java.util.ArrayList<>(java.util.Arrays.asList(defaults));\n" +
+			"        result.addAll(java.util.Arrays.asList(given));\n" +
+			"        return result;\n" +
+			"    }\n" +
+			"    public static long[] scaled(int count, java.util.concurrent.ForkJoinPool pool) {\n" +
+			"        Gauge[] gauges = new Gauge[count];\n" +
+			"        long[] values = new long[count];\n" +
+			"        double[] factors = new double[count];\n" +
+			"        for (int i = 0; i < count; i++) { gauges[i] = new Gauge(1000L * (i % 3)); values[i] = i; factors[i] = i % 2 == 0 ? 2 : 0.5; }\n" +
+			"        long[] results = new long[count];\n" +
+			"        if (pool == null) ScaleCaller.callAll(count, gauges, results, values, factors);\n" +
+			"        else ScaleCaller.callAll(pool, count, gauges, results, values, factors);\n" +
+			"        return results;\n" +
+			"    }\n" +
+			"    public static String[] formatColumns(String[] results, String[] names, int[] counts) {\n" +
+			"        FormatCaller.callAll(3, results, names, counts, null, null);\n" +
+			"        return results;\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Gauge", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void nullColumnsGiveTheDefaultValues() throws Exception
+	{
+		Object result = compiler.getClassLoader().loadClass( "test.Gauge" ).getMethod( "formats" ).invoke( null );
+		assertEquals( Arrays.asList( "a|7|0|null", "b|7|0|null", "c|1|120|0.5", "d|2|121|null" ), result );
+	}
+
+	@Test
+	public void parallelResultsAreInIndexOrder() throws Exception
+	{
+		// several tasks above the threshold of 1024 indexes
+		int count = 5000;
+		long[] expected = new long[count];
+		for( int i = 0; i < count; i++ )
+			expected[i] = 1000L * (i % 3) + (long) (i * (i % 2 == 0 ? 2 : 0.5));
+
+		assertArrayEquals( expected, scaled( count, null ) );
+		ForkJoinPool pool = new ForkJoinPool( 4 );
+		try
+		{
+			for( int i = 0; i < 5; i++ )
+				assertArrayEquals( expected, scaled( count, pool ) );
+			assertArrayEquals( Arrays.copyOf( expected, 1025 ), scaled( 1025, pool ) );
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void shortColumnsAreRejectedBeforeAnyCall() throws Exception
+	{
+		assertRejected( new String[3], new String[] { "a", "b" }, null, "The name column has 2 value(s), not 3" );
+		assertRejected( new String[2], new String[] { "a", "b", "c" }, null, "The results column has 2 value(s), not 3" );
+		assertRejected( new String[3], new String[] { "a", "b", "c" }, new int[1], "The count column has 1 value(s), not 3" );
+
+		// longer columns are fine
+		String[] results = (String[]) formatColumns( new String[4], new String[] { "a", "b", "c", "d" }, new int[] { 1, 2, 3, 4 } );
+		assertArrayEquals( new String[] { "a|1|0|null", "b|2|0|null", "c|3|0|null", null }, results );
+	}
+
+	private static long[] scaled( int count, ForkJoinPool pool ) throws Exception
+	{
+		return (long[]) compiler.getClassLoader().loadClass( "test.Gauge" ).getMethod( "scaled", int.class, ForkJoinPool.class ).invoke( null, count, pool );
+	}
+
+	private static Object formatColumns( String[] results, String[] names, int[] counts ) throws Exception
+	{
+		return compiler.getClassLoader().loadClass( "test.Gauge" ).getMethod( "formatColumns", String[].class, String[].class, int[].class ).invoke( null, results, names, counts );
+	}
+
+	private static void assertRejected( String[] results, String[] names, int[] counts, String message ) throws Exception
+	{
+		try
+		{
+			formatColumns( results, names, counts );
+			fail( message );
+		}
+		catch( InvocationTargetException e )
+		{
+			assertEquals( IllegalArgumentException.class, e.getCause().getClass() );
+			assertEquals( message, e.getCause().getMessage() );
+			assertArrayEquals( "no call before the check", new String[results.length], results );
+		}
+	}
+}
@@ -0,0 +1,432 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Objects written by the generated codecs must be read back equal to the originals, for every kind of parameter
+ */
+public class CodecTest
+{
+	private final static String Shape = "package test;\n" +
+			"public abstract class Shape {\n" +
+			"    protected abstract Object[] values();\n" +
+			"    @Override public boolean equals(Object o) { return o != null && o.getClass() == getClass() && java.util.Arrays.equals(values(), ((Shape) o).values()); }\n" +
+			"    @Override public int hashCode() { return java.util.Arrays.hashCode(values()); }\n" +
+			"}\n";
+
+	private final static String Circle = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Circle extends Shape {\n" +
+			"    private final double radius;\n" +
+			"    @UseBuilderGenerator(codec = true)\n" +
+			"    public Circle(double radius) { this.radius = radius; }\n" +
+			"    public double getRadius() { return radius; }\n" +
+			"    @Override protected Object[] values() { return new Object[] { radius }; }\n" +
+			"}\n";
+
+	private final static String Square = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Square extends Shape {\n" +
+			"    final String label;\n" +
+			"    final Integer side;\n" +
+			"    @UseBuilderGenerator(codec = true)\n" +
+			"    public Square(String label, Integer side) { this.label = label; this.side = side; }\n" +
+			"    @Override protected Object[] values() { return new Object[] { label, side }; }\n" +
+			"}\n";
+
+	private final static String Holder = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Holder extends Shape {\n" +
+			"    final Shape shape;\n" +
+			"    @UseBuilderGenerator(codec = true)\n" +
+			"    public Holder(Shape shape) { this.shape = shape; }\n" +
+			"    @Override protected Object[] values() { return new Object[] { shape }; }\n" +
+			"}\n";
+
+	private final static String Triangle = "package test;\n" +
+			"public class Triangle extends Shape {\n" +
+			"    @Override protected Object[] values() { return new Object[0]; }\n" +
+			"}\n";
+
+	private final static String Everything = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Everything {\n" +
+			"    final boolean bool; final byte b; final short s; final char c; final int i; final long l; final float f; final double d;\n" +
+			"    final String text;\n" +
+			"    final Boolean boxedBool; final Byte boxedByte; final Short boxedShort; final Character boxedChar;\n" +
+			"    final Integer boxedInt; final Long boxedLong; final Float boxedFloat; final Double boxedDouble;\n" +
+			"    final Shape shape; final Circle circle; final Holder holder;\n" +
+			"    @UseBuilderGenerator(codec = true)\n" +
+			"    public Everything(boolean bool, byte b, short s, char c, int i, long l, float f, double d, String text,\n" +
+			"            Boolean boxedBool, Byte boxedByte, Short boxedShort, Character boxedChar, Integer boxedInt, Long boxedLong, Float boxedFloat, Double boxedDouble,\n" +
+			"            Shape shape, Circle circle, Holder holder) {\n" +
+			"        this.bool = bool; this.b = b; this.s = s; this.c = c; this.i = i; this.l = l; this.f = f; this.d = d; this.text = text;\n" +
+			"        this.boxedBool = boxedBool; this.boxedByte = boxedByte; this.boxedShort = boxedShort; this.boxedChar = boxedChar;\n" +
+			"        this.boxedInt = boxedInt; this.boxedLong = boxedLong; this.boxedFloat = boxedFloat; this.boxedDouble = boxedDouble;\n" +
+			"        this.shape = shape; this.circle = circle; this.holder = holder;\n" +
+			"    }\n" +
+			"    private Object[] values() {\n" +
+			"        return new Object[] { bool, b, s, c, i, l, f, d, text, boxedBool, boxedByte, boxedShort, boxedChar, boxedInt, boxedLong, boxedFloat, boxedDouble, shape, circle, holder };\n" +
+			"    }\n" +
+			"    @Override public boolean equals(Object o) { return o instanceof Everything && java.util.Arrays.equals(values(), ((Everything) o).values()); }\n" +
+			"    @Override public int hashCode() { return java.util.Arrays.hashCode(values()); }\n" +
+			"    @Override public String toString() { return java.util.Arrays.toString(values()); }\n" +
+			"}\n";
+
+	private final static String Leaf = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public final class Leaf {\n" +
+			"    final int value;\n" +
+			"    @UseBuilderGenerator(codec = true)\n" +
+			"    public Leaf(int value) { this.value = value; }\n" +
+			"}\n";
+
+	private final static String Pair = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Pair {\n" +
+			"    final Leaf left; final Leaf right;\n" +
+			"    @UseBuilderGenerator(codec = true)\n" +
+			"    public Pair(Leaf left, Leaf right) { this.left = left; this.right = right; }\n" +
+			"    public static String roundTrip(int left) {\n" +
+			"        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(64);\n" +
+			"        PairBuilder.Codec.write(buffer, new Pair(new Leaf(left), null));\n" +
+			"        buffer.flip();\n" +
+			"        Pair pair = PairBuilder.Codec.read(buffer);\n" +
+			"        return pair.left.value + \"|\" + pair.right;\n" +
+			"    }\n" +
+			"}\n";
+
+	private final static String Tagged = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public abstract class Base {\n" +
+			"    public static class First extends Base {\n" +
+			"        @UseBuilderGenerator(codec = true, codecTag = 5)\n" +
+			"        public First() {}\n" +
+			"    }\n" +
+			"    public static class Second extends Base {\n" +
+			"        @UseBuilderGenerator(codec = true, codecTag = %d)\n" +
+			"        public Second() {}\n" +
+			"    }\n" +
+			"    public static class Box {\n" +
+			"        final Base content;\n" +
+			"        @UseBuilderGenerator(codec = true)\n" +
+			"        public Box(Base content) { this.content = content; }\n" +
+			"        public static int writtenTag(Base content) {\n" +
+			"            java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(16);\n" +
+			"            BoxBuilder.Codec.write(buffer, new Box(content));\n" +
+			"            return buffer.getInt(0);\n" +
+			"        }\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+	private static ClassLoader classLoader;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler()
+				.addSource( "test.Shape", Shape )
+				.addSource( "test.Circle", Circle )
+				.addSource( "test.Square", Square )
+				.addSource( "test.Holder", Holder )
+				.addSource( "test.Triangle", Triangle )
+				.addSource( "test.Everything", Everything );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		classLoader = compiler.getClassLoader();
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void valuesRoundTrip() throws Exception
+	{
+		Object square = create( "test.Square", "side", 4 );
+		Object holder = create( "test.Holder", create( "test.Holder", square ) );
+		Object everything = create( "test.Everything", true, (byte) -3, (short) 1234, '\u00e9', Integer.MIN_VALUE, Long.MAX_VALUE, 1.5f, Math.PI, "h\u00e9llo \u2603",
+				Boolean.FALSE, Byte.valueOf( (byte) 7 ), Short.valueOf( (short) -8 ), Character.valueOf( 'z' ), Integer.valueOf( 42 ), Long.valueOf( -1L ), Float.valueOf( Float.NaN ), Double.valueOf( -0.0 ),
+				create( "test.Circle", 2.5 ), create( "test.Circle", 0.5 ), holder );
+
+		assertRoundTrip( everything );
+	}
+
+	@Test
+	public void nullsRoundTrip() throws Exception
+	{
+		Object everything = create( "test.Everything", false, (byte) 0, (short) 0, '\0', 0, 0L, 0f, 0d, null,
+				null, null, null, null, null, null, null, null,
+				null, null, create( "test.Holder", create( "test.Square", null, null ) ) );
+
+		assertRoundTrip( everything );
+	}
+
+	@Test
+	public void subtypeTagsRoundTrip() throws Exception
+	{
+		Object[] shapes = { create( "test.Circle", 1.0 ), create( "test.Square", "a", 1 ), create( "test.Holder", create( "test.Circle", 3.0 ) ) };
+		for( Object shape : shapes )
+		{
+			Object holder = create( "test.Holder", shape );
+			assertRoundTrip( holder );
+			assertEquals( shape.getClass(), getField( readBuffer( "test.Holder", writeBuffer( "test.Holder", holder ) ), "shape" ).getClass() );
+		}
+	}
+
+	@Test
+	public void unknownTagIsRejected() throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate( 16 );
+		buffer.putInt( 9 );
+		buffer.flip();
+
+		try
+		{
+			readBuffer( "test.Holder", buffer );
+			fail( "an unknown tag must be rejected" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertEquals( "Unknown codec tag 9", e.getMessage() );
+		}
+
+		DataInput input = new DataInputStream( new ByteArrayInputStream( new byte[] { 0, 0, 0, 9 } ) );
+		try
+		{
+			invoke( getCodecMethod( "test.Holder", "read", DataInput.class ), input );
+			fail( "an unknown tag must be rejected" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertEquals( "Unknown codec tag 9", e.getMessage() );
+		}
+	}
+
+	@Test
+	public void subtypeWithoutCodecIsRejected() throws Exception
+	{
+		try
+		{
+			writeBuffer( "test.Holder", create( "test.Holder", create( "test.Triangle" ) ) );
+			fail( "a subtype without codec cannot be written" );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertEquals( "No codec for test.Triangle", e.getMessage() );
+		}
+	}
+
+	/**
+	 * In an incremental build, the codec of a parameter type can come from the class path
+	 */
+	@Test
+	public void codecCompiledBeforehand() throws Exception
+	{
+		TestCompiler leafCompiler = new TestCompiler().addSource( "test.Leaf", Leaf );
+		TestCompiler pairCompiler = new TestCompiler().addClassPath( leafCompiler ).addSource( "test.Pair", Pair );
+		try
+		{
+			boolean compiled = leafCompiler.compile();
+			assertTrue( leafCompiler.getDiagnostics(), compiled );
+			compiled = pairCompiler.compile();
+			assertTrue( pairCompiler.getDiagnostics(), compiled );
+
+			Object result = pairCompiler.getClassLoader().loadClass( "test.Pair" ).getMethod( "roundTrip", int.class ).invoke( null, 42 );
+			assertEquals( "42|null", result );
+		}
+		finally
+		{
+			leafCompiler.delete();
+			pairCompiler.delete();
+		}
+	}
+
+	/**
+	 * The tag of a codec type does not depend on the other codec types of the compilation
+	 */
+	@Test
+	public void tagsAreStable() throws Exception
+	{
+		for( String className : new String[] { "test.Circle", "test.Square" } )
+		{
+			Object holder = create( "test.Holder", create( className, className.equals( "test.Circle" ) ? new Object[] { 1.0 } : new Object[] { "a", 1 } ) );
+			assertEquals( className.hashCode(), writeBuffer( "test.Holder", holder ).getInt() );
+		}
+
+		TestCompiler taggedCompiler = new TestCompiler().addSource( "test.Base", String.format( Tagged, 0 ) );
+		try
+		{
+			boolean compiled = taggedCompiler.compile();
+			assertTrue( taggedCompiler.getDiagnostics(), compiled );
+
+			ClassLoader taggedClassLoader = taggedCompiler.getClassLoader();
+			Method writtenTag = taggedClassLoader.loadClass( "test.Base$Box" ).getMethod( "writtenTag", taggedClassLoader.loadClass( "test.Base" ) );
+			assertEquals( 5, writtenTag.invoke( null, taggedClassLoader.loadClass( "test.Base$First" ).getConstructor().newInstance() ) );
+			assertEquals( "test.Base.Second".hashCode(), writtenTag.invoke( null, taggedClassLoader.loadClass( "test.Base$Second" ).getConstructor().newInstance() ) );
+		}
+		finally
+		{
+			taggedCompiler.delete();
+		}
+	}
+
+	@Test
+	public void sameTagsAreReported() throws Exception
+	{
+		TestCompiler taggedCompiler = new TestCompiler().addSource( "test.Base", String.format( Tagged, 5 ) );
+		try
+		{
+			assertFalse( taggedCompiler.compile() );
+			assertEquals( Arrays.asList( "The codec tag of test.Base.Second is the same as the one of test.Base.First : give it another codecTag" ), taggedCompiler.getMessages( Diagnostic.Kind.ERROR ) );
+		}
+		finally
+		{
+			taggedCompiler.delete();
+		}
+	}
+
+	/**
+	 * The subtypes of a type compiled beforehand cannot all be found, so the codec would not write all of them
+	 */
+	@Test
+	public void notFinalTypeCompiledBeforehandIsReported() throws Exception
+	{
+		TestCompiler leafCompiler = new TestCompiler().addSource( "test.Leaf", Leaf.replace( "public final class", "public class" ) );
+		TestCompiler pairCompiler = new TestCompiler().addClassPath( leafCompiler ).addSource( "test.Pair", Pair );
+		try
+		{
+			boolean compiled = leafCompiler.compile();
+			assertTrue( leafCompiler.getDiagnostics(), compiled );
+
+			assertFalse( pairCompiler.compile() );
+			String message = "The type of this parameter is not final, and the codecs of its subtypes cannot all be found when it is compiled beforehand or with the buildergen.isolating option : make it final";
+			assertEquals( Arrays.asList( message, message ), pairCompiler.getMessages( Diagnostic.Kind.ERROR ) );
+		}
+		finally
+		{
+			leafCompiler.delete();
+			pairCompiler.delete();
+		}
+	}
+
+	/**
+	 * In an isolating build, the subtypes compiled in the same round are not looked at either
+	 */
+	@Test
+	public void notFinalTypeIsReportedInIsolatingBuilds() throws Exception
+	{
+		TestCompiler finalCompiler = new TestCompiler().addOption( "-Abuildergen.isolating=true" ).addSource( "test.Leaf", Leaf ).addSource( "test.Pair", Pair );
+		TestCompiler notFinalCompiler = new TestCompiler().addOption( "-Abuildergen.isolating=true" ).addSource( "test.Leaf", Leaf.replace( "public final class", "public class" ) ).addSource( "test.Pair", Pair );
+		try
+		{
+			boolean compiled = finalCompiler.compile();
+			assertTrue( finalCompiler.getDiagnostics(), compiled );
+			assertEquals( "42|null", finalCompiler.getClassLoader().loadClass( "test.Pair" ).getMethod( "roundTrip", int.class ).invoke( null, 42 ) );
+
+			assertFalse( notFinalCompiler.compile() );
+			String message = "The type of this parameter is not final, and the codecs of its subtypes cannot all be found when it is compiled beforehand or with the buildergen.isolating option : make it final";
+			assertEquals( Arrays.asList( message, message ), notFinalCompiler.getMessages( Diagnostic.Kind.ERROR ) );
+		}
+		finally
+		{
+			finalCompiler.delete();
+			notFinalCompiler.delete();
+		}
+	}
+
+	private void assertRoundTrip( Object value ) throws Exception
+	{
+		String className = value.getClass().getName();
+
+		Object copy = readBuffer( className, writeBuffer( className, value ) );
+		assertNotSame( value, copy );
+		assertEquals( value, copy );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		invoke( getCodecMethod( className, "write", DataOutput.class ), new DataOutputStream( bytes ), value );
+		copy = invoke( getCodecMethod( className, "read", DataInput.class ), new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) );
+		assertEquals( value, copy );
+
+		ByteBuffer buffer = writeBuffer( className, value );
+		assertEquals( "both streams write the same bytes", ByteBuffer.wrap( bytes.toByteArray() ), buffer );
+	}
+
+	private ByteBuffer writeBuffer( String className, Object value ) throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate( 1024 );
+		invoke( getCodecMethod( className, "write", ByteBuffer.class ), buffer, value );
+		buffer.flip();
+		return buffer;
+	}
+
+	private Object readBuffer( String className, ByteBuffer buffer ) throws Exception
+	{
+		Object result = invoke( getCodecMethod( className, "read", ByteBuffer.class ), buffer );
+		assertFalse( "the whole record is read", buffer.hasRemaining() );
+		return result;
+	}
+
+	private static Object create( String className, Object... arguments ) throws Exception
+	{
+		Constructor<?> constructor = classLoader.loadClass( className ).getConstructors()[0];
+		return constructor.newInstance( arguments );
+	}
+
+	private static Object getField( Object instance, String name ) throws Exception
+	{
+		java.lang.reflect.Field field = instance.getClass().getDeclaredField( name );
+		field.setAccessible( true );
+		return field.get( instance );
+	}
+
+	private static Method getCodecMethod( String className, String name, Class<?> streamType ) throws Exception
+	{
+		Class<?> codec = classLoader.loadClass( className + "Builder$Codec" );
+		for( Method method : codec.getMethods() )
+		{
+			if( method.getName().equals( name ) && method.getParameterTypes()[0] == streamType )
+				return method;
+		}
+		throw new NoSuchMethodException( name );
+	}
+
+	private static Object invoke( Method method, Object... arguments ) throws Exception
+	{
+		try
+		{
+			return method.invoke( null, arguments );
+		}
+		catch( InvocationTargetException e )
+		{
+			if( e.getCause() instanceof Exception )
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+}
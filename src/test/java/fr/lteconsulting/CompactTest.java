@@ -0,0 +1,85 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compact builders are a single class, prepared with the mandatory parameters in their declaration order
+ */
+public class CompactTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Route {\n" +
+			"    final String from; final int speed; final String to;\n" +
+			"    @UseBuilderGenerator(compact = true)\n" +
+			"    public Route(@Mandatory String from, @Parameter(defaultValue = \"50\") int speed, @Mandatory String to) { this.from = from; this.speed = speed; this.to = to; }\n" +
+			"    @UseBuilderGenerator(compact = true)\n" +
+			"    public String travel(@Mandatory int hours, double factor) { return from + \">\" + to + \":\" + (speed * hours * (factor == 0 ? 1 : factor)); }\n" +
+			"    @Override public String toString() { return from + \">\" + to + \"@\" + speed; }\n" +
+			"    public static java.util.List<String> built() {\n" +
+			"        Route route = RouteBuilder.prepare(\"a\", \"b\").build();\n" +
+			"        return java.util.Arrays.asList(route.toString(), RouteBuilder.prepare(\"c\", \"d\").withSpeed(80).build().toString(),\n" +
+			"                TravelCaller.prepare(route, 2).call(), TravelCaller.prepare(route, 2).withFactor(1.5).call());\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Route", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void preparedWithTheMandatoryParameters() throws Exception
+	{
+		Object result = compiler.getClassLoader().loadClass( "test.Route" ).getMethod( "built" ).invoke( null );
+		assertEquals( Arrays.asList( "a>b@50", "c>d@80", "a>b:100.0", "a>b:150.0" ), result );
+
+		assertEquals( Arrays.asList( "[class java.lang.String, class java.lang.String]" ), getPrepareParameterTypes( "test.RouteBuilder" ) );
+		assertEquals( Arrays.asList( "[class test.Route, int]" ), getPrepareParameterTypes( "test.TravelCaller" ) );
+	}
+
+	@Test
+	public void noStageTypes() throws Exception
+	{
+		for( String builderClassName : new String[] { "test.RouteBuilder", "test.TravelCaller" } )
+		{
+			List<String> nestedClasses = new ArrayList<>();
+			for( Class<?> nestedClass : compiler.getClassLoader().loadClass( builderClassName ).getDeclaredClasses() )
+				nestedClasses.add( nestedClass.getSimpleName() );
+			assertEquals( builderClassName, Collections.emptyList(), nestedClasses );
+		}
+	}
+
+	private static List<String> getPrepareParameterTypes( String builderClassName ) throws Exception
+	{
+		List<String> result = new ArrayList<>();
+		for( Method method : compiler.getClassLoader().loadClass( builderClassName ).getMethods() )
+		{
+			if( method.getName().equals( "prepare" ) )
+				result.add( Arrays.toString( method.getParameterTypes() ) );
+		}
+		return result;
+	}
+}
@@ -0,0 +1,97 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Declared default values must be compile time constants
+ */
+public class DefaultValueTest
+{
+	private final static String Constants = "package test;\n" +
+			"public class Constants {\n" +
+			"    public static final String NAME = \"constant\";\n" +
+			"}\n";
+
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Settings {\n" +
+			"    public final String description;\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Settings(@Parameter(defaultValue = \"42\") int count, @Parameter(defaultValue = \"-1L\") long offset,\n" +
+			"            @Parameter(defaultValue = \"(byte) 7\") byte flags, @Parameter(defaultValue = \"'x'\") char mark,\n" +
+			"            @Parameter(defaultValue = \"1.5e3\") double ratio, @Parameter(defaultValue = \"\\\"unknown\\\"\") String label,\n" +
+			"            @Parameter(defaultValue = \"Integer.MAX_VALUE\") int limit, @Parameter(defaultValue = \"Constants.NAME\") String name) {\n" +
+			"        description = count + \"|\" + offset + \"|\" + flags + \"|\" + mark + \"|\" + ratio + \"|\" + label + \"|\" + limit + \"|\" + name;\n" +
+			"    }\n" +
+			"    public static String defaults() { return SettingsBuilder.prepare().build().description; }\n" +
+			"    public static String overridden() { return SettingsBuilder.prepare().withCount(1).withLabel(null).build().description; }\n" +
+			"}\n";
+
+	private final static String NonConstant = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Timer {\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Timer(@Parameter(defaultValue = \"System.nanoTime()\") long start, @Parameter(defaultValue = \"new String()\") String name) {}\n" +
+			"}\n";
+
+	private final static String Accented = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Menu {\n" +
+			"    final String item;\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Menu(@Parameter(defaultValue = \"\\\"caf\u00e9\\\"\") String item) { this.item = item; }\n" +
+			"    public static String defaults() { return MenuBuilder.prepare().build().item; }\n" +
+			"}\n";
+
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void constantsAreApplied() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Constants", Constants ).addSource( "test.Settings", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		Class<?> settings = compiler.getClassLoader().loadClass( "test.Settings" );
+		assertEquals( "42|-1|7|x|1500.0|unknown|2147483647|constant", settings.getMethod( "defaults" ).invoke( null ) );
+		assertEquals( "1|-1|7|x|1500.0|null|2147483647|constant", settings.getMethod( "overridden" ).invoke( null ) );
+	}
+
+	/**
+	 * The generated sources are written with the encoding they are compiled with
+	 */
+	@Test
+	public void valuesKeepTheirCharactersWithAnyEncoding() throws Exception
+	{
+		compiler = new TestCompiler().addOption( "-encoding" ).addOption( "ISO-8859-1" ).addSource( "test.Menu", Accented );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		assertEquals( "caf\u00e9", compiler.getClassLoader().loadClass( "test.Menu" ).getMethod( "defaults" ).invoke( null ) );
+	}
+
+	@Test
+	public void otherExpressionsAreReported() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Timer", NonConstant );
+
+		assertFalse( compiler.compile() );
+		String message = "The default value must be a compile time constant : a literal, or a qualified reference to a constant field";
+		assertEquals( Arrays.asList( message, message ), compiler.getMessages( Diagnostic.Kind.ERROR ) );
+	}
+}
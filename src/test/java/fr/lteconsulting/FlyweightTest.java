@@ -0,0 +1,67 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Flyweights read fixed size records, made of primitive parameters
+ */
+public class FlyweightTest
+{
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void recordsAreReadBack() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Sample", "package test;\n" +
+				"import fr.lteconsulting.*;\n" +
+				"public class Sample {\n" +
+				"    public final long time; public final double value; public final boolean valid;\n" +
+				"    @UseBuilderGenerator(flyweight = true)\n" +
+				"    public Sample(long time, double value, boolean valid) { this.time = time; this.value = value; this.valid = valid; }\n" +
+				"    public static Sample secondOf(java.nio.ByteBuffer buffer) {\n" +
+				"        SampleBuilder.Flyweight.write(buffer, 0, 1L, 1.5, false);\n" +
+				"        SampleBuilder.Flyweight.write(buffer, 1, 2L, 2.5, true);\n" +
+				"        return new SampleBuilder.Flyweight().wrap(buffer, 0).moveTo(1).build();\n" +
+				"    }\n" +
+				"}\n" );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		Class<?> sampleClass = compiler.getClassLoader().loadClass( "test.Sample" );
+		assertEquals( 17, sampleClass.getClassLoader().loadClass( "test.SampleBuilder$Flyweight" ).getField( "RECORD_SIZE" ).getInt( null ) );
+		Object sample = sampleClass.getMethod( "secondOf", ByteBuffer.class ).invoke( null, ByteBuffer.allocate( 34 ) );
+		assertEquals( 2L, sampleClass.getField( "time" ).get( sample ) );
+		assertEquals( 2.5, sampleClass.getField( "value" ).get( sample ) );
+		assertEquals( true, sampleClass.getField( "valid" ).get( sample ) );
+	}
+
+	@Test
+	public void targetWithoutParameterIsRejected() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Empty", "package test;\n" +
+				"import fr.lteconsulting.*;\n" +
+				"public class Empty {\n" +
+				"    @UseBuilderGenerator(flyweight = true)\n" +
+				"    public Empty() {}\n" +
+				"}\n" );
+
+		assertFalse( compiler.compile() );
+		assertEquals( Collections.singletonList( "Flyweights need at least one parameter" ), compiler.getMessages( Diagnostic.Kind.ERROR ) );
+	}
+}
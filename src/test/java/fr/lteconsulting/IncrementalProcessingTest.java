@@ -0,0 +1,80 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Incremental builds rely on the generated sources being the same from one compilation to the other, and on each
+ * builder being created with the elements it is generated from
+ */
+public class IncrementalProcessingTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Shape {\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Shape(@Mandatory String name, int sides, double size) {}\n" +
+			"    public static class Corner {\n" +
+			"        @UseBuilderGenerator(reusable = true)\n" +
+			"        public Corner(@Mandatory double angle, String label) {}\n" +
+			"        @UseBuilderGenerator\n" +
+			"        public double rotate(@Mandatory double by, int times) { return by * times; }\n" +
+			"    }\n" +
+			"}\n";
+
+	private TestCompiler first;
+	private TestCompiler second;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		first.delete();
+		if( second != null )
+			second.delete();
+	}
+
+	@Test
+	public void sourcesAreTheSameFromOneCompilationToTheOther() throws Exception
+	{
+		first = new TestCompiler().addSource( "test.Shape", Target );
+		second = new TestCompiler().addSource( "test.Shape", Target );
+		boolean compiled = first.compile();
+		assertTrue( first.getDiagnostics(), compiled );
+		compiled = second.compile();
+		assertTrue( second.getDiagnostics(), compiled );
+
+		assertEquals( 3, first.getCreatedSources().size() );
+		assertEquals( first.getCreatedSources(), second.getCreatedSources() );
+		for( String name : first.getCreatedSources().keySet() )
+		{
+			String path = name.replace( '.', File.separatorChar ) + ".java";
+			assertArrayEquals( name, Files.readAllBytes( new File( first.getSourceOutput(), path ).toPath() ), Files.readAllBytes( new File( second.getSourceOutput(), path ).toPath() ) );
+		}
+	}
+
+	@Test
+	public void buildersAreCreatedWithTheirOriginatingElements() throws Exception
+	{
+		first = new TestCompiler().addSource( "test.Shape", Target );
+		boolean compiled = first.compile();
+		assertTrue( first.getDiagnostics(), compiled );
+
+		// the element, its enclosing type, and the top level type when it is another one
+		Map<String, List<String>> expected = new LinkedHashMap<>();
+		expected.put( "test.ShapeBuilder", Arrays.asList( "Shape(java.lang.String,int,double)", "test.Shape" ) );
+		expected.put( "test.CornerBuilder", Arrays.asList( "Corner(double,java.lang.String)", "test.Shape.Corner", "test.Shape" ) );
+		expected.put( "test.RotateCaller", Arrays.asList( "rotate(double,int)", "test.Shape.Corner", "test.Shape" ) );
+		assertEquals( expected, first.getCreatedSources() );
+	}
+}
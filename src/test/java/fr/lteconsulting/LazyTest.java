@@ -0,0 +1,90 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Lazy builds call the constructor once, on the first access, whatever the number of threads asking for the instance
+ */
+public class LazyTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"import java.util.concurrent.*;\n" +
+			"import java.util.function.Supplier;\n" +
+			"public class Table {\n" +
+			"    static final java.util.concurrent.atomic.AtomicInteger constructions = new java.util.concurrent.atomic.AtomicInteger();\n" +
+			"    static int failures;\n" +
+			"    final String name;\n" +
+			"    @UseBuilderGenerator(lazy = true)\n" +
+			"    public Table(@Mandatory String name, int size) {\n" +
+			"        constructions.incrementAndGet();\n" +
+			"        if (name.equals(\"flaky\") && failures++ == 0) throw new IllegalStateException(name);\n" +
+			"        try { Thread.sleep(50); } catch (InterruptedException e) { throw new IllegalStateException(e); }\n" +
+			"        this.name = name + \":\" + size;\n" +
+			"    }\n" +
+			"    public static String concurrentAccesses() throws Exception {\n" +
+			"        int before = constructions.get();\n" +
+			"        TableBuilder.OptionalParameters builder = TableBuilder.withName(\"a\").withSize(2);\n" +
+			"        Supplier<Table> table = builder.buildLazy();\n" +
+			"        builder.withSize(3);\n" +
+			"        int lazy = constructions.get() - before;\n" +
+			"        ExecutorService executor = Executors.newFixedThreadPool(8);\n" +
+			"        CountDownLatch start = new CountDownLatch(1);\n" +
+			"        java.util.List<Future<Table>> tables = new java.util.ArrayList<>();\n" +
+			"        for (int i = 0; i < 8; i++) tables.add(executor.submit(() -> { start.await(); return table.get(); }));\n" +
+			"        start.countDown();\n" +
+			"        java.util.Set<Table> distinct = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap<>());\n" +
+			"        for (Future<Table> future : tables) distinct.add(future.get());\n" +
+			"        executor.shutdown();\n" +
+			"        distinct.add(table.get());\n" +
+			"        return lazy + \"|\" + (constructions.get() - before) + \"|\" + distinct.size() + \"|\" + table.get().name;\n" +
+			"    }\n" +
+			"    public static String retryAfterFailure() {\n" +
+			"        constructions.set(0);\n" +
+			"        Supplier<Table> table = TableBuilder.withName(\"flaky\").buildLazy();\n" +
+			"        String first;\n" +
+			"        try { first = table.get().name; } catch (IllegalStateException e) { first = \"failed\"; }\n" +
+			"        return first + \"|\" + table.get().name + \"|\" + (table.get() == table.get()) + \"|\" + constructions.get();\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Table", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void builtOnceAcrossThreads() throws Exception
+	{
+		// no construction before the first access, one for all the threads, with the state when buildLazy() was called
+		for( int i = 0; i < 5; i++ )
+			assertEquals( "0|1|1|a:2", invoke( "concurrentAccesses" ) );
+	}
+
+	@Test
+	public void calledAgainAfterAnException() throws Exception
+	{
+		assertEquals( "failed|flaky:0|true|2", invoke( "retryAfterFailure" ) );
+	}
+
+	private static String invoke( String method ) throws Exception
+	{
+		return String.valueOf( compiler.getClassLoader().loadClass( "test.Table" ).getMethod( method ).invoke( null ) );
+	}
+}
@@ -0,0 +1,59 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The generated builders must compile without warnings with <code>-Xlint:all</code>
+ */
+public class LintTest
+{
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void bulkBuilder() throws Exception
+	{
+		assertNoWarning( "bulk = true" );
+	}
+
+	@Test
+	public void batchBuilder() throws Exception
+	{
+		assertNoWarning( "batch = true" );
+	}
+
+	@Test
+	public void memoizedBuilder() throws Exception
+	{
+		assertNoWarning( "memoize = 64, memoizeTtlMillis = 1000" );
+	}
+
+	private void assertNoWarning( String options ) throws Exception
+	{
+		compiler = new TestCompiler()
+				.addSource( "test.Item", "package test;\n" +
+						"import fr.lteconsulting.*;\n" +
+						"public class Item {\n" +
+						"    @UseBuilderGenerator(" + options + ")\n" +
+						"    public static int count(@Mandatory String name, int quantity) { return quantity; }\n" +
+						"}\n" )
+				.addOption( "-Xlint:all,-processing" );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		assertEquals( compiler.getDiagnostics(), Collections.emptyList(), compiler.getMessages( Diagnostic.Kind.WARNING ) );
+		assertEquals( compiler.getDiagnostics(), Collections.emptyList(), compiler.getMessages( Diagnostic.Kind.MANDATORY_WARNING ) );
+	}
+}
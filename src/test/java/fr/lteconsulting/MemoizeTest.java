@@ -0,0 +1,101 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Memoizing callers never keep more results than their memoization size, evicting the least recently used ones
+ */
+public class MemoizeTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Square {\n" +
+			"    public static int smallCalls;\n" +
+			"    @UseBuilderGenerator(memoize = 4)\n" +
+			"    public static int small(@Mandatory int value) { smallCalls++; return value * value; }\n" +
+			"    @UseBuilderGenerator(memoize = 20)\n" +
+			"    public static int large(@Mandatory int value) { return value * value; }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+	private static ClassLoader classLoader;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Square", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		classLoader = compiler.getClassLoader();
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvictedAtTheLimit() throws Exception
+	{
+		Class<?> caller = classLoader.loadClass( "test.SmallCaller" );
+		for( int value = 1; value <= 4; value++ )
+			call( caller, value );
+		assertEquals( 4, getCalls() );
+		assertEquals( 0L, caller.getMethod( "cacheEvictions" ).invoke( null ) );
+
+		// 1 becomes the most recently used, so 2 is evicted by 5
+		call( caller, 1 );
+		call( caller, 5 );
+		assertEquals( 5, getCalls() );
+		assertEquals( 1L, caller.getMethod( "cacheEvictions" ).invoke( null ) );
+		assertEquals( 4, getRetained( caller ) );
+
+		call( caller, 1 );
+		assertEquals( 5, getCalls() );
+		call( caller, 2 );
+		assertEquals( 6, getCalls() );
+	}
+
+	@Test
+	public void sizeIsNeverExceeded() throws Exception
+	{
+		Class<?> caller = classLoader.loadClass( "test.LargeCaller" );
+		for( int value = 0; value < 100; value++ )
+		{
+			call( caller, value );
+			assertTrue( getRetained( caller ) <= 20 );
+		}
+		assertEquals( 100L - getRetained( caller ), caller.getMethod( "cacheEvictions" ).invoke( null ) );
+	}
+
+	private static void call( Class<?> caller, int value ) throws Exception
+	{
+		Object builder = caller.getMethod( "withValue", int.class ).invoke( null, value );
+		Object result = classLoader.loadClass( caller.getName() + "$OptionalParameters" ).getMethod( "call" ).invoke( builder );
+		assertEquals( value * value, result );
+	}
+
+	private static int getCalls() throws Exception
+	{
+		return classLoader.loadClass( "test.Square" ).getField( "smallCalls" ).getInt( null );
+	}
+
+	private static int getRetained( Class<?> caller ) throws Exception
+	{
+		Field field = caller.getDeclaredField( "MEMO_SEGMENTS" );
+		field.setAccessible( true );
+		int retained = 0;
+		for( Object segment : (Object[]) field.get( null ) )
+			retained += ((Map<?, ?>) segment).size();
+		return retained;
+	}
+}
@@ -0,0 +1,96 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.lteconsulting.metrics.BuilderMetrics;
+import fr.lteconsulting.metrics.DefaultBuilderMetricsProvider;
+
+/**
+ * Builders generated with <code>-Abuildergen.metrics=true</code> must measure their target calls, and keep their final
+ * method as small as without metrics, so that the JIT can still inline it and scalar replace the builder when metrics
+ * are disabled at runtime
+ */
+public class MetricsTest
+{
+	private TestCompiler compiler;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		StringBuilder parameters = new StringBuilder();
+		StringBuilder setters = new StringBuilder();
+		for( int i = 0; i < 50; i++ )
+		{
+			parameters.append( i > 0 ? ", " : "" ).append( "int p" ).append( i );
+			setters.append( ".withP" ).append( i ).append( "(" ).append( i ).append( ")" );
+		}
+
+		compiler = new TestCompiler()
+				.addSource( "test.Wide", "package test;\n" +
+						"import fr.lteconsulting.*;\n" +
+						"public class Wide {\n" +
+						"    @UseBuilderGenerator\n" +
+						"    public Wide(" + parameters + ") {}\n" +
+						"    public static Wide create() { return WideBuilder.prepare()" + setters + ".build(); }\n" +
+						"}\n" )
+				.addOption( "-Abuildergen.metrics=true" );
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void measuredCallIsOutOfTheFinalMethod() throws Exception
+	{
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		String source = new String( Files.readAllBytes( new File( compiler.getSourceOutput(), "test/WideBuilder.java" ).toPath() ), StandardCharsets.UTF_8 );
+		String buildMethod = getMethod( source, "public test.Wide build()" );
+		assertTrue( buildMethod, buildMethod.contains( "return buildMeasured();" ) );
+		assertFalse( buildMethod, buildMethod.contains( "try" ) );
+		assertEquals( buildMethod, 1, count( buildMethod, "new test.Wide(" ) );
+		assertEquals( 1, count( getMethod( source, "private test.Wide buildMeasured()" ), "new test.Wide(" ) );
+	}
+
+	@Test
+	public void targetCallsAreMeasured() throws Exception
+	{
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		assertTrue( BuilderMetrics.isEnabled() );
+
+		compiler.getClassLoader().loadClass( "test.Wide" ).getMethod( "create" ).invoke( null );
+
+		DefaultBuilderMetricsProvider provider = (DefaultBuilderMetricsProvider) BuilderMetrics.getProvider();
+		assertEquals( 1, provider.getProbe( "test.WideBuilder" ).getCount() );
+	}
+
+	private static String getMethod( String source, String declaration )
+	{
+		int start = source.indexOf( declaration );
+		assertTrue( declaration, start >= 0 );
+		return source.substring( start, source.indexOf( "\n        }", start ) );
+	}
+
+	private static int count( String text, String part )
+	{
+		int result = 0;
+		for( int index = text.indexOf( part ); index >= 0; index = text.indexOf( part, index + 1 ) )
+			result++;
+		return result;
+	}
+}
@@ -0,0 +1,169 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The options read from the annotation mirrors are the given values over the defaults of the annotation types, and
+ * are cached until the next round
+ */
+public class ModelExtractorTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Tool {\n" +
+			"    @UseBuilderGenerator(builderName = \"Maker\", builderPackage = \"test.made\", finalMethodName = \"make\", reusable = true, memoize = 8, memoizeTtlMillis = 100L, codecTag = 3)\n" +
+			"    public static String make(@Mandatory String name, @Parameter(name = \"amount\", defaultValue = \"2\") int count, @Parameter(mandatory = true) long id, double ratio) { return name; }\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Tool(String label) {}\n" +
+			"}\n";
+
+	// generated in the first round, to be read in the second one
+	private final static String Later = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Later {\n" +
+			"    @UseBuilderGenerator(lazy = true)\n" +
+			"    public Later(@Mandatory int size) {}\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+	private static ReadingProcessor reader;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		reader = new ReadingProcessor();
+		compiler = new TestCompiler().addProcessor( reader ).addSource( "test.Tool", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void givenValues() throws Exception
+	{
+		assertEquals( "Maker|test.made|make|true|false|8|100|3|false [true::, false:amount:2, true::, false::]", reader.rounds.get( 0 ).get( "test.Tool.make(java.lang.String,int,long,double)" ) );
+	}
+
+	@Test
+	public void defaultValues() throws Exception
+	{
+		assertEquals( "|||false|false|0|0|0|false [false::]", reader.rounds.get( 0 ).get( "test.Tool.Tool(java.lang.String)" ) );
+	}
+
+	@Test
+	public void clearedBetweenRounds() throws Exception
+	{
+		assertEquals( Arrays.asList( "test.Tool.Tool(java.lang.String)", "test.Tool.make(java.lang.String,int,long,double)" ), new ArrayList<>( reader.rounds.get( 0 ).keySet() ) );
+		assertEquals( Arrays.asList( "test.Later.Later(int)" ), new ArrayList<>( reader.rounds.get( 1 ).keySet() ) );
+		assertEquals( "|||false|true|0|0|0|false [true::]", reader.rounds.get( 1 ).get( "test.Later.Later(int)" ) );
+
+		// cached within a round, read again after being cleared
+		assertEquals( Arrays.asList( "cached", "read again" ), reader.cache );
+	}
+
+	@SupportedAnnotationTypes( "fr.lteconsulting.UseBuilderGenerator" )
+	private static class ReadingProcessor extends AbstractProcessor
+	{
+		private ModelExtractor model;
+		private final List<TreeMap<String, String>> rounds = new ArrayList<>();
+		private final List<String> cache = new ArrayList<>();
+
+		@Override
+		public synchronized void init( ProcessingEnvironment processingEnv )
+		{
+			super.init( processingEnv );
+			model = new ModelExtractor( processingEnv.getElementUtils(), processingEnv.getTypeUtils() );
+		}
+
+		@Override
+		public SourceVersion getSupportedSourceVersion()
+		{
+			return SourceVersion.latestSupported();
+		}
+
+		@Override
+		public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+		{
+			if( roundEnv.processingOver() )
+				return false;
+
+			// as the builder generator does at the start of each round
+			model.clear();
+
+			TreeMap<String, String> options = new TreeMap<>();
+			for( Element e : roundEnv.getElementsAnnotatedWith( UseBuilderGenerator.class ) )
+			{
+				ExecutableElement element = (ExecutableElement) e;
+				options.put( model.getTypeInformation( element ).qualifiedName + "." + element, describe( model.getTargetOptions( element ) ) + " " + describe( model.getParameterOptions( element ) ) );
+
+				if( rounds.isEmpty() && element.getKind() == ElementKind.METHOD )
+				{
+					ModelExtractor.TargetOptions read = model.getTargetOptions( element );
+					List<ModelExtractor.ParameterOptions> parameters = model.getParameterOptions( element );
+					ModelExtractor.TypeInformation type = model.getTypeInformation( element );
+					if( read == model.getTargetOptions( element ) && parameters == model.getParameterOptions( element ) && type == model.getTypeInformation( element ) )
+						cache.add( "cached" );
+					model.clear();
+					if( read != model.getTargetOptions( element ) && parameters != model.getParameterOptions( element ) && type != model.getTypeInformation( element ) )
+						cache.add( "read again" );
+				}
+			}
+
+			if( rounds.isEmpty() )
+			{
+				try( Writer writer = processingEnv.getFiler().createSourceFile( "test.Later" ).openWriter() )
+				{
+					writer.write( Later );
+				}
+				catch( IOException e )
+				{
+					throw new IllegalStateException( e );
+				}
+			}
+			rounds.add( options );
+			return false;
+		}
+
+		private static String describe( ModelExtractor.TargetOptions options )
+		{
+			return options.builderName + "|" + options.builderPackage + "|" + options.finalMethodName + "|" + options.reusable + "|" + options.lazy + "|" + options.memoize + "|" + options.memoizeTtlMillis + "|"
+					+ options.codecTag + "|" + options.compact;
+		}
+
+		private static String describe( List<ModelExtractor.ParameterOptions> parameters )
+		{
+			List<String> result = new ArrayList<>();
+			for( ModelExtractor.ParameterOptions parameter : parameters )
+				result.add( parameter.mandatory + ":" + parameter.name + ":" + parameter.defaultValue );
+			return result.toString();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * In an incremental build, the nested builders of the parameters can come from the class path. In an isolating build,
+ * they are found from the parameter types themselves.
+ */
+public class NestedBuilderTest
+{
+	private final static String Inner = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Inner {\n" +
+			"    final String name; final int size;\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Inner(@Mandatory String name, int size) { this.name = name; this.size = size; }\n" +
+			"    @Override public String toString() { return name + \":\" + size; }\n" +
+			"}\n";
+
+	private final static String Point = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Point {\n" +
+			"    final int x; final int y;\n" +
+			"    @UseBuilderGenerator(terminalSetter = true)\n" +
+			"    public Point(@Mandatory int x, @Mandatory int y) { this.x = x; this.y = y; }\n" +
+			"    @Override public String toString() { return x + \",\" + y; }\n" +
+			"}\n";
+
+	private final static String Outer = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Outer {\n" +
+			"    final Inner inner; final Point origin;\n" +
+			"    @UseBuilderGenerator(nestedConfigurers = true)\n" +
+			"    public Outer(@Mandatory Inner inner, Point origin) { this.inner = inner; this.origin = origin; }\n" +
+			"    public static String describe() {\n" +
+			"        Outer outer = OuterBuilder.withInner(inner -> inner.withName(\"a\").withSize(2)).withOrigin(origin -> origin.withX(1).withY(3)).build();\n" +
+			"        return outer.inner + \"|\" + outer.origin;\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler innerCompiler;
+	private static TestCompiler outerCompiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		innerCompiler = new TestCompiler().addSource( "test.Inner", Inner ).addSource( "test.Point", Point );
+		boolean compiled = innerCompiler.compile();
+		assertTrue( innerCompiler.getDiagnostics(), compiled );
+
+		outerCompiler = new TestCompiler().addClassPath( innerCompiler ).addSource( "test.Outer", Outer );
+		compiled = outerCompiler.compile();
+		assertTrue( outerCompiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		innerCompiler.delete();
+		outerCompiler.delete();
+	}
+
+	@Test
+	public void configurersOfBuildersCompiledBeforehand() throws Exception
+	{
+		Object result = outerCompiler.getClassLoader().loadClass( "test.Outer" ).getMethod( "describe" ).invoke( null );
+		assertEquals( "a:2|1,3", result );
+		assertTrue( outerCompiler.getProcessor().getSupportedOptions().contains( "org.gradle.annotation.processing.aggregating" ) );
+	}
+
+	@Test
+	public void configurersOfAnIsolatingBuild() throws Exception
+	{
+		TestCompiler compiler = new TestCompiler().addOption( "-Abuildergen.isolating=true" ).addSource( "test.Inner", Inner ).addSource( "test.Point", Point ).addSource( "test.Outer", Outer );
+		try
+		{
+			boolean compiled = compiler.compile();
+			assertTrue( compiler.getDiagnostics(), compiled );
+
+			Object result = compiler.getClassLoader().loadClass( "test.Outer" ).getMethod( "describe" ).invoke( null );
+			assertEquals( "a:2|1,3", result );
+			assertTrue( compiler.getProcessor().getSupportedOptions().contains( "org.gradle.annotation.processing.isolating" ) );
+			assertFalse( compiler.getProcessor().getSupportedOptions().contains( "org.gradle.annotation.processing.aggregating" ) );
+		}
+		finally
+		{
+			compiler.delete();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Builders dispatching to overloads must only call the overloads they can access
+ */
+public class OverloadTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Connection {\n" +
+			"    public final String description;\n" +
+			"    @UseBuilderGenerator(dispatchToOverloads = true, builderPackage = \"%s\")\n" +
+			"    public Connection(@Mandatory String host, int port, int timeout) { description = host + \":\" + port + \"/\" + timeout; }\n" +
+			"    Connection(String host) { description = host + \" package private\"; }\n" +
+			"    protected Connection(String host, int port) { description = host + \":\" + port + \" protected\"; }\n" +
+			"}\n";
+
+	private final static String User = "package %s;\n" +
+			"public class ConnectionUser {\n" +
+			"    public static test.Connection hostOnly() { return ConnectionBuilder.withHost(\"h\").build(); }\n" +
+			"    public static test.Connection hostAndPort() { return ConnectionBuilder.withHost(\"h\").withPort(80).build(); }\n" +
+			"}\n";
+
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void overloadsOfTheBuilderPackageAreCalled() throws Exception
+	{
+		compile( "test" );
+		assertEquals( "h package private", build( "test", "hostOnly" ) );
+		assertEquals( "h:80 protected", build( "test", "hostAndPort" ) );
+	}
+
+	@Test
+	public void inaccessibleOverloadsAreIgnored() throws Exception
+	{
+		compile( "other" );
+		assertEquals( "h:0/0", build( "other", "hostOnly" ) );
+		assertEquals( "h:80/0", build( "other", "hostAndPort" ) );
+	}
+
+	private void compile( String builderPackage ) throws Exception
+	{
+		compiler = new TestCompiler()
+				.addSource( "test.Connection", String.format( Target, builderPackage ) )
+				.addSource( builderPackage + ".ConnectionUser", String.format( User, builderPackage ) );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	private String build( String builderPackage, String method ) throws Exception
+	{
+		Object connection = compiler.getClassLoader().loadClass( builderPackage + ".ConnectionUser" ).getMethod( method ).invoke( null );
+		return (String) connection.getClass().getField( "description" ).get( connection );
+	}
+}
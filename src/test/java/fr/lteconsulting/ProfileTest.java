@@ -0,0 +1,173 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The <code>buildergen.profile</code> option writes the time spent on each element as JSON or CSV, and names the
+ * slowest element in a note
+ */
+public class ProfileTest
+{
+	private final static String Narrow = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Narrow {\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Narrow(@Mandatory int value) {}\n" +
+			"}\n";
+
+	private final static Pattern RoundPattern = Pattern.compile( "\\{\"round\":(\\d+),\"elements\":(\\d+),\"nanos\":(\\d+),\"generatedChars\":(\\d+)\\}" );
+	private final static Pattern JsonElementPattern = Pattern.compile( "\\{\"round\":(\\d+),\"element\":\"([^\"]*)\",\"builder\":\"([^\"]*)\",\"parameters\":(\\d+),\"analysisNanos\":(\\d+),\"generationNanos\":(\\d+),\"writeNanos\":(\\d+),\"generatedChars\":(\\d+)\\}" );
+	private final static Pattern CsvElementPattern = Pattern.compile( "(\\d+),\"([^\"]*)\",([^,]+),(\\d+),(\\d+),(\\d+),(\\d+),(\\d+)" );
+	private final static Pattern NotePattern = Pattern.compile( "Builder generator profile: (\\d+) builder\\(s\\) generated in (\\d+) round\\(s\\), \\d+ ms, slowest: (.*) \\(\\d+ us, (\\d+) parameter\\(s\\), (\\d+) chars\\), report written to (.*)" );
+
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void jsonReport() throws Exception
+	{
+		Matcher note = compile( "profile.json" );
+		String report = readReport( note );
+
+		// the rounds, the last ones generating nothing
+		Matcher round = RoundPattern.matcher( report );
+		int rounds = 0;
+		Map<Integer, Integer> roundElements = new HashMap<>();
+		while( round.find() )
+		{
+			rounds++;
+			if( Integer.parseInt( round.group( 2 ) ) > 0 )
+				roundElements.put( Integer.parseInt( round.group( 1 ) ), Integer.parseInt( round.group( 2 ) ) );
+		}
+		assertEquals( Integer.parseInt( note.group( 2 ) ), rounds );
+
+		// the elements, each in one of the rounds
+		Matcher element = JsonElementPattern.matcher( report );
+		List<String[]> elements = new ArrayList<>();
+		Map<Integer, Integer> elementRounds = new HashMap<>();
+		while( element.find() )
+		{
+			elements.add( groups( element ) );
+			Integer elementRound = Integer.valueOf( element.group( 1 ) );
+			elementRounds.put( elementRound, elementRounds.containsKey( elementRound ) ? elementRounds.get( elementRound ) + 1 : 1 );
+		}
+		assertEquals( roundElements, elementRounds );
+		assertElements( elements, note );
+	}
+
+	@Test
+	public void csvReport() throws Exception
+	{
+		Matcher note = compile( "profile.csv" );
+		String[] lines = readReport( note ).split( "\n" );
+
+		assertEquals( "round,element,builder,parameters,analysisNanos,generationNanos,writeNanos,generatedChars", lines[0] );
+		List<String[]> elements = new ArrayList<>();
+		for( int i = 1; i < lines.length; i++ )
+		{
+			// the element is quoted, its parameter types being separated by commas
+			Matcher element = CsvElementPattern.matcher( lines[i] );
+			assertTrue( lines[i], element.matches() );
+			elements.add( groups( element ) );
+		}
+		assertElements( elements, note );
+	}
+
+	private Matcher compile( String profilePath ) throws IOException
+	{
+		compiler = new TestCompiler().addOption( "-Abuildergen.profile=" + profilePath ).addSource( "test.Narrow", Narrow ).addSource( "test.Wide", getWideSource( 40 ) );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		for( String message : compiler.getMessages( Diagnostic.Kind.NOTE ) )
+		{
+			Matcher note = NotePattern.matcher( message );
+			if( note.matches() )
+			{
+				assertEquals( "2", note.group( 1 ) );
+				assertTrue( note.group( 6 ), note.group( 6 ).endsWith( "/" + profilePath ) );
+				return note;
+			}
+		}
+		throw new AssertionError( "no profile note in " + compiler.getDiagnostics() );
+	}
+
+	/**
+	 * Checks the elements of the report, in the order of the groups of the patterns, and that the note names the one
+	 * with the longest total time
+	 */
+	private static void assertElements( List<String[]> elements, Matcher note )
+	{
+		Map<String, String> builders = new TreeMap<>();
+		String[] slowest = null;
+		for( String[] element : elements )
+		{
+			builders.put( element[1], element[2] + "|" + element[3] );
+			assertTrue( Long.parseLong( element[7] ) > 0 );
+			if( slowest == null || getTotalNanos( element ) > getTotalNanos( slowest ) )
+				slowest = element;
+		}
+
+		Map<String, String> expected = new TreeMap<>();
+		expected.put( "test.Narrow.Narrow(int)", "test.NarrowBuilder|1" );
+		StringBuilder wideElement = new StringBuilder( "test.Wide.Wide(" );
+		for( int i = 0; i < 40; i++ )
+			wideElement.append( i > 0 ? "," : "" ).append( "int" );
+		expected.put( wideElement.append( ')' ).toString(), "test.WideBuilder|40" );
+		assertEquals( expected, builders );
+
+		assertEquals( slowest[1], note.group( 3 ) );
+		assertEquals( slowest[3], note.group( 4 ) );
+		assertEquals( slowest[7], note.group( 5 ) );
+	}
+
+	private static String[] groups( Matcher matcher )
+	{
+		String[] result = new String[matcher.groupCount()];
+		for( int i = 0; i < result.length; i++ )
+			result[i] = matcher.group( i + 1 );
+		return result;
+	}
+
+	private static long getTotalNanos( String[] element )
+	{
+		return Long.parseLong( element[4] ) + Long.parseLong( element[5] ) + Long.parseLong( element[6] );
+	}
+
+	private static String readReport( Matcher note ) throws IOException
+	{
+		return new String( Files.readAllBytes( Paths.get( URI.create( note.group( 6 ) ) ) ), StandardCharsets.UTF_8 );
+	}
+
+	private static String getWideSource( int parameters )
+	{
+		StringBuilder sb = new StringBuilder( "package test;\nimport fr.lteconsulting.*;\npublic class Wide {\n    @UseBuilderGenerator\n    public Wide(" );
+		for( int i = 0; i < parameters; i++ )
+			sb.append( i > 0 ? ", " : "" ).append( "int p" ).append( i );
+		return sb.append( ") {}\n}\n" ).toString();
+	}
+}
@@ -0,0 +1,89 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * A prototype keeps the values of the builder when it was frozen, and the builders derived from it are independent
+ * from it and from each other
+ */
+public class PrototypeTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"import java.util.concurrent.*;\n" +
+			"public class Card {\n" +
+			"    final String title; final int width; final String color;\n" +
+			"    @UseBuilderGenerator(freezable = true)\n" +
+			"    public Card(@Mandatory String title, int width, String color) { this.title = title; this.width = width; this.color = color; }\n" +
+			"    @Override public String toString() { return title + \"|\" + width + \"|\" + color; }\n" +
+			"    public static java.util.List<String> derived() {\n" +
+			"        CardBuilder.OptionalParameters builder = CardBuilder.withTitle(\"t\").withWidth(2);\n" +
+			"        CardBuilder.Prototype prototype = builder.freeze();\n" +
+			"        builder.withWidth(3).withColor(\"red\");\n" +
+			"        CardBuilder.OptionalParameters first = prototype.derive().withColor(\"blue\");\n" +
+			"        CardBuilder.OptionalParameters second = prototype.derive();\n" +
+			"        first.withWidth(9);\n" +
+			"        return java.util.Arrays.asList(prototype.build().toString(), builder.build().toString(), first.build().toString(), second.build().toString(),\n" +
+			"                prototype.build().toString(), String.valueOf(first != second));\n" +
+			"    }\n" +
+			"    public static int sharedAcrossThreads() throws Exception {\n" +
+			"        CardBuilder.Prototype prototype = CardBuilder.withTitle(\"shared\").withWidth(5).freeze();\n" +
+			"        ExecutorService executor = Executors.newFixedThreadPool(8);\n" +
+			"        CountDownLatch start = new CountDownLatch(1);\n" +
+			"        java.util.List<Future<Integer>> mismatches = new java.util.ArrayList<>();\n" +
+			"        for (int t = 0; t < 8; t++) {\n" +
+			"            String color = \"c\" + t;\n" +
+			"            mismatches.add(executor.submit(() -> {\n" +
+			"                start.await();\n" +
+			"                int result = 0;\n" +
+			"                for (int i = 0; i < 10000; i++) {\n" +
+			"                    if (!prototype.derive().withColor(color).build().toString().equals(\"shared|5|\" + color)) result++;\n" +
+			"                    if (!prototype.build().toString().equals(\"shared|5|null\")) result++;\n" +
+			"                }\n" +
+			"                return result;\n" +
+			"            }));\n" +
+			"        }\n" +
+			"        start.countDown();\n" +
+			"        int result = 0;\n" +
+			"        for (Future<Integer> future : mismatches) result += future.get();\n" +
+			"        executor.shutdown();\n" +
+			"        return result;\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Card", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void valuesAreFrozen() throws Exception
+	{
+		Object result = compiler.getClassLoader().loadClass( "test.Card" ).getMethod( "derived" ).invoke( null );
+		assertEquals( Arrays.asList( "t|2|null", "t|3|red", "t|9|blue", "t|2|null", "t|2|null", "true" ), result );
+	}
+
+	@Test
+	public void sharedAcrossThreads() throws Exception
+	{
+		assertEquals( 0, compiler.getClassLoader().loadClass( "test.Card" ).getMethod( "sharedAcrossThreads" ).invoke( null ) );
+	}
+}
@@ -0,0 +1,104 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The builder registry is found with the {@link java.util.ServiceLoader}, and prepares the builders it indexes
+ */
+public class RegistryTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"import fr.lteconsulting.registry.*;\n" +
+			"public class Widget {\n" +
+			"    final String name; int size;\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Widget(@Mandatory String name, int size) { this.name = name; this.size = size; }\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Widget resize(@Mandatory int size) { this.size = size; return this; }\n" +
+			"    @Override public String toString() { return name + \":\" + size; }\n" +
+			"    public static java.util.List<String> lookups() {\n" +
+			"        java.util.List<String> result = new java.util.ArrayList<>();\n" +
+			"        for (BuilderRegistry registry : java.util.ServiceLoader.load(BuilderRegistry.class, Widget.class.getClassLoader())) {\n" +
+			"            result.add(registry.getClass().getName() + \"=\" + registry.getEntries());\n" +
+			"            BuilderEntry constructor = registry.find(\"test.Widget\");\n" +
+			"            Widget widget = ((WidgetBuilder.MandatoryParameterName) constructor.prepare()).withName(\"w\").withSize(2).build();\n" +
+			"            result.add(widget.toString());\n" +
+			"            BuilderEntry method = registry.find(\"test.Widget#resize\");\n" +
+			"            result.add(method.getBuilderClass().getName() + \"|\" + java.util.Arrays.toString(method.getPrepareParameterTypes()));\n" +
+			"            result.add(((ResizeCaller.MandatoryParameterSize) method.prepare(widget)).withSize(5).call().toString());\n" +
+			"            result.add(String.valueOf(registry.find(\"test.Unknown\")));\n" +
+			"            try { method.prepare(); } catch (IllegalArgumentException e) { result.add(e.getMessage()); }\n" +
+			"        }\n" +
+			"        return result;\n" +
+			"    }\n" +
+			"}\n";
+
+	private final static String Rejected = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Rejected {\n" +
+			"    @UseBuilderGenerator(memoize = 4)\n" +
+			"    public static void log(String message) {}\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addOption( "-Abuildergen.registry=test.Builders" ).addSource( "test.Widget", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void foundByTheServiceLoader() throws Exception
+	{
+		Object result = compiler.getClassLoader().loadClass( "test.Widget" ).getMethod( "lookups" ).invoke( null );
+		assertEquals( Arrays.asList(
+				"test.Builders=[test.Widget#resize -> test.ResizeCaller, test.Widget -> test.WidgetBuilder]",
+				"w:2",
+				"test.ResizeCaller|[test.Widget]",
+				"w:5",
+				"null",
+				"The builder of test.Widget#resize is prepared with 1 argument(s), not 0" ), result );
+	}
+
+	@Test
+	public void rejectedTargetsAreNotIndexed() throws Exception
+	{
+		TestCompiler rejectedCompiler = new TestCompiler().addOption( "-Abuildergen.registry=test.Builders" ).addSource( "test.Widget", Target ).addSource( "test.Rejected", Rejected );
+		try
+		{
+			assertFalse( rejectedCompiler.compile() );
+			assertEquals( Arrays.asList( "Memoization is only supported for methods returning a value" ), rejectedCompiler.getMessages( Diagnostic.Kind.ERROR ) );
+
+			String registrySource = new String( Files.readAllBytes( new File( rejectedCompiler.getSourceOutput(), "test/Builders.java" ).toPath() ), StandardCharsets.UTF_8 );
+			assertTrue( registrySource, registrySource.contains( "test.WidgetBuilder" ) );
+			assertFalse( registrySource, registrySource.contains( "test.Rejected" ) );
+		}
+		finally
+		{
+			rejectedCompiler.delete();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * A builder given by <code>prepare()</code> can be called several times, the one given by <code>reuse()</code> only keeps
+ * the instance of its last use. Only the type given by the entry points can be reset, so that the mandatory values
+ * cannot be dropped in the middle of a chain.
+ */
+public class ReuseTest
+{
+	private final static String Scaler = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Scaler {\n" +
+			"    final double factor;\n" +
+			"    public Scaler(double factor) { this.factor = factor; }\n" +
+			"    @UseBuilderGenerator(reusable = true, freezable = true)\n" +
+			"    public double scale(@Mandatory double value, int times) { return value * factor * (times == 0 ? 1 : times); }\n" +
+			"    public static double scaleOnce(Scaler scaler, double value) { return ScaleCaller.reuse(scaler).withValue(value).call(); }\n" +
+			"    public static java.util.List<Double> callTwice(Scaler scaler) {\n" +
+			"        ScaleCaller.MandatoryParameterValue prepared = ScaleCaller.prepare(scaler);\n" +
+			"        ScaleCaller.OptionalParameters caller = prepared.withValue(3);\n" +
+			"        double first = caller.call();\n" +
+			"        double second = caller.call();\n" +
+			"        double reset = prepared.reset().withValue(3).call();\n" +
+			"        return java.util.Arrays.asList(first, second, reset, caller.withTimes(2).call(), caller.freeze().call());\n" +
+			"    }\n" +
+			"    @UseBuilderGenerator(reusable = true, memoize = 16)\n" +
+			"    public double compute(@Mandatory double value) { return value * factor; }\n" +
+			"    public static java.util.List<Double> computeTwice(Scaler scaler) {\n" +
+			"        ComputeCaller.OptionalParameters caller = ComputeCaller.prepare(scaler).withValue(3);\n" +
+			"        return java.util.Arrays.asList(caller.call(), caller.call());\n" +
+			"    }\n" +
+			"    @UseBuilderGenerator(reusable = true, compact = true)\n" +
+			"    public double shift(@Mandatory double value, int times) { return value + factor * times; }\n" +
+			"    public static java.util.List<Double> shiftReset(Scaler scaler) {\n" +
+			"        ShiftCaller caller = ShiftCaller.prepare(scaler, 3).withTimes(2);\n" +
+			"        return java.util.Arrays.asList(caller.call(), caller.reset().call(), ShiftCaller.reuse(scaler, 5).withTimes(1).call(), ShiftCaller.reuse(scaler, 7).call());\n" +
+			"    }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+	private static ClassLoader classLoader;
+	private static Class<?> scalerClass;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Scaler", Scaler );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		classLoader = compiler.getClassLoader();
+		scalerClass = classLoader.loadClass( "test.Scaler" );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void preparedCallerCanBeCalledSeveralTimes() throws Exception
+	{
+		Object scaler = scalerClass.getConstructor( double.class ).newInstance( 2.0 );
+		assertEquals( Arrays.asList( 6.0, 6.0, 6.0, 12.0, 12.0 ), scalerClass.getMethod( "callTwice", scalerClass ).invoke( null, scaler ) );
+		assertEquals( Arrays.asList( 6.0, 6.0 ), scalerClass.getMethod( "computeTwice", scalerClass ).invoke( null, scaler ) );
+	}
+
+	@Test
+	public void onlyTheShellCanBeReset() throws Exception
+	{
+		assertFalse( hasReset( "test.ScaleCaller$OptionalParameters" ) );
+		assertTrue( hasReset( "test.ScaleCaller$MandatoryParameterValue" ) );
+
+		// a compact builder is its own shell, its reset keeps the mandatory values
+		Object scaler = scalerClass.getConstructor( double.class ).newInstance( 2.0 );
+		assertEquals( Arrays.asList( 7.0, 3.0, 7.0, 7.0 ), scalerClass.getMethod( "shiftReset", scalerClass ).invoke( null, scaler ) );
+	}
+
+	@Test
+	public void nextReuseReplacesCalledInstance() throws Exception
+	{
+		Object first = scalerClass.getConstructor( double.class ).newInstance( 2.0 );
+		Object second = scalerClass.getConstructor( double.class ).newInstance( 3.0 );
+		assertEquals( 6.0, (Double) scalerClass.getMethod( "scaleOnce", scalerClass, double.class ).invoke( null, first, 3.0 ), 0 );
+		assertSame( first, getCalledInstance( getReusableBuilder() ) );
+
+		assertEquals( 9.0, (Double) scalerClass.getMethod( "scaleOnce", scalerClass, double.class ).invoke( null, second, 3.0 ), 0 );
+		assertSame( second, getCalledInstance( getReusableBuilder() ) );
+	}
+
+	private static boolean hasReset( String interfaceName ) throws Exception
+	{
+		for( Method method : classLoader.loadClass( interfaceName ).getMethods() )
+		{
+			if( method.getName().equals( "reset" ) )
+				return true;
+		}
+		return false;
+	}
+
+	private static Object getReusableBuilder() throws Exception
+	{
+		Field field = classLoader.loadClass( "test.ScaleCaller" ).getDeclaredField( "reusableBuilder" );
+		field.setAccessible( true );
+		Object builder = ((ThreadLocal<?>) field.get( null )).get();
+		assertNotNull( builder );
+		return builder;
+	}
+
+	private static Object getCalledInstance( Object builder ) throws Exception
+	{
+		Field field = builder.getClass().getDeclaredField( "calledInstance" );
+		field.setAccessible( true );
+		return field.get( builder );
+	}
+}
@@ -0,0 +1,129 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Row binders must compile whatever the names of the target parameters, and bind short rows and malformed values
+ * safely
+ */
+public class RowBinderTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Cell {\n" +
+			"    public final String description;\n" +
+			"    @UseBuilderGenerator(rowBinder = true)\n" +
+			"    public Cell(@Mandatory int row, String line, char separator, long lines, String header) {\n" +
+			"        description = row + \"|\" + line + \"|\" + separator + \"|\" + lines + \"|\" + header;\n" +
+			"    }\n" +
+			"    public static java.util.List<String> bindAll() {\n" +
+			"        CellBuilder.RowBinder binder = CellBuilder.RowBinder.forHeaderLine(\"header;row;separator;line;lines\", ';');\n" +
+			"        java.util.List<String> result = new java.util.ArrayList<>();\n" +
+			"        result.add(binder.bind(new CharSequence[] { \"h\", \"1\", \"x\", \"l\", \"2\" }).description);\n" +
+			"        result.add(binder.bind(\"h;3;;l;\", ';').description);\n" +
+			"        binder.map(java.util.stream.Stream.of(\"h;4;y;l;5\"), ';').forEach(cell -> result.add(cell.description));\n" +
+			"        return result;\n" +
+			"    }\n" +
+			"    public static String bindShort() {\n" +
+			"        return CellBuilder.RowBinder.forHeaderLine(\"header;row;separator;line;lines\", ';').bind(new CharSequence[] { \"h\", \"6\" }).description;\n" +
+			"    }\n" +
+			"    public static String bind(String line) { return CellBuilder.RowBinder.forHeaderLine(\"header;row;separator;line;lines\", ';').bind(line, ';').description; }\n" +
+			"}\n";
+
+	private final static String Flag = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Flag {\n" +
+			"    @UseBuilderGenerator(rowBinder = true)\n" +
+			"    public static String flag(@Mandatory boolean on, Boolean checked) { return on + \"|\" + checked; }\n" +
+			"    public static String bind(String line) { return FlagCaller.RowBinder.forHeaderLine(\"on;checked\", ';').bind(line, ';'); }\n" +
+			"}\n";
+
+	private static TestCompiler compiler;
+
+	@BeforeClass
+	public static void compile() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Cell", Target ).addSource( "test.Flag", Flag );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+	}
+
+	@AfterClass
+	public static void delete() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void parametersNamedLikeTheBindArguments() throws Exception
+	{
+		Object result = compiler.getClassLoader().loadClass( "test.Cell" ).getMethod( "bindAll" ).invoke( null );
+		List<String> expected = Arrays.asList( "1|l|x|2|h", "3|l|\0|0|h", "4|l|y|5|h" );
+		assertEquals( expected, result );
+	}
+
+	@Test
+	public void shortRowsGiveDefaultValues() throws Exception
+	{
+		Object result = compiler.getClassLoader().loadClass( "test.Cell" ).getMethod( "bindShort" ).invoke( null );
+		assertEquals( "6|null|\0|0|h", result );
+	}
+
+	@Test
+	public void booleansAreParsedStrictly() throws Exception
+	{
+		assertEquals( "true|false", bindFlag( "TRUE;false" ) );
+		assertEquals( "false|null", bindFlag( "False;" ) );
+
+		for( String line : new String[] { "yes;true", "true;truth", "t;false" } )
+		{
+			try
+			{
+				bindFlag( line );
+				fail( line );
+			}
+			catch( InvocationTargetException e )
+			{
+				assertEquals( IllegalArgumentException.class, e.getCause().getClass() );
+				assertTrue( e.getCause().getMessage().startsWith( "Not a boolean : " ) );
+			}
+		}
+	}
+
+	@Test
+	public void charsAreParsedStrictly() throws Exception
+	{
+		assertEquals( "7|l|z|0|h", bindCell( "h;7;z;l;" ) );
+
+		try
+		{
+			bindCell( "h;7;zz;l;" );
+			fail( "zz" );
+		}
+		catch( InvocationTargetException e )
+		{
+			assertEquals( IllegalArgumentException.class, e.getCause().getClass() );
+			assertEquals( "Not a char : zz", e.getCause().getMessage() );
+		}
+	}
+
+	private static Object bindCell( String line ) throws Exception
+	{
+		return compiler.getClassLoader().loadClass( "test.Cell" ).getMethod( "bind", String.class ).invoke( null, line );
+	}
+
+	private static Object bindFlag( String line ) throws Exception
+	{
+		return compiler.getClassLoader().loadClass( "test.Flag" ).getMethod( "bind", String.class ).invoke( null, line );
+	}
+}
@@ -0,0 +1,86 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compiling twice with <code>-Abuildergen.skipUnchanged=true</code> must not rewrite the generated builders
+ */
+public class SkipUnchangedTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Person {\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Person(@Mandatory String name, int age) {}\n" +
+			"}\n";
+
+	private final static String User = "package test;\n" +
+			"public class PersonUser {\n" +
+			"    public static Person create() { return PersonBuilder.withName(\"a\").withAge(3).build(); }\n" +
+			"}\n";
+
+	private TestCompiler compiler;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		compiler = new TestCompiler()
+				.addSource( "test.Person", Target )
+				.addSource( "test.PersonUser", User )
+				.addOption( "-Abuildergen.skipUnchanged=true" );
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void unchangedBuilderIsNotRewritten() throws Exception
+	{
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		File builder = new File( compiler.getSourceOutput(), "test/PersonBuilder.java" );
+		assertTrue( builder.isFile() );
+		byte[] content = Files.readAllBytes( builder.toPath() );
+		long lastModified = builder.lastModified();
+
+		// the file system may only keep timestamps to the second
+		Thread.sleep( 1100 );
+
+		compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		assertArrayEquals( content, Files.readAllBytes( builder.toPath() ) );
+		assertEquals( lastModified, builder.lastModified() );
+		assertTrue( compiler.getMessages( Diagnostic.Kind.NOTE ).contains( "Builder generator: 1 builder(s) up to date, 0 builder(s) generated" ) );
+	}
+
+	@Test
+	public void onlyOptionsChangingTheCodeRegenerate() throws Exception
+	{
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		compiler.addOption( "-Abuildergen.stats=true" ).addOption( "-Abuildergen.threads=2" );
+		compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		assertTrue( compiler.getMessages( Diagnostic.Kind.NOTE ).contains( "Builder generator: 1 builder(s) up to date, 0 builder(s) generated" ) );
+
+		compiler.addOption( "-Abuildergen.metrics=true" );
+		compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+		assertTrue( compiler.getMessages( Diagnostic.Kind.NOTE ).contains( "Builder generator: 0 builder(s) up to date, 1 builder(s) generated" ) );
+	}
+}
@@ -0,0 +1,316 @@
+package fr.lteconsulting;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles sources with the builder generator processor, into a temporary directory
+ */
+class TestCompiler
+{
+	private final Path directory;
+	private final File sourceOutput;
+	private final File classOutput;
+	private final List<JavaFileObject> sources = new ArrayList<>();
+	private final List<String> options = new ArrayList<>();
+	private final List<File> classPath = new ArrayList<>();
+	private final List<Processor> otherProcessors = new ArrayList<>();
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+	private UseBuilderGeneratorProcessor processor;
+	private final Map<String, List<String>> createdSources = Collections.synchronizedMap( new LinkedHashMap<String, List<String>>() );
+
+	TestCompiler() throws IOException
+	{
+		directory = Files.createTempDirectory( "builder-generator-test" );
+		sourceOutput = directory.resolve( "generated" ).toFile();
+		classOutput = directory.resolve( "classes" ).toFile();
+		sourceOutput.mkdirs();
+		classOutput.mkdirs();
+	}
+
+	TestCompiler addSource( String className, String code )
+	{
+		sources.add( new SourceFile( className, code ) );
+		return this;
+	}
+
+	TestCompiler addOption( String option )
+	{
+		options.add( option );
+		return this;
+	}
+
+	/**
+	 * Runs another processor along with the builder generator
+	 */
+	TestCompiler addProcessor( Processor processor )
+	{
+		otherProcessors.add( processor );
+		return this;
+	}
+
+	/**
+	 * Adds the classes compiled by another compiler to the class path, as an incremental build does for the unchanged
+	 * sources
+	 */
+	TestCompiler addClassPath( TestCompiler compiled )
+	{
+		classPath.add( compiled.classOutput );
+		return this;
+	}
+
+	File getSourceOutput()
+	{
+		return sourceOutput;
+	}
+
+	/**
+	 * The processor of the last compilation
+	 */
+	UseBuilderGeneratorProcessor getProcessor()
+	{
+		return processor;
+	}
+
+	/**
+	 * The sources created through the Filer by the last compilation, in creation order, with their originating
+	 * elements
+	 */
+	Map<String, List<String>> getCreatedSources()
+	{
+		return createdSources;
+	}
+
+	/**
+	 * Compiles the sources, the generated sources of a previous compilation being on the source path
+	 */
+	boolean compile() throws IOException
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		diagnostics = new DiagnosticCollector<>();
+		try( StandardJavaFileManager fileManager = compiler.getStandardFileManager( diagnostics, null, null ) )
+		{
+			fileManager.setLocation( StandardLocation.SOURCE_OUTPUT, Collections.singletonList( sourceOutput ) );
+			fileManager.setLocation( StandardLocation.CLASS_OUTPUT, Collections.singletonList( classOutput ) );
+			fileManager.setLocation( StandardLocation.SOURCE_PATH, Collections.singletonList( sourceOutput ) );
+
+			List<String> arguments = new ArrayList<>( options );
+			StringBuilder classPathArgument = new StringBuilder( System.getProperty( "java.class.path" ) );
+			for( File directory : classPath )
+				classPathArgument.append( File.pathSeparatorChar ).append( directory.getPath() );
+			arguments.addAll( Arrays.asList( "-classpath", classPathArgument.toString(), "-Xlint:-options" ) );
+
+			JavaCompiler.CompilationTask task = compiler.getTask( null, fileManager, diagnostics, arguments, null, sources );
+			processor = new UseBuilderGeneratorProcessor();
+			createdSources.clear();
+			// the other processors come first, the builder generator claiming its annotations
+			List<Processor> processors = new ArrayList<>( otherProcessors );
+			processors.add( new RecordingProcessor( processor ) );
+			task.setProcessors( processors );
+			return task.call();
+		}
+	}
+
+	/**
+	 * Messages of the given kind reported by the last compilation
+	 */
+	List<String> getMessages( Diagnostic.Kind kind )
+	{
+		List<String> result = new ArrayList<>();
+		for( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() )
+		{
+			if( diagnostic.getKind() == kind )
+				result.add( diagnostic.getMessage( null ) );
+		}
+		return result;
+	}
+
+	String getDiagnostics()
+	{
+		StringBuilder sb = new StringBuilder();
+		for( Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics() )
+			sb.append( diagnostic ).append( '\n' );
+		return sb.toString();
+	}
+
+	ClassLoader getClassLoader() throws IOException
+	{
+		List<URL> urls = new ArrayList<>();
+		urls.add( classOutput.toURI().toURL() );
+		for( File directory : classPath )
+			urls.add( directory.toURI().toURL() );
+		return new URLClassLoader( urls.toArray( new URL[urls.size()] ), getClass().getClassLoader() );
+	}
+
+	void delete() throws IOException
+	{
+		Files.walkFileTree( directory, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) throws IOException
+			{
+				Files.delete( file );
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory( Path dir, IOException e ) throws IOException
+			{
+				Files.delete( dir );
+				return FileVisitResult.CONTINUE;
+			}
+		} );
+	}
+
+	/**
+	 * Gives the processor a Filer recording the created sources
+	 */
+	private class RecordingProcessor implements Processor
+	{
+		private final Processor processor;
+
+		RecordingProcessor( Processor processor )
+		{
+			this.processor = processor;
+		}
+
+		@Override
+		public Set<String> getSupportedOptions()
+		{
+			return processor.getSupportedOptions();
+		}
+
+		@Override
+		public Set<String> getSupportedAnnotationTypes()
+		{
+			return processor.getSupportedAnnotationTypes();
+		}
+
+		@Override
+		public SourceVersion getSupportedSourceVersion()
+		{
+			return processor.getSupportedSourceVersion();
+		}
+
+		@Override
+		public void init( final ProcessingEnvironment processingEnv )
+		{
+			final Filer filer = new Filer()
+			{
+				@Override
+				public JavaFileObject createSourceFile( CharSequence name, Element... originatingElements ) throws IOException
+				{
+					List<String> elements = new ArrayList<>();
+					for( Element element : originatingElements )
+						elements.add( element.toString() );
+					createdSources.put( name.toString(), elements );
+					return processingEnv.getFiler().createSourceFile( name, originatingElements );
+				}
+
+				@Override
+				public JavaFileObject createClassFile( CharSequence name, Element... originatingElements ) throws IOException
+				{
+					return processingEnv.getFiler().createClassFile( name, originatingElements );
+				}
+
+				@Override
+				public FileObject createResource( JavaFileManager.Location location, CharSequence moduleAndPkg, CharSequence relativeName, Element... originatingElements ) throws IOException
+				{
+					return processingEnv.getFiler().createResource( location, moduleAndPkg, relativeName, originatingElements );
+				}
+
+				@Override
+				public FileObject getResource( JavaFileManager.Location location, CharSequence moduleAndPkg, CharSequence relativeName ) throws IOException
+				{
+					return processingEnv.getFiler().getResource( location, moduleAndPkg, relativeName );
+				}
+			};
+			processor.init( (ProcessingEnvironment) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { ProcessingEnvironment.class }, new InvocationHandler()
+			{
+				@Override
+				public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+				{
+					if( method.getName().equals( "getFiler" ) )
+						return filer;
+					try
+					{
+						return method.invoke( processingEnv, args );
+					}
+					catch( InvocationTargetException e )
+					{
+						throw e.getCause();
+					}
+				}
+			} ) );
+		}
+
+		@Override
+		public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+		{
+			return processor.process( annotations, roundEnv );
+		}
+
+		@Override
+		public Iterable<? extends Completion> getCompletions( Element element, AnnotationMirror annotation, ExecutableElement member, String userText )
+		{
+			return processor.getCompletions( element, annotation, member, userText );
+		}
+	}
+
+	private static class SourceFile extends SimpleJavaFileObject
+	{
+		private final String code;
+
+		SourceFile( String className, String code )
+		{
+			super( URI.create( "string:///" + className.replace( '.', '/' ) + Kind.SOURCE.extension ), Kind.SOURCE );
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent( boolean ignoreEncodingErrors )
+		{
+			return code;
+		}
+	}
+}
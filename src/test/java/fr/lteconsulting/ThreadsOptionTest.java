@@ -0,0 +1,102 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * The <code>buildergen.threads</code> option renders the builders in parallel, but they are written in the order of
+ * the elements, with the same content as when rendered sequentially
+ */
+public class ThreadsOptionTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Person {\n" +
+			"    @UseBuilderGenerator\n" +
+			"    public Person(@Mandatory String name, int age) {}\n" +
+			"    @UseBuilderGenerator(freezable = true)\n" +
+			"    public String greet(@Mandatory String greeting, String suffix) { return greeting + suffix; }\n" +
+			"    @UseBuilderGenerator(bulk = true)\n" +
+			"    public static int sum(@Mandatory int a, int b, int c) { return a + b + c; }\n" +
+			"}\n";
+
+	private final static String Other = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Address {\n" +
+			"    @UseBuilderGenerator(withers = true)\n" +
+			"    public Address(@Mandatory String street, final int number) { this.street = street; this.number = number; }\n" +
+			"    final String street; final int number;\n" +
+			"    public static class Country {\n" +
+			"        @UseBuilderGenerator(binding = true)\n" +
+			"        public Country(@Mandatory String code, String name) {}\n" +
+			"    }\n" +
+			"}\n";
+
+	private TestCompiler sequential;
+
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+		if( sequential != null )
+			sequential.delete();
+	}
+
+	@Test
+	public void parallelRenderingGivesTheSameBuilders() throws Exception
+	{
+		sequential = compile( "1" );
+		compiler = compile( "4" );
+
+		// written in the order the compiler gives the elements, as the sequential compilation does
+		List<String> builders = new ArrayList<>( sequential.getCreatedSources().keySet() );
+		assertEquals( builders, new ArrayList<>( compiler.getCreatedSources().keySet() ) );
+		List<String> sortedBuilders = new ArrayList<>( builders );
+		Collections.sort( sortedBuilders );
+		assertEquals( Arrays.asList( "test.AddressBuilder", "test.CountryBuilder", "test.GreetCaller", "test.PersonBuilder", "test.SumCaller" ), sortedBuilders );
+
+		for( String builder : builders )
+		{
+			String path = builder.replace( '.', File.separatorChar ) + ".java";
+			assertArrayEquals( builder, Files.readAllBytes( new File( sequential.getSourceOutput(), path ).toPath() ), Files.readAllBytes( new File( compiler.getSourceOutput(), path ).toPath() ) );
+		}
+	}
+
+	@Test
+	public void invalidThreadCountIsReported() throws Exception
+	{
+		compiler = new TestCompiler()
+				.addSource( "test.Person", Target )
+				.addOption( "-Abuildergen.threads=four" );
+
+		assertFalse( compiler.compile() );
+		assertEquals( Collections.singletonList( "The buildergen.threads option must be a number of threads : four" ), compiler.getMessages( Diagnostic.Kind.ERROR ) );
+	}
+
+	private static TestCompiler compile( String threads ) throws Exception
+	{
+		TestCompiler result = new TestCompiler()
+				.addSource( "test.Person", Target )
+				.addSource( "test.Address", Other )
+				.addOption( "-Abuildergen.threads=" + threads );
+		boolean compiled = result.compile();
+		assertTrue( result.getDiagnostics(), compiled );
+		return result;
+	}
+}
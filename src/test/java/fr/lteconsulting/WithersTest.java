@@ -0,0 +1,72 @@
+package fr.lteconsulting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.tools.Diagnostic;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Withers copy an instance changing a single value, the other ones being read with the getters or the fields
+ */
+public class WithersTest
+{
+	private final static String Target = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Person {\n" +
+			"    private final String name; private final int age; private final boolean active; final String nickname;\n" +
+			"    @UseBuilderGenerator(withers = true)\n" +
+			"    public Person(@Mandatory String name, int age, boolean active, String nickname) {\n" +
+			"        this.name = name; this.age = age; this.active = active; this.nickname = nickname;\n" +
+			"    }\n" +
+			"    public String getName() { return name; }\n" +
+			"    public int age() { return age; }\n" +
+			"    public boolean isActive() { return active; }\n" +
+			"    @Override public String toString() { return name + \"|\" + age + \"|\" + active + \"|\" + nickname; }\n" +
+			"    public static java.util.List<String> copies() {\n" +
+			"        Person person = PersonBuilder.withName(\"ann\").withAge(30).withActive(true).withNickname(\"a\").build();\n" +
+			"        return java.util.Arrays.asList(PersonBuilder.withAge(person, 31).toString(), PersonBuilder.withNickname(person, null).toString(),\n" +
+			"                PersonBuilder.withName(person, \"bob\").toString(), PersonBuilder.from(person).withActive(false).build().toString(), person.toString());\n" +
+			"    }\n" +
+			"}\n";
+
+	private final static String Unreadable = "package test;\n" +
+			"import fr.lteconsulting.*;\n" +
+			"public class Secret {\n" +
+			"    @UseBuilderGenerator(withers = true)\n" +
+			"    public Secret(String value) {}\n" +
+			"}\n";
+
+	private TestCompiler compiler;
+
+	@After
+	public void tearDown() throws Exception
+	{
+		compiler.delete();
+	}
+
+	@Test
+	public void otherValuesAreKept() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Person", Target );
+		boolean compiled = compiler.compile();
+		assertTrue( compiler.getDiagnostics(), compiled );
+
+		Object result = compiler.getClassLoader().loadClass( "test.Person" ).getMethod( "copies" ).invoke( null );
+		assertEquals( Arrays.asList( "ann|31|true|a", "ann|30|true|null", "bob|30|true|a", "ann|30|false|a", "ann|30|true|a" ), result );
+	}
+
+	@Test
+	public void unreadableValuesAreReported() throws Exception
+	{
+		compiler = new TestCompiler().addSource( "test.Secret", Unreadable );
+
+		assertFalse( compiler.compile() );
+		assertEquals( Arrays.asList( "No accessible getter or field to read the value of this parameter for the withers" ), compiler.getMessages( Diagnostic.Kind.ERROR ) );
+	}
+}